@@ -0,0 +1,21 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Запуск всех (или отфильтрованных по регулярке) бенчмарков с GC-профайлером:
+// gc.alloc.rate.norm показывает байты, выделенные на операцию
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(args.length > 0 ? args[0] : "araslanov.ruslan.cloudserver.benchmarks.*")
+                .addProfiler(GCProfiler.class)
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,64 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageDurability;
+import org.openjdk.jmh.annotations.*;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Цена надёжности записи на мелких файлах: без fsync и с fsync файла и каталога на каждую запись.
+// Потоков много, как параллельных загрузок: fsync в одном каталоге упираются в журнал файловой системы.
+// Каталог берётся из -Dbench.dir, чтобы мерить на нужном диске (tmpfs в /tmp fsync не делает)
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class DurabilityBenchmark {
+
+    @Param({"NONE", "FSYNC"})
+    public StorageDurability durability;
+
+    @Param({"4096", "65536"})
+    public int size;
+
+    private LocalStorageBackend storageBackend;
+    private Path root;
+    private byte[] content;
+    private final AtomicLong counter = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        String directory = System.getProperty("bench.dir");
+        root = directory == null ? Files.createTempDirectory("cloud-durability")
+                : Files.createTempDirectory(Path.of(directory), "cloud-durability");
+        storageBackend = new LocalStorageBackend(root, durability);
+
+        content = new byte[size];
+        new Random(42).nextBytes(content);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    // Раскладка как у загрузок: несколько файлов в одном каталоге fan-out
+    @Benchmark
+    public long put() throws IOException {
+        long id = counter.incrementAndGet();
+        String key = "user_1/" + String.format("%02x", id % 16) + "/file-" + id;
+        return storageBackend.put(key, new ByteArrayInputStream(content));
+    }
+}
@@ -0,0 +1,37 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.service.FileStorageService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.util.unit.DataSize;
+import java.util.concurrent.TimeUnit;
+
+// validateFilename вызывается на каждый запрос к файлу
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilenameValidationBenchmark {
+
+    @Param({"report.pdf", "a-rather-long-file-name-with-many-characters-for-the-validator-2024-final-v2.docx", "../etc/passwd"})
+    public String filename;
+
+    private FileStorageService fileStorageService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        fileStorageService = new FileStorageService(DataSize.ofGigabytes(10), false, 1000, 1000,
+                null, null, null, null, null, null, null, new NoOpTransactionManager(), null);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        try {
+            fileStorageService.validateFilename(filename);
+            return true;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Репозиторий в памяти для бенчмарков: замеряется FileStorageService и хранилище, а не БД.
+// Реализованы только методы, которые вызываются на путях загрузки и скачивания
+final class InMemoryUserFileRepository {
+
+    private InMemoryUserFileRepository() {
+    }
+
+    static UserFileRepository create() {
+        Map<String, UserFile> files = new ConcurrentHashMap<>();
+        AtomicLong ids = new AtomicLong();
+
+        return (UserFileRepository) Proxy.newProxyInstance(
+                UserFileRepository.class.getClassLoader(),
+                new Class<?>[]{UserFileRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "existsByUserAndFilename" -> files.containsKey(key(args));
+                    case "findByUserAndFilename" -> Optional.ofNullable(files.get(key(args)));
+                    case "save" -> {
+                        UserFile file = (UserFile) args[0];
+                        if (file.getId() == null) {
+                            file.setId(ids.incrementAndGet());
+                        }
+                        // Файл из корзины исчезает из выборок по имени, как и в БД
+                        if (file.getDeletedAt() != null) {
+                            files.remove(file.getUser().getId() + "/" + file.getFilename());
+                        } else {
+                            files.put(file.getUser().getId() + "/" + file.getFilename(), file);
+                        }
+                        yield file;
+                    }
+                    case "delete" -> {
+                        UserFile file = (UserFile) args[0];
+                        files.remove(file.getUser().getId() + "/" + file.getFilename());
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "InMemoryUserFileRepository";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static String key(Object[] args) {
+        return ((User) args[0]).getId() + "/" + args[1];
+    }
+}
@@ -0,0 +1,69 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.security.JwtUtil;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Выпуск и проверка токенов. verifyUncached — полный разбор и проверка подписи,
+// verifyCached — повторный запрос с тем же токеном (попадание в кэш проверенных токенов)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtBenchmark {
+
+    private JwtUtil cachedJwtUtil;
+    private JwtUtil uncachedJwtUtil;
+    private String token;
+    private UserDetails userDetails;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        cachedJwtUtil = createJwtUtil(10000);
+        uncachedJwtUtil = createJwtUtil(0);
+        token = cachedJwtUtil.generateToken("bench");
+        userDetails = new User("bench", "password", List.of());
+    }
+
+    @Benchmark
+    public String generate() {
+        return cachedJwtUtil.generateToken("bench");
+    }
+
+    @Benchmark
+    public Object verifyUncached() {
+        uncachedJwtUtil.getVerifiedTokens().invalidateAll();
+        return uncachedJwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public Object verifyCached() {
+        return cachedJwtUtil.verify(token);
+    }
+
+    @Benchmark
+    public boolean validate() {
+        return cachedJwtUtil.validateToken(token, userDetails);
+    }
+
+    private static JwtUtil createJwtUtil(long cacheMaxSize) throws ReflectiveOperationException {
+        JwtUtil jwtUtil = new JwtUtil();
+        setField(jwtUtil, "secret", "12345678901234567890123456789012");
+        setField(jwtUtil, "expiration", 86400000L);
+        setField(jwtUtil, "cacheMaxSize", cacheMaxSize);
+        jwtUtil.init();
+        return jwtUtil;
+    }
+
+    private static void setField(Object target, String name, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
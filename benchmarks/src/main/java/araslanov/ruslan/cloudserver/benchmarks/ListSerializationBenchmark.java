@@ -0,0 +1,86 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.repository.UserFileSummary;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Ответ /list: отображение проекции в FileInfoResponse и сериализация в JSON
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ListSerializationBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int entries;
+
+    private List<UserFileSummary> summaries;
+    private List<FileInfoResponse> responses;
+    private ObjectWriter writer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, FileInfoResponse.class));
+
+        LocalDateTime now = LocalDateTime.now();
+        summaries = new ArrayList<>(entries);
+        for (int i = 0; i < entries; i++) {
+            summaries.add(new Summary((long) i, "file-" + i + ".txt", 1024L * i, now.minusSeconds(i)));
+        }
+        responses = map(summaries);
+    }
+
+    @Benchmark
+    public List<FileInfoResponse> mapOnly() {
+        return map(summaries);
+    }
+
+    @Benchmark
+    public byte[] serializeOnly() throws Exception {
+        return writer.writeValueAsBytes(responses);
+    }
+
+    @Benchmark
+    public byte[] mapAndSerialize() throws Exception {
+        return writer.writeValueAsBytes(map(summaries));
+    }
+
+    private static List<FileInfoResponse> map(List<UserFileSummary> summaries) {
+        return summaries.stream()
+                .map(file -> new FileInfoResponse(file.getFilename(), file.getSize()))
+                .toList();
+    }
+
+    private record Summary(Long id, String filename, Long size, LocalDateTime uploadDate) implements UserFileSummary {
+
+        @Override
+        public Long getId() {
+            return id;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public Long getSize() {
+            return size;
+        }
+
+        @Override
+        public LocalDateTime getUploadDate() {
+            return uploadDate;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package araslanov.ruslan.cloudserver.benchmarks;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.service.BlobService;
+import araslanov.ruslan.cloudserver.service.CompressionPolicy;
+import araslanov.ruslan.cloudserver.service.FileStorageService;
+import araslanov.ruslan.cloudserver.service.QuotaService;
+import araslanov.ruslan.cloudserver.service.StorageLayout;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Пропускная способность загрузки и скачивания через FileStorageService.
+// Результат в ops/s; байты в секунду = ops/s * size
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StorageBenchmark {
+
+    @Param({"4096", "1048576", "16777216"})
+    public int size;
+
+    // memory — без диска, local — временный каталог на реальной ФС
+    @Param({"memory", "local"})
+    public String backend;
+
+    @Param({"false", "true"})
+    public boolean compression;
+
+    private FileStorageService fileStorageService;
+    private UserFileRepository fileRepository;
+    private StorageBackend storageBackend;
+    private Path root;
+    private User user;
+    private byte[] content;
+    private UserFile stored;
+    private long counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        fileRepository = InMemoryUserFileRepository.create();
+        if ("local".equals(backend)) {
+            root = Files.createTempDirectory("cloud-bench");
+            storageBackend = new LocalStorageBackend(root);
+        } else {
+            storageBackend = new InMemoryStorageBackend();
+        }
+
+        fileStorageService = new FileStorageService(
+                DataSize.ofGigabytes(10),
+                false,
+                1000,
+                1000,
+                fileRepository,
+                new BlobService(storageBackend, null, event -> { }),
+                new StorageLayout(2, 2),
+                storageBackend,
+                new CompressionPolicy(compression, DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6),
+                new TransferMetrics(),
+                // Квоты выключены: бенчмарк меряет путь записи, а не счётчики в БД
+                new QuotaService(null, null, null, false, DataSize.ofGigabytes(10), Duration.ofHours(6),
+                        DataSize.ofMegabytes(64)),
+                new NoOpTransactionManager(),
+                event -> { });
+
+        user = new User("bench", "password");
+        user.setId(1L);
+
+        // Половина случайных байт, половина повторяющегося текста: сжатие даёт реальный выигрыш, но не бесплатно
+        content = new byte[size];
+        new Random(42).nextBytes(content);
+        byte[] text = "cloud-storage benchmark payload ".getBytes();
+        for (int i = size / 2; i < size; i++) {
+            content[i] = text[i % text.length];
+        }
+
+        fileStorageService.uploadFile(user, "download.bin", new ByteArrayInputStream(content), content.length);
+        stored = fileStorageService.getFile(user, "download.bin");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (root != null) {
+            try (Stream<Path> paths = Files.walk(root)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+            }
+        }
+    }
+
+    // Файл сразу удаляется, иначе хранилище в памяти растёт на size байт за операцию.
+    // deleteFile только переносит его в корзину, поэтому байты убираются здесь же, без TrashPurger
+    @Benchmark
+    public void upload() throws IOException {
+        String filename = "upload-" + counter++;
+        fileStorageService.uploadFile(user, filename, new ByteArrayInputStream(content), content.length);
+        UserFile uploaded = fileRepository.findByUserAndFilename(user, filename).orElseThrow();
+        fileStorageService.deleteFile(user, filename);
+        storageBackend.delete(uploaded.getFilePath());
+    }
+
+    @Benchmark
+    public long download(Blackhole blackhole) throws IOException {
+        UserFile file = fileStorageService.getFile(user, "download.bin");
+        blackhole.consume(file);
+
+        byte[] buffer = new byte[64 * 1024];
+        long total = 0;
+        try (InputStream in = stored.getCodec().decode(storageBackend.get(file.getFilePath()))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                total += read;
+            }
+        }
+        return total;
+    }
+}
@@ -2,8 +2,10 @@ package araslanov.ruslan.cloudserver;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CloudServerApplication {
 
     public static void main(String[] args) {
@@ -17,7 +17,7 @@ public class FileStorageConfig {
                         .allowedOrigins("http://localhost:8081")
                         .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                         .allowedHeaders("*")
-                        .exposedHeaders("auth-token")
+                        .exposedHeaders("auth-token", "X-Next-Cursor")
                         .allowCredentials(true);
             }
         };
@@ -1,6 +1,7 @@
 package araslanov.ruslan.cloudserver.config;
 
 import araslanov.ruslan.cloudserver.security.JwtAuthenticationFilter;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -22,11 +23,17 @@ public class SecurityConfig {
 
     private final JwtAuthenticationFilter jwtAuthFilter;
     private final UserDetailsService userDetailsService;
+    private final int bcryptStrength;
+    private final int managementPort;
 
     public SecurityConfig(JwtAuthenticationFilter jwtAuthFilter,
-                          UserDetailsService userDetailsService) {
+                          UserDetailsService userDetailsService,
+                          @Value("${cloud.security.password.bcrypt-strength:10}") int bcryptStrength,
+                          @Value("${management.server.port:-1}") int managementPort) {
         this.jwtAuthFilter = jwtAuthFilter;
         this.userDetailsService = userDetailsService;
+        this.bcryptStrength = bcryptStrength;
+        this.managementPort = managementPort;
     }
 
     @Bean
@@ -39,6 +46,9 @@ public class SecurityConfig {
                                 "/login",
                                 "/test/**"
                         ).permitAll()
+                        // Порт actuator закрыт сетью, а не токеном: скрейпер ходит без него.
+                        // Если actuator оставлен на основном порту, его эндпоинты требуют входа
+                        .requestMatchers(request -> request.getLocalPort() == managementPort).permitAll()
                         .anyRequest().authenticated()
                 )
                 .sessionManagement(session -> session
@@ -59,7 +69,8 @@ public class SecurityConfig {
 
     @Bean
     public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+        // Стоимость настраивается отдельно от пула: старые хэши пересчитываются при входе
+        return new BCryptPasswordEncoder(bcryptStrength);
     }
 
     @Bean
@@ -0,0 +1,74 @@
+package araslanov.ruslan.cloudserver.config;
+
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.S3StorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageDurability;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+
+import java.net.URI;
+import java.nio.file.Paths;
+
+@Configuration
+public class StorageBackendConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "cloud.storage.backend", havingValue = "local", matchIfMissing = true)
+    public StorageBackend localStorageBackend(@Value("${cloud.storage.path}") String baseStoragePath,
+                                              @Value("${cloud.storage.durability:none}") String durability) {
+        return new LocalStorageBackend(Paths.get(baseStoragePath),
+                StorageDurability.valueOf(durability.trim().toUpperCase()));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cloud.storage.backend", havingValue = "memory")
+    public StorageBackend inMemoryStorageBackend() {
+        return new InMemoryStorageBackend();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "cloud.storage.backend", havingValue = "s3")
+    public StorageBackend s3StorageBackend(S3Client s3Client,
+                                           @Value("${cloud.storage.s3.bucket}") String bucket,
+                                           @Value("${cloud.storage.s3.part-size:16MB}") DataSize partSize) {
+        return new S3StorageBackend(s3Client, bucket, partSize.toBytes());
+    }
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "cloud.storage.backend", havingValue = "s3")
+    public S3Client s3Client(@Value("${cloud.storage.s3.endpoint:}") String endpoint,
+                             @Value("${cloud.storage.s3.region:us-east-1}") String region,
+                             @Value("${cloud.storage.s3.access-key:}") String accessKey,
+                             @Value("${cloud.storage.s3.secret-key:}") String secretKey,
+                             @Value("${cloud.storage.s3.path-style-access:false}") boolean pathStyleAccess) {
+        S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyleAccess);
+
+        // Для MinIO и других S3-совместимых хранилищ
+        if (StringUtils.isNotBlank(endpoint)) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+
+        if (StringUtils.isNotBlank(accessKey)) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(
+                    AwsBasicCredentials.create(accessKey, secretKey)));
+        } else {
+            builder.credentialsProvider(DefaultCredentialsProvider.create());
+        }
+
+        return builder.build();
+    }
+}
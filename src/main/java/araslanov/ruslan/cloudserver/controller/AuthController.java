@@ -4,32 +4,31 @@ import araslanov.ruslan.cloudserver.dto.LoginRequest;
 import araslanov.ruslan.cloudserver.dto.LoginResponse;
 import araslanov.ruslan.cloudserver.dto.RegisterRequest;
 import araslanov.ruslan.cloudserver.security.JwtUtil;
+import araslanov.ruslan.cloudserver.security.TokenDenylist;
+import araslanov.ruslan.cloudserver.service.LoginService;
 import araslanov.ruslan.cloudserver.service.UserService;
+import io.jsonwebtoken.JwtException;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
 public class AuthController {
 
-    private final AuthenticationManager authenticationManager;
+    private final LoginService loginService;
     private final JwtUtil jwtUtil;
-    private final UserDetailsService userDetailsService;
     private final UserService userService;
+    private final TokenDenylist tokenDenylist;
 
-    public AuthController(AuthenticationManager authenticationManager,
+    public AuthController(LoginService loginService,
                           JwtUtil jwtUtil,
-                          UserDetailsService userDetailsService,
-                          UserService userService) {
-        this.authenticationManager = authenticationManager;
+                          UserService userService,
+                          TokenDenylist tokenDenylist) {
+        this.loginService = loginService;
         this.jwtUtil = jwtUtil;
-        this.userDetailsService = userDetailsService;
         this.userService = userService;
+        this.tokenDenylist = tokenDenylist;
     }
 
     @PostMapping("/register")
@@ -40,21 +39,19 @@ public class AuthController {
 
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@Valid @RequestBody LoginRequest request) {
-        authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getLogin(),
-                        request.getPassword()
-                )
-        );
-
-        final UserDetails userDetails = userDetailsService.loadUserByUsername(request.getLogin());
-        final String token = jwtUtil.generateToken(userDetails.getUsername());
+        final String token = loginService.login(request.getLogin(), request.getPassword());
 
         return ResponseEntity.ok(new LoginResponse(token));
     }
 
     @PostMapping("/logout")
     public ResponseEntity<Void> logout(@RequestHeader("auth-token") String token) {
+        String rawToken = token.startsWith("Bearer ") ? token.substring(7) : token;
+        try {
+            tokenDenylist.revoke(jwtUtil.verify(rawToken));
+        } catch (JwtException | IllegalArgumentException e) {
+            // Невалидный или истёкший токен и так не пройдёт проверку
+        }
         return ResponseEntity.ok().build();
     }
 }
\ No newline at end of file
@@ -1,103 +1,208 @@
 package araslanov.ruslan.cloudserver.controller;
 
-import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.ArchiveUploadResponse;
+import araslanov.ruslan.cloudserver.dto.BatchMoveRequest;
+import araslanov.ruslan.cloudserver.dto.BatchRenameRequest;
+import araslanov.ruslan.cloudserver.dto.BatchResultResponse;
 import araslanov.ruslan.cloudserver.dto.FileRenameRequest;
+import araslanov.ruslan.cloudserver.dto.FileSelectionRequest;
 import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.ArchiveUploadService;
+import araslanov.ruslan.cloudserver.service.FileListingCache;
 import araslanov.ruslan.cloudserver.service.FileStorageService;
 import araslanov.ruslan.cloudserver.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
-import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @RestController
 public class FileController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final FileStorageService fileStorageService;
     private final UserService userService;
+    private final FileDownloadWriter fileDownloadWriter;
+    private final ZipDownloadWriter zipDownloadWriter;
+    private final ArchiveUploadService archiveUploadService;
+    private final FileListingCache fileListingCache;
 
     public FileController(FileStorageService fileStorageService,
-                          UserService userService) {
+                          UserService userService,
+                          FileDownloadWriter fileDownloadWriter,
+                          ZipDownloadWriter zipDownloadWriter,
+                          ArchiveUploadService archiveUploadService,
+                          FileListingCache fileListingCache) {
         this.fileStorageService = fileStorageService;
         this.userService = userService;
+        this.fileDownloadWriter = fileDownloadWriter;
+        this.zipDownloadWriter = zipDownloadWriter;
+        this.archiveUploadService = archiveUploadService;
+        this.fileListingCache = fileListingCache;
     }
 
-    private User getCurrentUser(UserDetails userDetails) {
-        return userService.findByLogin(userDetails.getUsername());
+    private User getCurrentUser(AuthenticatedUser principal) {
+        return userService.getReference(principal.getId());
     }
 
     @PostMapping(value = "/file", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Void> uploadFile(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @RequestParam String filename,
             @RequestPart("file") MultipartFile file) throws IOException {
 
-        User user = getCurrentUser(userDetails);
+        User user = getCurrentUser(principal);
         fileStorageService.uploadFile(user, filename, file);
         return ResponseEntity.ok().build();
     }
 
-    @GetMapping("/file")
-    public ResponseEntity<Resource> downloadFile(
-            @AuthenticationPrincipal UserDetails userDetails,
-            @RequestParam String filename) throws IOException {
+    @PutMapping(value = "/file", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadFileStream(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String filename,
+            HttpServletRequest request) throws IOException {
+
+        User user = getCurrentUser(principal);
+        fileStorageService.uploadFile(user, filename, request.getInputStream(), request.getContentLengthLong());
+        return ResponseEntity.ok().build();
+    }
 
-        User user = getCurrentUser(userDetails);
-        Path filePath = fileStorageService.downloadFile(user, filename);
+    @PostMapping("/file/instant")
+    public ResponseEntity<Void> uploadFileByHash(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String filename,
+            @RequestParam String hash,
+            @RequestParam long size) {
+
+        User user = getCurrentUser(principal);
+        if (!fileStorageService.uploadFileByHash(user, filename, hash, size)) {
+            // У пользователя нет файла с таким содержимым - клиент должен загрузить файл обычным способом
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok().build();
+    }
 
-        Resource resource = new UrlResource(filePath.toUri());
+    @GetMapping("/file")
+    public void downloadFile(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String filename,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION,
-                        "attachment; filename=\"" + filename + "\"")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .contentLength(Files.size(filePath))
-                .body(resource);
+        User user = getCurrentUser(principal);
+        UserFile userFile = fileStorageService.getFile(user, filename);
+        fileDownloadWriter.write(userFile, request, response);
     }
 
     @DeleteMapping("/file")
     public ResponseEntity<Void> deleteFile(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @RequestParam String filename) throws IOException {
 
-        User user = getCurrentUser(userDetails);
+        User user = getCurrentUser(principal);
         fileStorageService.deleteFile(user, filename);
         return ResponseEntity.ok().build();
     }
 
     @PutMapping("/file")
     public ResponseEntity<Void> renameFile(
-            @AuthenticationPrincipal UserDetails userDetails,
+            @AuthenticationPrincipal AuthenticatedUser principal,
             @RequestParam String filename,
             @Valid @RequestBody FileRenameRequest request) {
 
-        User user = getCurrentUser(userDetails);
+        User user = getCurrentUser(principal);
         fileStorageService.renameFile(user, filename, request.getName());
         return ResponseEntity.ok().build();
     }
 
-    @GetMapping("/list")
-    public ResponseEntity<List<FileInfoResponse>> getFileList(
-            @AuthenticationPrincipal UserDetails userDetails,
-            @RequestParam(required = false) Integer limit) {
+    // Несколько файлов одним ответом: ZIP собирается потоково
+    @PostMapping("/files/archive")
+    public void downloadArchive(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestBody FileSelectionRequest request,
+            HttpServletResponse response) throws IOException {
 
-        User user = getCurrentUser(userDetails);
-        List<FileInfoResponse> files = fileStorageService.getUserFiles(user, limit)
-                .stream()
-                .map(file -> new FileInfoResponse(file.getFilename(), file.getSize()))
-                .collect(Collectors.toList());
+        User user = getCurrentUser(principal);
+        List<UserFile> files = fileStorageService.getFiles(user, request.getFilenames(), request.getPattern());
+        zipDownloadWriter.write(files, "files.zip", response);
+    }
 
-        return ResponseEntity.ok(files);
+    // ZIP, tar или tar.gz распаковывается по мере чтения тела; в ответе — отчёт по каждой записи
+    @PutMapping(value = "/files/archive", consumes = {MediaType.APPLICATION_OCTET_STREAM_VALUE,
+            "application/zip", "application/x-tar", "application/gzip"})
+    public ResponseEntity<ArchiveUploadResponse> uploadArchive(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            HttpServletRequest request) throws IOException {
+
+        User user = getCurrentUser(principal);
+        return ResponseEntity.ok(archiveUploadService.upload(user, request.getInputStream()));
+    }
+
+    @PostMapping("/files/delete")
+    public ResponseEntity<BatchResultResponse> deleteFiles(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestBody FileSelectionRequest request) throws IOException {
+
+        User user = getCurrentUser(principal);
+        int deleted = fileStorageService.deleteFiles(user, request.getFilenames(), request.getPattern());
+        return ResponseEntity.ok(new BatchResultResponse(deleted));
+    }
+
+    @PostMapping("/files/rename")
+    public ResponseEntity<BatchResultResponse> renameFiles(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @Valid @RequestBody BatchRenameRequest request) {
+
+        User user = getCurrentUser(principal);
+        int renamed = fileStorageService.renameFiles(user, request.getRenames());
+        return ResponseEntity.ok(new BatchResultResponse(renamed));
+    }
+
+    @PostMapping("/files/move")
+    public ResponseEntity<BatchResultResponse> moveFiles(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @Valid @RequestBody BatchMoveRequest request) {
+
+        User user = getCurrentUser(principal);
+        int moved = fileStorageService.moveFiles(user, request.getFromPrefix(), request.getToPrefix());
+        return ResponseEntity.ok(new BatchResultResponse(moved));
+    }
+
+    @GetMapping("/list")
+    public ResponseEntity<byte[]> getFileList(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor,
+            WebRequest webRequest) throws IOException {
+
+        User user = getCurrentUser(principal);
+
+        // Клиенты синхронизации опрашивают список постоянно: без изменений — 304 без запроса к БД
+        long version = fileListingCache.currentVersion(user.getId());
+        String etag = FileListingCache.etagOf(version);
+        if (webRequest.checkNotModified(etag)) {
+            return null;
+        }
+
+        FileListingCache.Listing listing = fileListingCache.getListing(user, limit, cursor, version);
+
+        // Тело осталось массивом для совместимости с клиентом, курсор следующей страницы - в заголовке
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag);
+        if (listing.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, listing.nextCursor());
+        }
+        return response.body(listing.body());
     }
-}
\ No newline at end of file
+}
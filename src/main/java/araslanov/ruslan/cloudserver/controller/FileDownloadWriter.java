@@ -0,0 +1,325 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.service.ContentCache;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageObject;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class FileDownloadWriter {
+
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final StorageBackend storageBackend;
+    private final boolean sendfileEnabled;
+    private final TransferMetrics transferMetrics;
+    private final ContentCache contentCache;
+
+    public FileDownloadWriter(StorageBackend storageBackend,
+                              @Value("${cloud.storage.download.sendfile:true}") boolean sendfileEnabled,
+                              TransferMetrics transferMetrics,
+                              ContentCache contentCache) {
+        this.storageBackend = storageBackend;
+        this.sendfileEnabled = sendfileEnabled;
+        this.transferMetrics = transferMetrics;
+        this.contentCache = contentCache;
+    }
+
+    public void write(UserFile file, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String key = file.getFilePath();
+        ContentCodec codec = file.getCodec();
+
+        // Сжатое содержимое отдаётся как есть, если клиент принимает этот Content-Encoding,
+        // иначе распаковывается на лету. Диапазоны относятся к выбранному представлению
+        boolean decode = codec != ContentCodec.IDENTITY && !acceptsEncoding(request, codec.getContentEncoding());
+
+        // Горячий небольшой файл отдаётся из памяти, без stat и открытия файла. В кэше лежит
+        // сохранённое представление, поэтому распаковка идёт мимо него
+        boolean cacheable = !decode && contentCache.isCacheable(file.getSize());
+        ByteBuffer cached = cacheable ? contentCache.getIfPresent(key) : null;
+        long storedLength = cached != null ? cached.remaining() : storageBackend.stat(key)
+                .map(StorageObject::size)
+                .orElseThrow(() -> new NoSuchFileException(key));
+        long length = decode ? file.getSize() : storedLength;
+        String etag = codec == ContentCodec.IDENTITY || decode ? etagOf(file) : encodedEtag(file);
+        long lastModified = file.getUploadDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+        if (codec != ContentCodec.IDENTITY) {
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        }
+
+        // Обрабатывает If-None-Match/If-Modified-Since (304) и If-Match/If-Unmodified-Since (412)
+        if (new ServletWebRequest(request, response).checkNotModified(etag, lastModified)) {
+            return;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"" + file.getFilename() + "\"");
+        if (codec != ContentCodec.IDENTITY && !decode) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, codec.getContentEncoding());
+        }
+
+        List<HttpRange> ranges;
+        try {
+            ranges = requestedRanges(request, etag, lastModified);
+            checkSatisfiable(ranges, length);
+        } catch (IllegalArgumentException e) {
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        boolean headRequest = "HEAD".equals(request.getMethod());
+        if (!headRequest) {
+            transferMetrics.recordDownloadStarted();
+            if (cacheable && cached == null) {
+                cached = contentCache.admit(key, storedLength);
+            }
+        }
+
+        if (ranges.isEmpty()) {
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setContentLengthLong(length);
+            if (!headRequest) {
+                transfer(key, cached, codec, decode, 0, length, request, response);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0).getRangeStart(length);
+            long end = ranges.get(0).getRangeEnd(length);
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, contentRange(start, end, length));
+            response.setContentLengthLong(end - start + 1);
+            if (!headRequest) {
+                transfer(key, cached, codec, decode, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        writeMultipart(key, cached, codec, decode, ranges, length, headRequest, response);
+    }
+
+    public String etagOf(UserFile file) {
+        if (file.getContentHash() != null) {
+            return "\"" + file.getContentHash() + "\"";
+        }
+        long uploaded = file.getUploadDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        return "\"" + Long.toHexString(file.getId()) + "-" + Long.toHexString(file.getSize())
+                + "-" + Long.toHexString(uploaded) + "\"";
+    }
+
+    // ETag сжатого представления должен отличаться от ETag исходного
+    public String encodedEtag(UserFile file) {
+        String etag = etagOf(file);
+        return etag.substring(0, etag.length() - 1) + "-" + file.getCodec().getContentEncoding() + "\"";
+    }
+
+    private boolean acceptsEncoding(HttpServletRequest request, String encoding) {
+        boolean accepted = false;
+        for (String header : Collections.list(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))) {
+            for (String token : header.split(",")) {
+                String[] parts = token.trim().split(";");
+                String name = parts[0].trim();
+                double quality = 1.0;
+                for (int i = 1; i < parts.length; i++) {
+                    String parameter = parts[i].trim();
+                    if (parameter.startsWith("q=")) {
+                        try {
+                            quality = Double.parseDouble(parameter.substring(2));
+                        } catch (NumberFormatException e) {
+                            quality = 0;
+                        }
+                    }
+                }
+
+                // Явное упоминание кодека важнее "*"
+                if (name.equalsIgnoreCase(encoding)) {
+                    return quality > 0;
+                }
+                if (name.equals("*")) {
+                    accepted = quality > 0;
+                }
+            }
+        }
+        return accepted;
+    }
+
+    private List<HttpRange> requestedRanges(HttpServletRequest request, String etag, long lastModified) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !rangeHeader.startsWith("bytes=")) {
+            return List.of();
+        }
+
+        // If-Range: частичный ответ только если клиент держит ту же версию файла
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange, request, etag, lastModified)) {
+            return List.of();
+        }
+
+        try {
+            return HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // Некорректный Range игнорируется, как требует RFC 9110
+            return List.of();
+        }
+    }
+
+    private boolean ifRangeMatches(String ifRange, HttpServletRequest request, String etag, long lastModified) {
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        try {
+            return request.getDateHeader(HttpHeaders.IF_RANGE) / 1000 == lastModified / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void checkSatisfiable(List<HttpRange> ranges, long length) {
+        long total = 0;
+        for (HttpRange range : ranges) {
+            long start = range.getRangeStart(length);
+            long end = range.getRangeEnd(length);
+            if (start >= length || end < start) {
+                throw new IllegalArgumentException("Range not satisfiable");
+            }
+            total += end - start + 1;
+        }
+        if (total > length && ranges.size() > 1) {
+            throw new IllegalArgumentException("Requested ranges exceed content length");
+        }
+    }
+
+    private void writeMultipart(String key, ByteBuffer cached, ContentCodec codec, boolean decode, List<HttpRange> ranges,
+                                long length, boolean headRequest, HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        byte[][] partHeaders = new byte[ranges.size()][];
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        long contentLength = closing.length;
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + MediaType.APPLICATION_OCTET_STREAM_VALUE + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": " + contentRange(start, end, length) + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII);
+            contentLength += partHeaders[i].length + (end - start + 1);
+        }
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (headRequest) {
+            return;
+        }
+
+        OutputStream out = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(out);
+        for (int i = 0; i < ranges.size(); i++) {
+            long start = ranges.get(i).getRangeStart(length);
+            long end = ranges.get(i).getRangeEnd(length);
+            out.write(partHeaders[i]);
+            copyRange(key, cached, codec, decode, start, end - start + 1, target);
+        }
+        out.write(closing);
+    }
+
+    private void transfer(String key, ByteBuffer cached, ContentCodec codec, boolean decode, long start, long count,
+                          HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (cached != null) {
+            copyRange(key, cached, codec, decode, start, count, Channels.newChannel(response.getOutputStream()));
+            return;
+        }
+
+        // Tomcat отдаёт локальный файл через sendfile сам, без участия рабочего потока и heap
+        Optional<Path> localPath = storageBackend.localPath(key);
+        if (sendfileEnabled && !decode && localPath.isPresent()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, localPath.get().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            transferMetrics.recordDownloaded(count);
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        copyRange(key, null, codec, decode, start, count, target);
+    }
+
+    private void copyRange(String key, ByteBuffer cached, ContentCodec codec, boolean decode, long start, long count,
+                           WritableByteChannel target) throws IOException {
+        if (cached != null) {
+            ByteBuffer range = cached.slice((int) start, (int) count);
+            while (range.hasRemaining()) {
+                target.write(range);
+            }
+            transferMetrics.recordDownloaded(count);
+            return;
+        }
+        if (!decode) {
+            storageBackend.transferTo(key, start, count, target);
+            transferMetrics.recordDownloaded(count);
+            return;
+        }
+
+        // Распакованный поток не поддерживает произвольный доступ: пропускаем начало
+        try (InputStream in = codec.decode(storageBackend.get(key))) {
+            in.skipNBytes(start);
+
+            byte[] chunk = new byte[COPY_BUFFER_SIZE];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(chunk, 0, (int) Math.min(chunk.length, remaining));
+                if (read == -1) {
+                    throw new EOFException("File is shorter than expected");
+                }
+                ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, read);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                remaining -= read;
+                transferMetrics.recordDownloaded(read);
+            }
+        }
+    }
+
+    private String contentRange(long start, long end, long length) {
+        return "bytes " + start + "-" + end + "/" + length;
+    }
+}
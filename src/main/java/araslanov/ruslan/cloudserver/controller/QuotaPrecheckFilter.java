@@ -0,0 +1,84 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.dto.ErrorResponse;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.QuotaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+// Отклоняет загрузку по Content-Length до того, как тело (или multipart) начнёт читаться.
+// Окончательная проверка всё равно делается резервированием в FileStorageService
+@Component
+public class QuotaPrecheckFilter extends OncePerRequestFilter {
+
+    private final QuotaService quotaService;
+    private final ObjectMapper objectMapper;
+
+    public QuotaPrecheckFilter(QuotaService quotaService, ObjectMapper objectMapper) {
+        this.quotaService = quotaService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!quotaService.isEnabled() || request.getContentLengthLong() <= 0) {
+            return true;
+        }
+
+        String method = request.getMethod();
+        String path = request.getServletPath();
+        // На /file загрузки — только multipart POST и PUT потоком; PUT с JSON — переименование, места не занимает
+        if ("/file".equals(path)) {
+            return !("POST".equals(method) && hasContentType(request, MediaType.MULTIPART_FORM_DATA))
+                    && !("PUT".equals(method) && hasContentType(request, MediaType.APPLICATION_OCTET_STREAM));
+        }
+        // Распакованное содержимое обычно не меньше архива, так что его длина — нижняя оценка
+        if ("/files/archive".equals(path)) {
+            return !"PUT".equals(method);
+        }
+        return !("PUT".equals(method) && path.startsWith("/upload-session/") && path.contains("/parts/"));
+    }
+
+    private static boolean hasContentType(HttpServletRequest request, MediaType expected) {
+        String contentType = request.getContentType();
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return expected.includes(MediaType.parseMediaType(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain)
+            throws ServletException, IOException {
+
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof AuthenticatedUser principal
+                && request.getContentLengthLong() > quotaService.getAvailable(principal.getId())) {
+            response.setStatus(HttpStatus.PAYLOAD_TOO_LARGE.value());
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            // Тело не дочитываем, соединение после ответа закрывается
+            response.setHeader("Connection", "close");
+            objectMapper.writeValue(response.getOutputStream(), new ErrorResponse("Storage quota exceeded", 413));
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+}
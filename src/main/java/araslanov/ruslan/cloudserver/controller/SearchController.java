@@ -0,0 +1,42 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.FileSearchService;
+import araslanov.ruslan.cloudserver.service.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import java.util.List;
+
+@RestController
+@RequestMapping("/search")
+public class SearchController {
+
+    private final FileSearchService fileSearchService;
+    private final UserService userService;
+
+    public SearchController(FileSearchService fileSearchService,
+                            UserService userService) {
+        this.fileSearchService = fileSearchService;
+        this.userService = userService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<FileInfoResponse>> search(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        User user = userService.getReference(principal.getId());
+        FileListPage page = fileSearchService.search(user, q, limit, cursor);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(FileController.NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getFiles());
+    }
+}
@@ -0,0 +1,64 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.dto.TrashItemResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.TrashPurger;
+import araslanov.ruslan.cloudserver.service.TrashService;
+import araslanov.ruslan.cloudserver.service.UserService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.util.List;
+
+@RestController
+@RequestMapping("/trash")
+public class TrashController {
+
+    private final TrashService trashService;
+    private final TrashPurger trashPurger;
+    private final UserService userService;
+
+    public TrashController(TrashService trashService,
+                           TrashPurger trashPurger,
+                           UserService userService) {
+        this.trashService = trashService;
+        this.trashPurger = trashPurger;
+        this.userService = userService;
+    }
+
+    private User getCurrentUser(AuthenticatedUser principal) {
+        return userService.getReference(principal.getId());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TrashItemResponse>> getTrash(
+            @AuthenticationPrincipal AuthenticatedUser principal) {
+
+        User user = getCurrentUser(principal);
+        return ResponseEntity.ok(trashService.getTrash(user));
+    }
+
+    @PostMapping("/restore")
+    public ResponseEntity<Void> restoreFile(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String filename) {
+
+        User user = getCurrentUser(principal);
+        trashService.restoreFile(user, filename);
+        return ResponseEntity.ok().build();
+    }
+
+    // Без filename очищается вся корзина; место освобождается в квоте сразу
+    @DeleteMapping
+    public ResponseEntity<Void> emptyTrash(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam(required = false) String filename) throws IOException {
+
+        User user = getCurrentUser(principal);
+        trashPurger.emptyTrash(user, filename);
+        return ResponseEntity.ok().build();
+    }
+}
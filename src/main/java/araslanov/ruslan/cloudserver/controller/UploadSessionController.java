@@ -0,0 +1,98 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.dto.UploadPartResponse;
+import araslanov.ruslan.cloudserver.dto.UploadSessionResponse;
+import araslanov.ruslan.cloudserver.entity.UploadSession;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.UploadSessionService;
+import araslanov.ruslan.cloudserver.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/upload-session")
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+    private final UserService userService;
+
+    public UploadSessionController(UploadSessionService uploadSessionService,
+                                   UserService userService) {
+        this.uploadSessionService = uploadSessionService;
+        this.userService = userService;
+    }
+
+    private User getCurrentUser(AuthenticatedUser principal) {
+        return userService.getReference(principal.getId());
+    }
+
+    @PostMapping
+    public ResponseEntity<UploadSessionResponse> createSession(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @RequestParam String filename) {
+
+        User user = getCurrentUser(principal);
+        UploadSession session = uploadSessionService.createSession(user, filename);
+        return ResponseEntity.status(HttpStatus.CREATED).body(toResponse(session, List.of()));
+    }
+
+    @PutMapping(value = "/{sessionId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<Void> uploadPart(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String sessionId,
+            @PathVariable int partNumber,
+            HttpServletRequest request) throws IOException {
+
+        User user = getCurrentUser(principal);
+        uploadSessionService.uploadPart(user, sessionId, partNumber,
+                request.getInputStream(), request.getContentLengthLong());
+        return ResponseEntity.ok().build();
+    }
+
+    @GetMapping("/{sessionId}")
+    public ResponseEntity<UploadSessionResponse> getSession(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String sessionId) {
+
+        User user = getCurrentUser(principal);
+        UploadSession session = uploadSessionService.getSession(user, sessionId);
+        List<UploadPartResponse> parts = uploadSessionService.getParts(session)
+                .stream()
+                .map(part -> new UploadPartResponse(part.getPartNumber(), part.getSize()))
+                .collect(Collectors.toList());
+
+        return ResponseEntity.ok(toResponse(session, parts));
+    }
+
+    @PostMapping("/{sessionId}/commit")
+    public ResponseEntity<Void> commit(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String sessionId) throws IOException {
+
+        User user = getCurrentUser(principal);
+        uploadSessionService.commit(user, sessionId);
+        return ResponseEntity.ok().build();
+    }
+
+    @DeleteMapping("/{sessionId}")
+    public ResponseEntity<Void> abort(
+            @AuthenticationPrincipal AuthenticatedUser principal,
+            @PathVariable String sessionId) {
+
+        User user = getCurrentUser(principal);
+        uploadSessionService.abort(user, sessionId);
+        return ResponseEntity.ok().build();
+    }
+
+    private UploadSessionResponse toResponse(UploadSession session, List<UploadPartResponse> parts) {
+        return new UploadSessionResponse(session.getId(), session.getFilename(), session.getExpiresAt(), parts);
+    }
+}
@@ -0,0 +1,85 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.service.CompressionPolicy;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Собирает ZIP на лету прямо в ответ: ни временного файла, ни архива в памяти.
+// На запрос приходится один буфер копирования и один Deflater, независимо от размера архива
+@Component
+public class ZipDownloadWriter {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int SIGNATURE_SAMPLE_SIZE = 16;
+
+    private final StorageBackend storageBackend;
+    private final CompressionPolicy compressionPolicy;
+    private final TransferMetrics transferMetrics;
+    private final int level;
+
+    public ZipDownloadWriter(StorageBackend storageBackend,
+                             CompressionPolicy compressionPolicy,
+                             TransferMetrics transferMetrics,
+                             @Value("${cloud.storage.archive.level:1}") int level) {
+        if (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid archive compression level: " + level);
+        }
+        this.storageBackend = storageBackend;
+        this.compressionPolicy = compressionPolicy;
+        this.transferMetrics = transferMetrics;
+        this.level = level;
+    }
+
+    public void write(List<UserFile> files, String archiveName, HttpServletResponse response) throws IOException {
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + archiveName + "\"");
+        transferMetrics.recordDownloadStarted();
+
+        // Длина архива заранее неизвестна: ответ уходит chunked по мере записи
+        ZipOutputStream zip = new ZipOutputStream(response.getOutputStream());
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+
+        for (UserFile file : files) {
+            try (InputStream in = new BufferedInputStream(
+                    file.getCodec().decode(storageBackend.get(file.getFilePath())), COPY_BUFFER_SIZE)) {
+                in.mark(SIGNATURE_SAMPLE_SIZE);
+                byte[] sample = in.readNBytes(SIGNATURE_SAMPLE_SIZE);
+                in.reset();
+
+                // Уже сжатые форматы не пережимаются. STORED потребовал бы CRC до записи, то есть
+                // второго чтения файла, поэтому они пишутся несжатыми блоками deflate (уровень 0)
+                zip.setLevel(compressionPolicy.isAlreadyCompressed(sample) ? Deflater.NO_COMPRESSION : level);
+
+                ZipEntry entry = new ZipEntry(file.getFilename());
+                entry.setLastModifiedTime(FileTime.from(file.getUploadDate().atZone(ZoneId.systemDefault()).toInstant()));
+                zip.putNextEntry(entry);
+
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    zip.write(chunk, 0, read);
+                    transferMetrics.recordDownloaded(read);
+                }
+                zip.closeEntry();
+            }
+        }
+
+        // Только при успехе: close дописывает центральный каталог и освобождает Deflater.
+        // После ошибки каталог не пишется, чтобы клиент не принял обрезанный архив за целый
+        zip.close();
+    }
+}
@@ -0,0 +1,55 @@
+package araslanov.ruslan.cloudserver.dto;
+
+public class ArchiveEntryResult {
+    public static final String ACCEPTED = "accepted";
+    public static final String RENAMED = "renamed";
+    public static final String SKIPPED = "skipped";
+
+    // Путь записи внутри архива
+    private String entry;
+    // Имя, под которым файл сохранён; null для пропущенных
+    private String filename;
+    private String status;
+    private String reason;
+
+    public ArchiveEntryResult() {}
+
+    public ArchiveEntryResult(String entry, String filename, String status, String reason) {
+        this.entry = entry;
+        this.filename = filename;
+        this.status = status;
+        this.reason = reason;
+    }
+
+    public String getEntry() {
+        return entry;
+    }
+
+    public void setEntry(String entry) {
+        this.entry = entry;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+}
@@ -0,0 +1,55 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import java.util.List;
+
+public class ArchiveUploadResponse {
+    private int accepted;
+    private int renamed;
+    private int skipped;
+    private List<ArchiveEntryResult> entries;
+
+    public ArchiveUploadResponse() {}
+
+    public ArchiveUploadResponse(List<ArchiveEntryResult> entries) {
+        this.entries = entries;
+        for (ArchiveEntryResult entry : entries) {
+            switch (entry.getStatus()) {
+                case ArchiveEntryResult.ACCEPTED -> accepted++;
+                case ArchiveEntryResult.RENAMED -> renamed++;
+                default -> skipped++;
+            }
+        }
+    }
+
+    public int getAccepted() {
+        return accepted;
+    }
+
+    public void setAccepted(int accepted) {
+        this.accepted = accepted;
+    }
+
+    public int getRenamed() {
+        return renamed;
+    }
+
+    public void setRenamed(int renamed) {
+        this.renamed = renamed;
+    }
+
+    public int getSkipped() {
+        return skipped;
+    }
+
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+
+    public List<ArchiveEntryResult> getEntries() {
+        return entries;
+    }
+
+    public void setEntries(List<ArchiveEntryResult> entries) {
+        this.entries = entries;
+    }
+}
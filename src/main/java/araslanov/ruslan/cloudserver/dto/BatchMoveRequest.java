@@ -0,0 +1,34 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import jakarta.validation.constraints.NotBlank;
+
+public class BatchMoveRequest {
+
+    @NotBlank(message = "Source prefix is required")
+    private String fromPrefix;
+
+    private String toPrefix;
+
+    public BatchMoveRequest() {}
+
+    public BatchMoveRequest(String fromPrefix, String toPrefix) {
+        this.fromPrefix = fromPrefix;
+        this.toPrefix = toPrefix;
+    }
+
+    public String getFromPrefix() {
+        return fromPrefix;
+    }
+
+    public void setFromPrefix(String fromPrefix) {
+        this.fromPrefix = fromPrefix;
+    }
+
+    public String getToPrefix() {
+        return toPrefix;
+    }
+
+    public void setToPrefix(String toPrefix) {
+        this.toPrefix = toPrefix;
+    }
+}
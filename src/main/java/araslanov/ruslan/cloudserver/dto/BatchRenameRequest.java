@@ -0,0 +1,25 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import jakarta.validation.constraints.NotEmpty;
+import java.util.Map;
+
+public class BatchRenameRequest {
+
+    // Старое имя -> новое имя
+    @NotEmpty(message = "Renames are required")
+    private Map<String, String> renames;
+
+    public BatchRenameRequest() {}
+
+    public BatchRenameRequest(Map<String, String> renames) {
+        this.renames = renames;
+    }
+
+    public Map<String, String> getRenames() {
+        return renames;
+    }
+
+    public void setRenames(Map<String, String> renames) {
+        this.renames = renames;
+    }
+}
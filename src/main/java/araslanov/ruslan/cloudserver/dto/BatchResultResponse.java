@@ -0,0 +1,19 @@
+package araslanov.ruslan.cloudserver.dto;
+
+public class BatchResultResponse {
+    private int count;
+
+    public BatchResultResponse() {}
+
+    public BatchResultResponse(int count) {
+        this.count = count;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public void setCount(int count) {
+        this.count = count;
+    }
+}
@@ -0,0 +1,31 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import java.util.List;
+
+public class FileListPage {
+    private List<FileInfoResponse> files;
+    private String nextCursor;
+
+    public FileListPage() {}
+
+    public FileListPage(List<FileInfoResponse> files, String nextCursor) {
+        this.files = files;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<FileInfoResponse> getFiles() {
+        return files;
+    }
+
+    public void setFiles(List<FileInfoResponse> files) {
+        this.files = files;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,32 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import java.util.List;
+
+public class FileSelectionRequest {
+    private List<String> filenames;
+    // glob: * и ?
+    private String pattern;
+
+    public FileSelectionRequest() {}
+
+    public FileSelectionRequest(List<String> filenames, String pattern) {
+        this.filenames = filenames;
+        this.pattern = pattern;
+    }
+
+    public List<String> getFilenames() {
+        return filenames;
+    }
+
+    public void setFilenames(List<String> filenames) {
+        this.filenames = filenames;
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+}
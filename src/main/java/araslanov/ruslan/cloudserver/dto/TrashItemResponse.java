@@ -0,0 +1,52 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import java.time.LocalDateTime;
+
+public class TrashItemResponse {
+    private String filename;
+    private Long size;
+    private LocalDateTime deletedAt;
+    // После этого момента файл нельзя восстановить
+    private LocalDateTime expiresAt;
+
+    public TrashItemResponse() {}
+
+    public TrashItemResponse(String filename, Long size, LocalDateTime deletedAt, LocalDateTime expiresAt) {
+        this.filename = filename;
+        this.size = size;
+        this.deletedAt = deletedAt;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,29 @@
+package araslanov.ruslan.cloudserver.dto;
+
+public class UploadPartResponse {
+    private Integer partNumber;
+    private Long size;
+
+    public UploadPartResponse() {}
+
+    public UploadPartResponse(Integer partNumber, Long size) {
+        this.partNumber = partNumber;
+        this.size = size;
+    }
+
+    public Integer getPartNumber() {
+        return partNumber;
+    }
+
+    public void setPartNumber(Integer partNumber) {
+        this.partNumber = partNumber;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+}
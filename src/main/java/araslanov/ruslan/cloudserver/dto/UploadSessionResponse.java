@@ -0,0 +1,53 @@
+package araslanov.ruslan.cloudserver.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class UploadSessionResponse {
+    private String id;
+    private String filename;
+    private LocalDateTime expiresAt;
+    private List<UploadPartResponse> parts;
+
+    public UploadSessionResponse() {}
+
+    public UploadSessionResponse(String id, String filename, LocalDateTime expiresAt,
+                                 List<UploadPartResponse> parts) {
+        this.id = id;
+        this.filename = filename;
+        this.expiresAt = expiresAt;
+        this.parts = parts;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    public List<UploadPartResponse> getParts() {
+        return parts;
+    }
+
+    public void setParts(List<UploadPartResponse> parts) {
+        this.parts = parts;
+    }
+}
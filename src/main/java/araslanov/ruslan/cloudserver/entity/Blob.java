@@ -0,0 +1,87 @@
+package araslanov.ruslan.cloudserver.entity;
+
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "blobs")
+public class Blob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    @Column(name = "file_path", nullable = false, length = 500)
+    private String filePath;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private Long refCount;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Кодек, которым содержимое сжато в хранилище
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ContentCodec codec = ContentCodec.IDENTITY;
+
+    public Blob() {}
+
+    public Blob(String hash, String filePath, Long size, Long refCount) {
+        this.hash = hash;
+        this.filePath = filePath;
+        this.size = size;
+        this.refCount = refCount;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    public void setFilePath(String filePath) {
+        this.filePath = filePath;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public Long getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(Long refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public ContentCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(ContentCodec codec) {
+        this.codec = codec;
+    }
+}
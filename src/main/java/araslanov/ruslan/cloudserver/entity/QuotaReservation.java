@@ -0,0 +1,64 @@
+package araslanov.ruslan.cloudserver.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Место, занятое незавершённой загрузкой. Строка нужна сверке: reserved_bytes пересчитывается
+// по живым резервам, а резервы упавших загрузок истекают сами
+@Entity
+@Table(name = "quota_reservations")
+public class QuotaReservation {
+    @Id
+    @Column(length = 36)
+    private String id;
+
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(nullable = false)
+    private Long bytes;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+
+    public QuotaReservation() {}
+
+    public QuotaReservation(String id, Long userId, Long bytes, LocalDateTime expiresAt) {
+        this.id = id;
+        this.userId = userId;
+        this.bytes = bytes;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getBytes() {
+        return bytes;
+    }
+
+    public void setBytes(Long bytes) {
+        this.bytes = bytes;
+    }
+
+    public LocalDateTime getExpiresAt() {
+        return expiresAt;
+    }
+
+    public void setExpiresAt(LocalDateTime expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,78 @@
+package araslanov.ruslan.cloudserver.entity;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Entity
+@Table(name = "upload_session_parts")
+@IdClass(UploadSessionPart.PartId.class)
+public class UploadSessionPart {
+    @Id
+    @Column(name = "session_id", length = 36)
+    private String sessionId;
+
+    @Id
+    @Column(name = "part_number")
+    private Integer partNumber;
+
+    @Column(nullable = false)
+    private Long size;
+
+    public UploadSessionPart() {}
+
+    public UploadSessionPart(String sessionId, Integer partNumber, Long size) {
+        this.sessionId = sessionId;
+        this.partNumber = partNumber;
+        this.size = size;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Integer getPartNumber() {
+        return partNumber;
+    }
+
+    public void setPartNumber(Integer partNumber) {
+        this.partNumber = partNumber;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public void setSize(Long size) {
+        this.size = size;
+    }
+
+    public static class PartId implements Serializable {
+        private String sessionId;
+        private Integer partNumber;
+
+        public PartId() {}
+
+        public PartId(String sessionId, Integer partNumber) {
+            this.sessionId = sessionId;
+            this.partNumber = partNumber;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof PartId other)) return false;
+            return Objects.equals(sessionId, other.sessionId)
+                    && Objects.equals(partNumber, other.partNumber);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sessionId, partNumber);
+        }
+    }
+}
@@ -22,6 +22,18 @@ public class User {
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
+    // Счётчики квоты меняются только атомарными UPDATE в QuotaService:
+    // сохранение сущности не должно затирать их устаревшими значениями
+    @Column(name = "used_bytes", nullable = false, insertable = false, updatable = false)
+    private long usedBytes;
+
+    @Column(name = "reserved_bytes", nullable = false, insertable = false, updatable = false)
+    private long reservedBytes;
+
+    // null — квота по умолчанию из настроек
+    @Column(name = "quota_bytes")
+    private Long quotaBytes;
+
     @OneToMany(mappedBy = "user", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private List<UserFile> files;
 
@@ -72,6 +84,22 @@ public class User {
         this.createdAt = createdAt;
     }
 
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    public Long getQuotaBytes() {
+        return quotaBytes;
+    }
+
+    public void setQuotaBytes(Long quotaBytes) {
+        this.quotaBytes = quotaBytes;
+    }
+
     public List<UserFile> getFiles() {
         return files;
     }
@@ -1,13 +1,16 @@
 package araslanov.ruslan.cloudserver.entity;
 
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
 import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "user_files")
 public class UserFile {
+    // Пул из 50 id на одно обращение к последовательности; с IDENTITY Hibernate не может батчить INSERT
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "user_files_seq")
+    @SequenceGenerator(name = "user_files_seq", sequenceName = "user_files_id_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -26,6 +29,18 @@ public class UserFile {
     @Column(name = "upload_date")
     private LocalDateTime uploadDate = LocalDateTime.now();
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    // Кодек, которым содержимое сжато в хранилище
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private ContentCodec codec = ContentCodec.IDENTITY;
+
+    // Не null — файл в корзине: из списка и проверок имени он исчезает, байты удаляет TrashPurger
+    @Column(name = "deleted_at")
+    private LocalDateTime deletedAt;
+
     public UserFile() {}
 
     public UserFile(User user, String filename, String filePath, Long size) {
@@ -82,4 +97,28 @@ public class UserFile {
     public void setUploadDate(LocalDateTime uploadDate) {
         this.uploadDate = uploadDate;
     }
-}
\ No newline at end of file
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public ContentCodec getCodec() {
+        return codec;
+    }
+
+    public void setCodec(ContentCodec codec) {
+        this.codec = codec;
+    }
+
+    public LocalDateTime getDeletedAt() {
+        return deletedAt;
+    }
+
+    public void setDeletedAt(LocalDateTime deletedAt) {
+        this.deletedAt = deletedAt;
+    }
+}
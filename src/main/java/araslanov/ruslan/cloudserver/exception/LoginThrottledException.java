@@ -0,0 +1,7 @@
+package araslanov.ruslan.cloudserver.exception;
+
+public class LoginThrottledException extends RuntimeException {
+    public LoginThrottledException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package araslanov.ruslan.cloudserver.exception;
+
+public class QuotaExceededException extends RuntimeException {
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,50 @@
+package araslanov.ruslan.cloudserver.metrics;
+
+import araslanov.ruslan.cloudserver.security.JwtUtil;
+import araslanov.ruslan.cloudserver.security.PasswordHashingExecutor;
+import araslanov.ruslan.cloudserver.security.TokenDenylist;
+import araslanov.ruslan.cloudserver.service.UserDetailsServiceImpl;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+// Кэши аутентификации, очередь BCrypt и размер denylist
+@Component
+public class SecurityMetrics implements MeterBinder {
+
+    private final UserDetailsServiceImpl userDetailsService;
+    private final JwtUtil jwtUtil;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final TokenDenylist tokenDenylist;
+
+    public SecurityMetrics(UserDetailsServiceImpl userDetailsService,
+                           JwtUtil jwtUtil,
+                           PasswordHashingExecutor hashingExecutor,
+                           TokenDenylist tokenDenylist) {
+        this.userDetailsService = userDetailsService;
+        this.jwtUtil = jwtUtil;
+        this.hashingExecutor = hashingExecutor;
+        this.tokenDenylist = tokenDenylist;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, userDetailsService.getPrincipalCache(), "principals");
+        CaffeineCacheMetrics.monitor(registry, jwtUtil.getVerifiedTokens(), "verified-tokens");
+
+        Gauge.builder("cloud.security.password.hashing.queue", hashingExecutor, PasswordHashingExecutor::getQueueDepth)
+                .description("Password hashing tasks waiting for a thread")
+                .baseUnit(BaseUnits.TASKS)
+                .register(registry);
+        Gauge.builder("cloud.security.password.hashing.active", hashingExecutor, PasswordHashingExecutor::getActiveCount)
+                .description("Password hashing tasks running")
+                .baseUnit(BaseUnits.THREADS)
+                .register(registry);
+        Gauge.builder("cloud.security.revoked.tokens", tokenDenylist, TokenDenylist::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+    }
+}
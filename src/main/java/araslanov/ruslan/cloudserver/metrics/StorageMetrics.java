@@ -0,0 +1,67 @@
+package araslanov.ruslan.cloudserver.metrics;
+
+import araslanov.ruslan.cloudserver.service.ContentCache;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Кэш содержимого; для локального хранилища ещё свободное место на томе
+@Component
+public class StorageMetrics implements MeterBinder {
+
+    private final StorageBackend storageBackend;
+    private final ContentCache contentCache;
+
+    public StorageMetrics(StorageBackend storageBackend, ContentCache contentCache) {
+        this.storageBackend = storageBackend;
+        this.contentCache = contentCache;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        // Доля попаданий — из cache.gets с тегом result=hit/miss
+        CaffeineCacheMetrics.monitor(registry, contentCache.getCache(), "file-content");
+        Gauge.builder("cloud.storage.cache.resident", contentCache, ContentCache::getResidentBytes)
+                .description("Off-heap bytes held by the file content cache")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+
+        if (!(storageBackend instanceof LocalStorageBackend local)) {
+            return;
+        }
+
+        Path root = local.getRoot();
+        Gauge.builder("cloud.storage.root.usable", root, StorageMetrics::usableSpace)
+                .description("Usable space on the storage root volume")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("cloud.storage.root.total", root, StorageMetrics::totalSpace)
+                .description("Total space on the storage root volume")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+    }
+
+    static double usableSpace(Path root) {
+        try {
+            return Files.getFileStore(root).getUsableSpace();
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+
+    static double totalSpace(Path root) {
+        try {
+            return Files.getFileStore(root).getTotalSpace();
+        } catch (IOException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package araslanov.ruslan.cloudserver.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики переданных байт. LongAdder не выделяет память и не создаёт конкуренции
+// на общей ячейке, поэтому его можно дёргать из циклов копирования; Micrometer читает сумму при сборе
+@Component
+public class TransferMetrics implements MeterBinder {
+
+    private final LongAdder uploadedBytes = new LongAdder();
+    private final LongAdder downloadedBytes = new LongAdder();
+    private final LongAdder uploads = new LongAdder();
+    private final LongAdder downloads = new LongAdder();
+
+    public void recordUpload(long bytes) {
+        uploads.increment();
+        uploadedBytes.add(bytes);
+    }
+
+    public void recordDownloadStarted() {
+        downloads.increment();
+    }
+
+    public void recordDownloaded(long bytes) {
+        downloadedBytes.add(bytes);
+    }
+
+    public long getUploadedBytes() {
+        return uploadedBytes.sum();
+    }
+
+    public long getDownloadedBytes() {
+        return downloadedBytes.sum();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("cloud.storage.upload.bytes", uploadedBytes, LongAdder::sum)
+                .description("Bytes received from clients")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("cloud.storage.download.bytes", downloadedBytes, LongAdder::sum)
+                .description("Bytes sent to clients")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        FunctionCounter.builder("cloud.storage.uploads", uploads, LongAdder::sum)
+                .description("Completed upload streams")
+                .register(registry);
+        FunctionCounter.builder("cloud.storage.downloads", downloads, LongAdder::sum)
+                .description("Started download streams")
+                .register(registry);
+    }
+}
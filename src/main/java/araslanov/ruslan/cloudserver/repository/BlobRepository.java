@@ -0,0 +1,40 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import araslanov.ruslan.cloudserver.entity.Blob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    // Строка блокируется до конца транзакции, поэтому параллельное удаление последней ссылки ждёт нас
+    @Modifying
+    @Query(value = "INSERT INTO blobs (hash, file_path, size, ref_count, created_at, codec) " +
+            "VALUES (:hash, :filePath, :size, 1, CURRENT_TIMESTAMP, :codec) " +
+            "ON CONFLICT (hash) DO UPDATE SET ref_count = blobs.ref_count + 1",
+            nativeQuery = true)
+    int acquire(@Param("hash") String hash, @Param("filePath") String filePath, @Param("size") long size,
+                @Param("codec") String codec);
+
+    @Modifying
+    @Query("update Blob b set b.refCount = b.refCount + 1 where b.hash = :hash and b.size = :size")
+    int incrementRefCount(@Param("hash") String hash, @Param("size") long size);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from Blob b where b.hash = :hash")
+    Optional<Blob> findByHashForUpdate(@Param("hash") String hash);
+
+    List<Blob> findByHashGreaterThanOrderByHash(String hash, Pageable pageable);
+
+    @Query("select b.filePath from Blob b where b.filePath in :paths")
+    List<String> findExistingFilePaths(@Param("paths") Collection<String> paths);
+}
@@ -0,0 +1,7 @@
+package araslanov.ruslan.cloudserver.repository;
+
+// Проекция для сверки хранилища с БД: id для курсора и путь к содержимому
+public interface FileLocation {
+    Long getId();
+    String getFilePath();
+}
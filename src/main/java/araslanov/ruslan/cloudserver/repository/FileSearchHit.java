@@ -0,0 +1,7 @@
+package araslanov.ruslan.cloudserver.repository;
+
+// Проекция для поиска по имени: только то, что попадает в ответ
+public interface FileSearchHit {
+    String getFilename();
+    Long getSize();
+}
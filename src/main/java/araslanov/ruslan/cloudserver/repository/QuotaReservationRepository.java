@@ -0,0 +1,22 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import araslanov.ruslan.cloudserver.entity.QuotaReservation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+
+@Repository
+public interface QuotaReservationRepository extends JpaRepository<QuotaReservation, String> {
+    @Modifying
+    @Query("DELETE FROM QuotaReservation r WHERE r.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    // Срок резерва только продлевается: у резерва upload-сессии он равен сроку жизни сессии
+    @Modifying
+    @Query("UPDATE QuotaReservation r SET r.bytes = r.bytes + :bytes, " +
+            "r.expiresAt = CASE WHEN r.expiresAt < :expiresAt THEN :expiresAt ELSE r.expiresAt END WHERE r.id = :id")
+    int addBytes(@Param("id") String id, @Param("bytes") long bytes, @Param("expiresAt") LocalDateTime expiresAt);
+}
@@ -0,0 +1,11 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import araslanov.ruslan.cloudserver.entity.UploadSessionPart;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.util.List;
+
+@Repository
+public interface UploadSessionPartRepository extends JpaRepository<UploadSessionPart, UploadSessionPart.PartId> {
+    List<UploadSessionPart> findBySessionIdOrderByPartNumber(String sessionId);
+}
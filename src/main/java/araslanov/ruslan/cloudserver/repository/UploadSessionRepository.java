@@ -0,0 +1,15 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import araslanov.ruslan.cloudserver.entity.UploadSession;
+import araslanov.ruslan.cloudserver.entity.User;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, String> {
+    Optional<UploadSession> findByIdAndUser(String id, User user);
+    List<UploadSession> findByExpiresAtBefore(LocalDateTime time);
+}
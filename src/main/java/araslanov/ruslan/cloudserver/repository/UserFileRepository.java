@@ -2,15 +2,142 @@ package araslanov.ruslan.cloudserver.repository;
 
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.entity.UserFile;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserFileRepository extends JpaRepository<UserFile, Long> {
     List<UserFile> findByUserOrderByUploadDateDesc(User user);
-    Optional<UserFile> findByUserAndFilename(User user, String filename);
-    boolean existsByUserAndFilename(User user, String filename);
+
+    // Все выборки по имени и листинг — только живые файлы: условие на deleted_at совпадает
+    // с частичными индексами, строки из корзины в них не попадают
+    @Query("select f from UserFile f where f.user = :user and f.filename = :filename and f.deletedAt is null")
+    Optional<UserFile> findByUserAndFilename(@Param("user") User user, @Param("filename") String filename);
+
+    @Query("select count(f) > 0 from UserFile f where f.user = :user and f.filename = :filename " +
+            "and f.deletedAt is null")
+    boolean existsByUserAndFilename(@Param("user") User user, @Param("filename") String filename);
+
     void deleteByUserAndFilename(User user, String filename);
+
+    List<UserFile> findByIdGreaterThanAndContentHashIsNullOrderById(Long id, Pageable pageable);
+
+    // Keyset-пагинация по индексу (user_id, upload_date DESC, id DESC): LIMIT уходит в SQL
+    @Query("select f.id as id, f.filename as filename, f.size as size, f.uploadDate as uploadDate " +
+            "from UserFile f where f.user = :user and f.deletedAt is null order by f.uploadDate desc, f.id desc")
+    List<UserFileSummary> findFirstPage(@Param("user") User user, Pageable pageable);
+
+    @Query("select f.id as id, f.filename as filename, f.size as size, f.uploadDate as uploadDate " +
+            "from UserFile f where f.user = :user and f.deletedAt is null and (f.uploadDate < :uploadDate " +
+            "or (f.uploadDate = :uploadDate and f.id < :id)) order by f.uploadDate desc, f.id desc")
+    List<UserFileSummary> findPageAfter(@Param("user") User user, @Param("uploadDate") LocalDateTime uploadDate,
+                                        @Param("id") Long id, Pageable pageable);
+
+    @Query("select count(f) > 0 from UserFile f where f.user = :user and f.contentHash = :hash " +
+            "and f.deletedAt is null")
+    boolean existsByUserAndContentHash(@Param("user") User user, @Param("hash") String hash);
+
+    @Query("select f from UserFile f where f.user = :user and f.filename in :filenames and f.deletedAt is null")
+    List<UserFile> findByUserAndFilenameIn(@Param("user") User user, @Param("filenames") Collection<String> filenames);
+
+    @Query("select f from UserFile f where f.user = :user and f.filename like :pattern escape '\\' " +
+            "and f.deletedAt is null")
+    List<UserFile> findByUserAndFilenameLike(@Param("user") User user, @Param("pattern") String pattern,
+                                             Pageable pageable);
+
+    @Query("select f.filename from UserFile f where f.user = :user and f.filename in :filenames " +
+            "and f.deletedAt is null")
+    List<String> findExistingFilenames(@Param("user") User user, @Param("filenames") Collection<String> filenames);
+
+    @Modifying
+    @Query("delete from UserFile f where f.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select count(f) from UserFile f where f.user = :user and f.filename like :pattern escape '\\' " +
+            "and f.deletedAt is null")
+    long countByPrefix(@Param("user") User user, @Param("pattern") String pattern);
+
+    // Перенос по префиксу в два UPDATE; :pattern — экранированный "префикс%". Первый заменяет префикс на "/",
+    // которого не бывает в живых именах: временные имена не совпадают ни с чьими, и перенос "a" -> "ab" не падает
+    // на "a1" -> "ab1", пока сама "ab1" ещё не стала "abb1". Второй ставит вместо "/" новый префикс
+    @Modifying
+    @Query("update UserFile f set f.filename = concat('/', substring(f.filename, :fromLength + 1)) " +
+            "where f.user = :user and f.filename like :pattern escape '\\' and f.deletedAt is null")
+    int stripFilenamePrefix(@Param("user") User user, @Param("pattern") String pattern,
+                            @Param("fromLength") int fromLength);
+
+    @Modifying
+    @Query("update UserFile f set f.filename = concat(:toPrefix, substring(f.filename, 2)) " +
+            "where f.user = :user and f.filename like '/%' and f.deletedAt is null")
+    int applyFilenamePrefix(@Param("user") User user, @Param("toPrefix") String toPrefix);
+
+    // Сколько файлов после переноса столкнутся с уже существующими или получат недопустимое имя.
+    // Файлы, которые переносятся сами, помехой не считаются: их имена освобождает первый UPDATE переноса
+    @Query("select count(f) from UserFile f where f.user = :user and f.filename like :pattern escape '\\' " +
+            "and f.deletedAt is null and (" +
+            "length(f.filename) = :fromLength or length(f.filename) - :fromLength + length(:toPrefix) > 255 " +
+            "or concat(:toPrefix, substring(f.filename, :fromLength + 1)) like '%..%' " +
+            "or exists (select 1 from UserFile g where g.user = :user and g.deletedAt is null " +
+            "and g.filename not like :pattern escape '\\' " +
+            "and g.filename = concat(:toPrefix, substring(f.filename, :fromLength + 1))))")
+    long countPrefixConflicts(@Param("user") User user, @Param("pattern") String pattern,
+                              @Param("fromLength") int fromLength, @Param("toPrefix") String toPrefix);
+
+    @Modifying
+    @Query("update UserFile f set f.deletedAt = :deletedAt where f.id in :ids and f.deletedAt is null")
+    int markDeleted(@Param("ids") Collection<Long> ids, @Param("deletedAt") LocalDateTime deletedAt);
+
+    // Корзина: файлы, удалённые после :since, то есть ещё доступные для восстановления
+    @Query("select f from UserFile f where f.user = :user and f.deletedAt > :since " +
+            "order by f.deletedAt desc, f.id desc")
+    List<UserFile> findTrash(@Param("user") User user, @Param("since") LocalDateTime since, Pageable pageable);
+
+    @Query("select f from UserFile f where f.user = :user and f.filename = :filename and f.deletedAt > :since " +
+            "order by f.deletedAt desc, f.id desc")
+    List<UserFile> findTrashedByFilename(@Param("user") User user, @Param("filename") String filename,
+                                         @Param("since") LocalDateTime since, Pageable pageable);
+
+    // Вся корзина пользователя, включая ещё не удалённые просроченные записи; :filename null — все имена
+    @Query("select f from UserFile f where f.user = :user and f.deletedAt is not null " +
+            "and (:filename is null or f.filename = :filename) order by f.deletedAt, f.id")
+    List<UserFile> findTrashedByUser(@Param("user") User user, @Param("filename") String filename,
+                                     Pageable pageable);
+
+    // Просроченные записи корзины для физического удаления, по индексу на deleted_at
+    @Query("select f from UserFile f where f.deletedAt < :before order by f.deletedAt, f.id")
+    List<UserFile> findTrashedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Подстрока без учёта регистра по триграммному индексу; первыми точное совпадение и префикс,
+    // затем более короткие имена и раньше загруженные. Порядок полный, поэтому страницы по смещению
+    // согласованы; top-N сортировка держит в памяти только :offset + :limit строк
+    @Query(value = "SELECT filename, size FROM user_files WHERE user_id = :userId AND deleted_at IS NULL " +
+            "AND filename ILIKE :pattern ESCAPE '\\' " +
+            "ORDER BY CASE WHEN lower(filename) = :query THEN 0 " +
+            "WHEN lower(filename) LIKE :prefix ESCAPE '\\' THEN 1 ELSE 2 END, " +
+            "length(filename), id LIMIT :limit OFFSET :offset",
+            nativeQuery = true)
+    List<FileSearchHit> searchByFilename(@Param("userId") Long userId, @Param("query") String query,
+                                         @Param("pattern") String pattern, @Param("prefix") String prefix,
+                                         @Param("limit") int limit, @Param("offset") int offset);
+
+    // Курсор по id для обхода всей таблицы пачками
+    @Query("select f.id as id, f.filePath as filePath from UserFile f where f.id > :afterId order by f.id")
+    List<FileLocation> findLocationsAfter(@Param("afterId") Long afterId, Pageable pageable);
+
+    @Query("select f.filePath from UserFile f where f.filePath in :paths")
+    List<String> findExistingFilePaths(@Param("paths") Collection<String> paths);
+
+    @Transactional
+    @Modifying
+    @Query("update UserFile f set f.filePath = :newPath where f.id = :id and f.filePath = :oldPath")
+    int updateFilePath(@Param("id") Long id, @Param("oldPath") String oldPath, @Param("newPath") String newPath);
 }
\ No newline at end of file
@@ -0,0 +1,11 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import java.time.LocalDateTime;
+
+// Проекция для списка файлов: только колонки, нужные ответу и курсору
+public interface UserFileSummary {
+    Long getId();
+    String getFilename();
+    Long getSize();
+    LocalDateTime getUploadDate();
+}
@@ -2,11 +2,46 @@ package araslanov.ruslan.cloudserver.repository;
 
 import araslanov.ruslan.cloudserver.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByLogin(String login);
     boolean existsByLogin(String login);
-}
\ No newline at end of file
+
+    @Query("SELECT COALESCE(u.quotaBytes, :defaultQuota) - u.usedBytes - u.reservedBytes FROM User u WHERE u.id = :id")
+    Optional<Long> findAvailableBytes(@Param("id") Long id, @Param("defaultQuota") long defaultQuota);
+
+    // Условный UPDATE: проверка остатка и резерв — одна атомарная операция над строкой пользователя
+    @Modifying
+    @Query("UPDATE User u SET u.reservedBytes = u.reservedBytes + :bytes " +
+            "WHERE u.id = :id AND u.usedBytes + u.reservedBytes + :bytes <= COALESCE(u.quotaBytes, :defaultQuota)")
+    int reserveBytes(@Param("id") Long id, @Param("bytes") long bytes, @Param("defaultQuota") long defaultQuota);
+
+    @Modifying
+    @Query("UPDATE User u SET u.reservedBytes = u.reservedBytes - :reserved, u.usedBytes = u.usedBytes + :used " +
+            "WHERE u.id = :id")
+    int applyUsage(@Param("id") Long id, @Param("reserved") long reserved, @Param("used") long used);
+
+    // Блокирует пачку пользователей, чтобы параллельные загрузки не меняли счётчики во время пересчёта
+    @Query(value = "SELECT id FROM users WHERE id > :afterId ORDER BY id LIMIT :limit FOR UPDATE", nativeQuery = true)
+    List<Long> lockIdsAfter(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    @Modifying
+    @Query(value = "UPDATE users SET " +
+            "used_bytes = (SELECT COALESCE(SUM(f.size), 0) FROM user_files f WHERE f.user_id = users.id), " +
+            "reserved_bytes = (SELECT COALESCE(SUM(r.bytes), 0) FROM quota_reservations r " +
+            "WHERE r.user_id = users.id AND r.expires_at > :now) " +
+            "WHERE id BETWEEN :fromId AND :toId AND (" +
+            "used_bytes <> (SELECT COALESCE(SUM(f.size), 0) FROM user_files f WHERE f.user_id = users.id) OR " +
+            "reserved_bytes <> (SELECT COALESCE(SUM(r.bytes), 0) FROM quota_reservations r " +
+            "WHERE r.user_id = users.id AND r.expires_at > :now))",
+            nativeQuery = true)
+    int reconcileUsage(@Param("fromId") long fromId, @Param("toId") long toId, @Param("now") LocalDateTime now);
+}
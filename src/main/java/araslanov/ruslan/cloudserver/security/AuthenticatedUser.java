@@ -0,0 +1,62 @@
+package araslanov.ruslan.cloudserver.security;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.util.Collection;
+import java.util.List;
+
+// Principal в SecurityContext: несёт id пользователя, чтобы контроллерам не нужно было искать его по логину
+public class AuthenticatedUser implements UserDetails {
+
+    private final Long id;
+    private final String login;
+    private final String password;
+    private final boolean enabled;
+
+    public AuthenticatedUser(Long id, String login, String password, boolean enabled) {
+        this.id = id;
+        this.login = login;
+        this.password = password;
+        this.enabled = enabled;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    @Override
+    public String getUsername() {
+        return login;
+    }
+
+    @Override
+    public String getPassword() {
+        return password;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return List.of();
+    }
+
+    @Override
+    public boolean isAccountNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isAccountNonLocked() {
+        return true;
+    }
+
+    @Override
+    public boolean isCredentialsNonExpired() {
+        return true;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+}
@@ -1,16 +1,30 @@
 package araslanov.ruslan.cloudserver.security;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.function.Function;
 
 @Component
 public class JwtUtil {
@@ -21,33 +35,105 @@ public class JwtUtil {
     @Value("${cloud.security.jwt.expiration}")
     private Long expiration;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes());
-    }
+    // kid, которым подписываются новые токены
+    @Value("${cloud.security.jwt.kid:default}")
+    private String activeKeyId = "default";
 
-    public String extractUsername(String token) {
-        return extractClaim(token, Claims::getSubject);
+    // Ключи, которые ещё принимаются после ротации: "kid1=secret1,kid2=secret2"
+    @Value("${cloud.security.jwt.retired-keys:}")
+    private String retiredKeys = "";
+
+    @Value("${cloud.security.jwt.cache.max-size:10000}")
+    private long cacheMaxSize = 10000;
+
+    @Value("${cloud.security.jwt.cache.max-ttl:5m}")
+    private Duration cacheMaxTtl = Duration.ofMinutes(5);
+
+    private final Map<String, SecretKey> keys = new HashMap<>();
+    private SecretKey signingKey;
+    private JwtParser parser;
+    private Cache<String, VerifiedToken> verifiedTokens;
+
+    // Ключи и парсер строятся один раз: JwtParser потокобезопасен
+    @PostConstruct
+    public void init() {
+        signingKey = Keys.hmacShaKeyFor(secret.getBytes());
+        keys.put(activeKeyId, signingKey);
+
+        for (String entry : retiredKeys.split(",")) {
+            int separator = entry.indexOf('=');
+            if (separator > 0) {
+                keys.put(entry.substring(0, separator).trim(),
+                        Keys.hmacShaKeyFor(entry.substring(separator + 1).trim().getBytes()));
+            }
+        }
+
+        parser = Jwts.parser()
+                .keyLocator(new LocatorAdapter<Key>() {
+                    @Override
+                    protected Key locate(JwsHeader header) {
+                        // Токены, выпущенные до появления kid, проверяются текущим ключом
+                        String keyId = header.getKeyId();
+                        SecretKey key = keys.get(keyId == null ? activeKeyId : keyId);
+                        if (key == null) {
+                            throw new JwtException("Unknown signing key: " + keyId);
+                        }
+                        return key;
+                    }
+                })
+                .build();
+
+        // Запись живёт не дольше срока действия самого токена
+        verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(cacheMaxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        Duration left = Duration.between(Instant.now(), value.expiresAt());
+                        return Math.max(0, Math.min(left.toNanos(), cacheMaxTtl.toNanos()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
     }
 
-    public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+    // Проверяет подпись и срок один раз; повторные запросы с тем же токеном берутся из кэша.
+    // Бросает JwtException, если токен невалиден
+    public VerifiedToken verify(String token) {
+        String digest = digest(token);
+        VerifiedToken cached = verifiedTokens.getIfPresent(digest);
+        if (cached != null && !cached.isExpired(Instant.now())) {
+            return cached;
+        }
+
+        Claims claims = parser.parseSignedClaims(token).getPayload();
+        VerifiedToken verified = new VerifiedToken(claims.getSubject(), claims.getExpiration().toInstant(), digest);
+        verifiedTokens.put(digest, verified);
+        return verified;
     }
 
-    public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
-        final Claims claims = extractAllClaims(token);
-        return claimsResolver.apply(claims);
+    public Cache<String, VerifiedToken> getVerifiedTokens() {
+        return verifiedTokens;
     }
 
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+    public String extractUsername(String token) {
+        return verify(token).username();
     }
 
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    public Date extractExpiration(String token) {
+        return Date.from(verify(token).expiresAt());
     }
 
     public String generateToken(String username) {
@@ -57,16 +143,27 @@ public class JwtUtil {
 
     private String createToken(Map<String, Object> claims, String subject) {
         return Jwts.builder()
+                .header().keyId(activeKeyId).and()
                 .claims(claims)
                 .subject(subject)
                 .issuedAt(new Date(System.currentTimeMillis()))
                 .expiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getSigningKey())
+                .signWith(signingKey)
                 .compact();
     }
 
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        VerifiedToken verified = verify(token);
+        return verified.username().equals(userDetails.getUsername()) && !verified.isExpired(Instant.now());
+    }
+
+    // В кэше хранится хэш, а не сам токен
+    String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,18 @@
+package araslanov.ruslan.cloudserver.security;
+
+import java.time.Instant;
+import java.util.List;
+
+// Хранилище отозванных токенов: переживает рестарт и синхронизирует узлы между собой
+public interface RevocationStore {
+
+    void save(String digest, Instant expiresAt);
+
+    // Отозванные после указанного момента и ещё не истёкшие
+    List<RevokedTokenEntry> findRevokedSince(Instant since, Instant now);
+
+    void deleteExpired(Instant now);
+
+    record RevokedTokenEntry(String digest, Instant expiresAt) {
+    }
+}
@@ -0,0 +1,136 @@
+package araslanov.ruslan.cloudserver.security;
+
+import araslanov.ruslan.cloudserver.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Отозванные токены в памяти. Хэши разложены по корзинам по времени истечения:
+// истёкшая корзина удаляется целиком. Bloom-фильтр отвечает "нет" для почти всех запросов без поиска по корзинам
+@Component
+public class TokenDenylist {
+
+    // Запас на расхождение часов между узлами при синхронизации
+    private static final Duration SYNC_OVERLAP = Duration.ofSeconds(30);
+
+    private final RevocationStore store;
+    private final long bucketWidthMillis;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+
+    // Ключ корзины — верхняя граница времени истечения её токенов
+    private final ConcurrentSkipListMap<Long, Set<String>> buckets = new ConcurrentSkipListMap<>();
+    private volatile BloomFilter bloomFilter;
+    private volatile Instant lastSync = Instant.EPOCH;
+    // Не synchronized: блокировка монитора закрепляет виртуальный поток за несущим
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public TokenDenylist(ObjectProvider<RevocationStore> store,
+                         @Value("${cloud.security.revocation.bucket-width:10m}") Duration bucketWidth,
+                         @Value("${cloud.security.revocation.expected-insertions:100000}") long expectedInsertions,
+                         @Value("${cloud.security.revocation.false-positive-rate:0.001}") double falsePositiveRate) {
+        this.store = store.getIfAvailable();
+        this.bucketWidthMillis = bucketWidth.toMillis();
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.bloomFilter = BloomFilter.create(expectedInsertions, falsePositiveRate);
+    }
+
+    @PostConstruct
+    public void init() {
+        sync();
+    }
+
+    public void revoke(VerifiedToken token) {
+        add(token.digest(), token.expiresAt());
+        if (store != null) {
+            store.save(token.digest(), token.expiresAt());
+        }
+    }
+
+    // O(1) для неотозванных токенов; число корзин ограничено сроком жизни токена / шириной корзины
+    public boolean isRevoked(String digest) {
+        if (!bloomFilter.mightContain(digest)) {
+            return false;
+        }
+        for (Set<String> bucket : buckets.values()) {
+            if (bucket.contains(digest)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public int size() {
+        return buckets.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @Scheduled(fixedDelayString = "${cloud.security.revocation.sync-interval-ms:5000}")
+    public void sync() {
+        Instant now = Instant.now();
+        if (store != null) {
+            try {
+                for (RevocationStore.RevokedTokenEntry entry : store.findRevokedSince(lastSync.minus(SYNC_OVERLAP), now)) {
+                    add(entry.digest(), entry.expiresAt());
+                }
+                lastSync = now;
+            } catch (RuntimeException e) {
+                System.err.println("Failed to sync revoked tokens: " + e.getMessage());
+            }
+        }
+        purgeExpired(now);
+    }
+
+    void purgeExpired(Instant now) {
+        writeLock.lock();
+        try {
+            ConcurrentNavigableMap<Long, Set<String>> expired = buckets.headMap(now.toEpochMilli(), true);
+            if (expired.isEmpty()) {
+                return;
+            }
+            expired.clear();
+
+            // Из Bloom-фильтра нельзя удалять, поэтому он пересобирается по оставшимся корзинам
+            int remaining = size();
+            BloomFilter rebuilt = BloomFilter.create(Math.max(expectedInsertions, remaining * 2L), falsePositiveRate);
+            for (Set<String> bucket : buckets.values()) {
+                bucket.forEach(rebuilt::put);
+            }
+            bloomFilter = rebuilt;
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (store != null) {
+            try {
+                store.deleteExpired(now);
+            } catch (RuntimeException e) {
+                System.err.println("Failed to delete expired revoked tokens: " + e.getMessage());
+            }
+        }
+    }
+
+    private void add(String digest, Instant expiresAt) {
+        long expiresAtMillis = expiresAt.toEpochMilli();
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        long bucket = (expiresAtMillis + bucketWidthMillis - 1) / bucketWidthMillis * bucketWidthMillis;
+        writeLock.lock();
+        try {
+            buckets.computeIfAbsent(bucket, key -> ConcurrentHashMap.newKeySet()).add(digest);
+            bloomFilter.put(digest);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package araslanov.ruslan.cloudserver.security;
+
+import java.time.Instant;
+
+// Результат однократной проверки подписи и срока действия токена.
+// digest — SHA-256 токена, по нему токен ищется в кэше и в denylist
+public record VerifiedToken(String username, Instant expiresAt, String digest) {
+
+    public boolean isExpired(Instant now) {
+        return !expiresAt.isAfter(now);
+    }
+}
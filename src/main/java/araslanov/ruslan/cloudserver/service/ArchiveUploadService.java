@@ -0,0 +1,343 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.ArchiveEntryResult;
+import araslanov.ruslan.cloudserver.dto.ArchiveUploadResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.exception.QuotaExceededException;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.util.ArchiveReader;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.ZipException;
+
+// Распаковывает загружаемый архив по мере чтения тела запроса: каждая запись сразу уходит
+// в хранилище, имена проверяются пачками, по одному запросу на пачку. Распаковка идёт без транзакции,
+// записи о файлах сохраняются в конце одной короткой транзакцией
+@Service
+public class ArchiveUploadService {
+
+    // Ниже этого объёма коэффициент распаковки не проверяется: маленькие архивы из нулей легальны
+    private static final long RATIO_CHECK_MIN_BYTES = 1024 * 1024;
+
+    private final FileStorageService fileStorageService;
+    private final UserFileRepository fileRepository;
+    private final QuotaService quotaService;
+    private final TransactionTemplate transaction;
+    private final int maxEntries;
+    private final double maxRatio;
+    private final long maxExpandedSize;
+    private final int batchSize;
+
+    public ArchiveUploadService(FileStorageService fileStorageService,
+                                UserFileRepository fileRepository,
+                                QuotaService quotaService,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${cloud.storage.archive.upload.max-entries:10000}") int maxEntries,
+                                @Value("${cloud.storage.archive.upload.max-ratio:100}") double maxRatio,
+                                @Value("${cloud.storage.archive.upload.max-size:10GB}") DataSize maxExpandedSize,
+                                @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}") int batchSize) {
+        this.fileStorageService = fileStorageService;
+        this.fileRepository = fileRepository;
+        this.quotaService = quotaService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.maxEntries = maxEntries;
+        this.maxRatio = maxRatio;
+        this.maxExpandedSize = maxExpandedSize.toBytes();
+        this.batchSize = batchSize;
+    }
+
+    public ArchiveUploadResponse upload(User user, InputStream body) throws IOException {
+        CountingInputStream raw = new CountingInputStream(body);
+        ArchiveReader reader = ArchiveReader.open(raw);
+
+        // Резерв растёт порциями по мере распаковки, см. QuotaReservingInputStream
+        Extraction extraction = new Extraction(user, raw,
+                quotaService.reserveRemaining(user.getId(), maxExpandedSize));
+        try {
+            extraction.run(reader);
+        } catch (ZipException e) {
+            extraction.cleanup();
+            quotaService.release(extraction.reservation);
+            throw new IllegalArgumentException("Invalid archive: " + e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            extraction.cleanup();
+            quotaService.release(extraction.reservation);
+            throw e;
+        }
+
+        // Резерв переводится первым: если сохранение строк откатится, QuotaService.commit снимет его сам
+        try {
+            transaction.executeWithoutResult(status -> {
+                quotaService.commit(extraction.reservation, extraction.storedBytes);
+                extraction.save();
+            });
+        } catch (RuntimeException e) {
+            extraction.cleanup();
+            throw e;
+        }
+        return new ArchiveUploadResponse(extraction.results);
+    }
+
+    // Из пути внутри архива остаётся только имя: каталогов в хранилище нет
+    static String baseName(String path) {
+        int slash = Math.max(path.lastIndexOf('/'), path.lastIndexOf('\\'));
+        return path.substring(slash + 1);
+    }
+
+    // "report.pdf" -> "report (1).pdf"; основа имени укорачивается, чтобы не выйти за 255 символов
+    static String numberedName(String name, int number) {
+        int dot = name.lastIndexOf('.');
+        String base = dot <= 0 ? name : name.substring(0, dot);
+        String extension = dot <= 0 ? "" : name.substring(dot);
+        String suffix = " (" + number + ")";
+        int maxBase = Math.max(1, 255 - suffix.length() - extension.length());
+        if (base.length() > maxBase) {
+            base = base.substring(0, maxBase);
+        }
+        return base + suffix + extension;
+    }
+
+    private class Extraction {
+        private final User user;
+        private final CountingInputStream raw;
+        private QuotaService.Reservation reservation;
+        private final List<ArchiveEntryResult> results = new ArrayList<>();
+        private final List<PendingFile> pending = new ArrayList<>();
+        private final Set<String> usedNames = new HashSet<>();
+        private final List<UserFile> resolved = new ArrayList<>();
+        private final List<UserFile> stored = new ArrayList<>();
+        private long extractedBytes;
+        private long storedBytes;
+        private boolean ratioExceeded;
+
+        Extraction(User user, CountingInputStream raw, QuotaService.Reservation reservation) {
+            this.user = user;
+            this.raw = raw;
+            this.reservation = reservation;
+        }
+
+        void run(ArchiveReader reader) throws IOException {
+            int entries = 0;
+            ArchiveReader.Entry entry;
+            while ((entry = reader.next()) != null) {
+                if (entry.directory()) {
+                    continue;
+                }
+                if (++entries > maxEntries) {
+                    throw new IllegalArgumentException("Archive has too many entries, maximum is " + maxEntries);
+                }
+                if (!extract(entry, new RatioLimitInputStream(reader.content()))) {
+                    break;
+                }
+            }
+            flushPending();
+        }
+
+        // false — квота исчерпана, остаток архива не читается
+        private boolean extract(ArchiveReader.Entry entry, InputStream content) throws IOException {
+            String name = baseName(entry.name());
+            try {
+                fileStorageService.validateFilename(name);
+            } catch (IllegalArgumentException e) {
+                skip(entry, content, e.getMessage());
+                return true;
+            }
+
+            long limit = Math.min(fileStorageService.getMaxStreamSize(), maxExpandedSize - storedBytes);
+            QuotaReservingInputStream reserving = new QuotaReservingInputStream(content, quotaService, reservation,
+                    storedBytes, maxExpandedSize);
+            UserFile file;
+            try {
+                file = fileStorageService.storeContent(user, name, reserving, limit);
+            } catch (QuotaExceededException e) {
+                results.add(new ArchiveEntryResult(entry.name(), null, ArchiveEntryResult.SKIPPED, e.getMessage()));
+                return false;
+            } catch (MaxUploadSizeExceededException e) {
+                if (limit < fileStorageService.getMaxStreamSize()) {
+                    results.add(new ArchiveEntryResult(entry.name(), null, ArchiveEntryResult.SKIPPED,
+                            "Archive expanded size limit exceeded"));
+                    return false;
+                }
+                throw e;
+            } catch (IllegalArgumentException e) {
+                if (ratioExceeded) {
+                    throw e;
+                }
+                // Пустой файл: записи о нём не будет, как и при обычной загрузке
+                results.add(new ArchiveEntryResult(entry.name(), null, ArchiveEntryResult.SKIPPED, e.getMessage()));
+                return true;
+            } finally {
+                // Резерв мог вырасти и при ошибке: снимать или переводить надо уже его
+                reservation = reserving.getReservation();
+            }
+
+            stored.add(file);
+            storedBytes += file.getSize();
+
+            ArchiveEntryResult result = new ArchiveEntryResult(entry.name(), null, null, null);
+            results.add(result);
+            pending.add(new PendingFile(name, file, result));
+            if (pending.size() >= batchSize) {
+                flushPending();
+            }
+            return true;
+        }
+
+        private void skip(ArchiveReader.Entry entry, InputStream content, String reason) throws IOException {
+            // Пропущенная запись тоже дочитывается через проверку коэффициента распаковки
+            content.transferTo(OutputStream.nullOutputStream());
+            results.add(new ArchiveEntryResult(entry.name(), null, ArchiveEntryResult.SKIPPED, reason));
+        }
+
+        // Имена пачки проверяются одним запросом; при совпадении файл получает номер
+        private void flushPending() {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            List<PendingFile> unresolved = new ArrayList<>(pending);
+            while (!unresolved.isEmpty()) {
+                Set<String> candidates = new HashSet<>();
+                for (PendingFile file : unresolved) {
+                    while (usedNames.contains(file.candidate()) || !candidates.add(file.candidate())) {
+                        file.next();
+                    }
+                }
+
+                Set<String> existing = new HashSet<>(fileRepository.findExistingFilenames(user, candidates));
+                List<PendingFile> conflicting = new ArrayList<>();
+                for (PendingFile file : unresolved) {
+                    if (existing.contains(file.candidate())) {
+                        file.next();
+                        conflicting.add(file);
+                    } else {
+                        usedNames.add(file.candidate());
+                    }
+                }
+                unresolved = conflicting;
+            }
+
+            for (PendingFile file : pending) {
+                file.file.setFilename(file.candidate());
+                file.result.setFilename(file.candidate());
+                file.result.setStatus(file.number == 0 ? ArchiveEntryResult.ACCEPTED : ArchiveEntryResult.RENAMED);
+                resolved.add(file.file);
+            }
+            pending.clear();
+        }
+
+        // В транзакции загрузки: строки уходят пачками JDBC-батчем
+        void save() {
+            for (int from = 0; from < resolved.size(); from += batchSize) {
+                fileRepository.saveAll(resolved.subList(from, Math.min(from + batchSize, resolved.size())));
+            }
+            if (!resolved.isEmpty()) {
+                fileStorageService.listingChanged(user, resolved, List.of());
+            }
+        }
+
+        // Записанное содержимое (и ссылки на блобы) больше не нужно: строки о файлах не сохранились
+        void cleanup() {
+            stored.forEach(fileStorageService::discardContent);
+        }
+
+        // Защита от zip-бомб: распакованный объём не может обгонять прочитанный в maxRatio раз
+        private class RatioLimitInputStream extends FilterInputStream {
+
+            RatioLimitInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b != -1) {
+                    count(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = super.read(b, off, len);
+                if (read > 0) {
+                    count(read);
+                }
+                return read;
+            }
+
+            private void count(int read) {
+                extractedBytes += read;
+                if (extractedBytes > RATIO_CHECK_MIN_BYTES && extractedBytes > maxRatio * raw.getCount()) {
+                    ratioExceeded = true;
+                    throw new IllegalArgumentException("Archive expansion ratio exceeds limit");
+                }
+            }
+        }
+    }
+
+    private static class PendingFile {
+        private final String name;
+        private final UserFile file;
+        private final ArchiveEntryResult result;
+        private int number;
+
+        PendingFile(String name, UserFile file, ArchiveEntryResult result) {
+            this.name = name;
+            this.file = file;
+            this.result = result;
+        }
+
+        String candidate() {
+            return number == 0 ? name : numberedName(name, number);
+        }
+
+        void next() {
+            number++;
+        }
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count += read;
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.Blob;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+@Service
+@Transactional
+public class BlobService {
+
+    private static final String BLOBS_DIRECTORY = "blobs";
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+
+    private final StorageBackend storageBackend;
+    private final BlobRepository blobRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public BlobService(StorageBackend storageBackend, BlobRepository blobRepository,
+                       ApplicationEventPublisher eventPublisher) {
+        this.storageBackend = storageBackend;
+        this.blobRepository = blobRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Забирает подготовленный файл в хранилище либо добавляет ссылку на уже существующий блоб.
+    // Кодек берётся из блоба: если содержимое уже хранится, подготовленная копия выбрасывается
+    public Blob acquire(String hash, String stagedKey, long size, ContentCodec codec) throws IOException {
+        String blobKey = getBlobKey(hash);
+        blobRepository.acquire(hash, blobKey, size, codec.name());
+
+        if (storageBackend.stat(blobKey).isEmpty()) {
+            storageBackend.move(stagedKey, blobKey);
+            // Ключ блоба мог быть занят удалённым ранее содержимым с другим кодеком
+            eventPublisher.publishEvent(new StorageObjectChangedEvent(blobKey));
+        } else {
+            storageBackend.delete(stagedKey);
+        }
+
+        return blobRepository.findById(hash)
+                .orElseThrow(() -> new IllegalStateException("Blob disappeared: " + hash));
+    }
+
+    public Optional<Blob> acquireExisting(String hash, long size) {
+        if (blobRepository.incrementRefCount(hash, size) == 0) {
+            return Optional.empty();
+        }
+        return blobRepository.findById(hash);
+    }
+
+    public void release(String hash) throws IOException {
+        release(hash, 1);
+    }
+
+    // Снимает сразу несколько ссылок на блоб (пакетное удаление файлов с одинаковым содержимым)
+    public void release(String hash, int count) throws IOException {
+        Optional<Blob> found = blobRepository.findByHashForUpdate(hash);
+        if (found.isEmpty()) {
+            return;
+        }
+
+        Blob blob = found.get();
+        if (blob.getRefCount() > count) {
+            blob.setRefCount(blob.getRefCount() - count);
+            return;
+        }
+
+        // Файл удаляется под блокировкой строки, чтобы не задеть параллельную загрузку того же содержимого
+        blobRepository.delete(blob);
+        storageBackend.delete(blob.getFilePath());
+        eventPublisher.publishEvent(new StorageObjectChangedEvent(blob.getFilePath()));
+    }
+
+    public String normalizeHash(String hash) {
+        String normalized = hash == null ? "" : hash.trim().toLowerCase();
+        if (!SHA256_HEX.matcher(normalized).matches()) {
+            throw new IllegalArgumentException("Invalid SHA-256 hash: " + hash);
+        }
+        return normalized;
+    }
+
+    private String getBlobKey(String hash) {
+        return BLOBS_DIRECTORY + "/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash;
+    }
+}
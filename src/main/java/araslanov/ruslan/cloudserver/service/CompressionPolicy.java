@@ -0,0 +1,117 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.zip.Deflater;
+
+// Решает по первым блокам файла, стоит ли сжимать его при записи
+@Component
+public class CompressionPolicy {
+
+    // Сигнатуры форматов, которые уже сжаты: повторное сжатие только тратит CPU
+    private static final byte[][] COMPRESSED_SIGNATURES = {
+            {0x1f, (byte) 0x8b},                                   // gzip
+            {0x50, 0x4b, 0x03, 0x04},                              // zip, docx, xlsx, jar
+            {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd},                // zstd
+            {0x42, 0x5a, 0x68},                                    // bzip2
+            {(byte) 0xfd, 0x37, 0x7a, 0x58, 0x5a, 0x00},           // xz
+            {0x37, 0x7a, (byte) 0xbc, (byte) 0xaf, 0x27, 0x1c},    // 7z
+            {0x52, 0x61, 0x72, 0x21, 0x1a, 0x07},                  // rar
+            {(byte) 0x89, 0x50, 0x4e, 0x47},                       // png
+            {(byte) 0xff, (byte) 0xd8, (byte) 0xff},               // jpeg
+            {0x47, 0x49, 0x46, 0x38},                              // gif
+            {0x52, 0x49, 0x46, 0x46},                              // webp, avi, wav
+            {0x4f, 0x67, 0x67, 0x53},                              // ogg
+            {0x49, 0x44, 0x33},                                    // mp3
+            {0x1a, 0x45, (byte) 0xdf, (byte) 0xa3},                // mkv, webm
+    };
+
+    private final boolean enabled;
+    private final int sampleSize;
+    private final long minSize;
+    private final double maxRatio;
+    private final int level;
+
+    public CompressionPolicy(@Value("${cloud.storage.compression.enabled:false}") boolean enabled,
+                             @Value("${cloud.storage.compression.sample-size:64KB}") DataSize sampleSize,
+                             @Value("${cloud.storage.compression.min-size:1KB}") DataSize minSize,
+                             @Value("${cloud.storage.compression.max-ratio:0.9}") double maxRatio,
+                             @Value("${cloud.storage.compression.level:6}") int level) {
+        if (level < Deflater.BEST_SPEED || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.enabled = enabled;
+        this.sampleSize = (int) sampleSize.toBytes();
+        this.minSize = minSize.toBytes();
+        this.maxRatio = maxRatio;
+        this.level = level;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    // sample - начало файла; если файл короче sampleSize, это файл целиком
+    public ContentCodec chooseCodec(byte[] sample) {
+        if (!enabled || sample.length < minSize || hasCompressedSignature(sample)) {
+            return ContentCodec.IDENTITY;
+        }
+
+        // Пробное сжатие выборки на той же степени, с которой будет сжат весь файл
+        return compressedLength(sample) <= sample.length * maxRatio ? ContentCodec.GZIP : ContentCodec.IDENTITY;
+    }
+
+    // Достаточно первых 16 байт: проверяются только сигнатуры форматов
+    public boolean isAlreadyCompressed(byte[] sample) {
+        return hasCompressedSignature(sample);
+    }
+
+    private boolean hasCompressedSignature(byte[] sample) {
+        for (byte[] signature : COMPRESSED_SIGNATURES) {
+            if (startsWith(sample, signature, 0)) {
+                return true;
+            }
+        }
+        // mp4, mov, heic: "ftyp" со смещением 4
+        return startsWith(sample, new byte[]{0x66, 0x74, 0x79, 0x70}, 4);
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix, int offset) {
+        if (data.length < offset + prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[offset + i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long compressedLength(byte[] sample) {
+        Deflater deflater = new Deflater(level, true);
+        try {
+            deflater.setInput(sample);
+            deflater.finish();
+            byte[] output = new byte[8 * 1024];
+            long total = 0;
+            while (!deflater.finished()) {
+                total += deflater.deflate(output);
+            }
+            return total;
+        } finally {
+            deflater.end();
+        }
+    }
+}
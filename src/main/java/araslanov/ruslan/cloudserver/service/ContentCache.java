@@ -0,0 +1,146 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import araslanov.ruslan.cloudserver.util.BloomFilter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Содержимое небольших часто скачиваемых объектов в direct-буферах, вне heap.
+// Вытеснение — W-TinyLFU Caffeine с ограничением по байтам; перед ним doorkeeper:
+// объект загружается в кэш только со второго обращения, разовые скачивания память не занимают
+@Component
+public class ContentCache {
+
+    private static final double DOORKEEPER_FALSE_POSITIVE_RATE = 0.01;
+
+    private final StorageBackend storageBackend;
+    private final boolean enabled;
+    private final long maxEntrySize;
+    private final long doorkeeperSize;
+    private final Cache<String, ByteBuffer> cache;
+    private final AtomicLong doorkeeperInsertions = new AtomicLong();
+    private volatile BloomFilter doorkeeper;
+
+    public ContentCache(StorageBackend storageBackend,
+                        @Value("${cloud.storage.cache.enabled:true}") boolean enabled,
+                        @Value("${cloud.storage.cache.max-size:256MB}") DataSize maxSize,
+                        @Value("${cloud.storage.cache.max-entry-size:1MB}") DataSize maxEntrySize,
+                        @Value("${cloud.storage.cache.doorkeeper-size:100000}") long doorkeeperSize) {
+        this.storageBackend = storageBackend;
+        this.enabled = enabled;
+        this.maxEntrySize = Math.min(maxEntrySize.toBytes(), Integer.MAX_VALUE);
+        this.doorkeeperSize = doorkeeperSize;
+        this.cache = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<String, ByteBuffer>weigher((key, content) -> content.capacity())
+                .recordStats()
+                .build();
+        this.doorkeeper = BloomFilter.create(doorkeeperSize, DOORKEEPER_FALSE_POSITIVE_RATE);
+    }
+
+    public boolean isCacheable(long size) {
+        return enabled && size > 0 && size <= maxEntrySize;
+    }
+
+    // Только уже загруженное содержимое, без обращения к хранилищу; null — промах
+    public ByteBuffer getIfPresent(String key) {
+        if (!enabled) {
+            return null;
+        }
+        ByteBuffer content = cache.getIfPresent(key);
+        return content == null ? null : content.asReadOnlyBuffer();
+    }
+
+    // Первое обращение только отмечается в doorkeeper и возвращает null; со второго объект
+    // читается в кэш. Параллельные промахи по одному ключу ждут одну загрузку
+    public ByteBuffer admit(String key, long size) throws IOException {
+        if (!isCacheable(size)) {
+            return null;
+        }
+
+        BloomFilter current = doorkeeper;
+        if (!current.mightContain(key)) {
+            current.put(key);
+            // Как в TinyLFU: фильтр периодически сбрасывается, чтобы старая популярность не копилась
+            if (doorkeeperInsertions.incrementAndGet() == doorkeeperSize) {
+                doorkeeper = BloomFilter.create(doorkeeperSize, DOORKEEPER_FALSE_POSITIVE_RATE);
+                doorkeeperInsertions.set(0);
+            }
+            return null;
+        }
+
+        try {
+            return cache.get(key, k -> load(k, size)).asReadOnlyBuffer();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    // После коммита, чтобы параллельное скачивание не успело закэшировать старое содержимое
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onStorageObjectChanged(StorageObjectChangedEvent event) {
+        cache.invalidate(event.key());
+    }
+
+    public Cache<String, ByteBuffer> getCache() {
+        return cache;
+    }
+
+    public long getResidentBytes() {
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(0))
+                .orElse(0L);
+    }
+
+    private ByteBuffer load(String key, long size) {
+        ByteBuffer content = ByteBuffer.allocateDirect((int) size);
+        try {
+            storageBackend.transferTo(key, 0, size, new BufferChannel(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (content.hasRemaining()) {
+            throw new UncheckedIOException(new EOFException("File is shorter than expected"));
+        }
+        return content.flip();
+    }
+
+    private static class BufferChannel implements WritableByteChannel {
+        private final ByteBuffer target;
+
+        BufferChannel(ByteBuffer target) {
+            this.target = target;
+        }
+
+        @Override
+        public int write(ByteBuffer source) throws IOException {
+            int length = source.remaining();
+            if (length > target.remaining()) {
+                throw new IOException("File is longer than expected");
+            }
+            target.put(source);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
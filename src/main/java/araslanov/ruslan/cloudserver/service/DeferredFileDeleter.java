@@ -0,0 +1,100 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Удаляет объекты из хранилища после коммита транзакции и параллельно.
+// Если транзакция откатилась, файлы остаются на месте вместе с записями о них
+@Component
+public class DeferredFileDeleter {
+
+    private final StorageBackend storageBackend;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService timer;
+
+    public DeferredFileDeleter(StorageBackend storageBackend,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${cloud.storage.batch.delete-parallelism:4}") int parallelism) {
+        this.storageBackend = storageBackend;
+        this.eventPublisher = eventPublisher;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "file-delete-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "file-delete-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public void deleteAfterCommit(List<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            keys.forEach(this::delete);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                for (String key : keys) {
+                    executor.execute(() -> delete(key));
+                }
+            }
+        });
+    }
+
+    // Удаление через delay: чтение, начатое по старому ключу до того, как запись сменила путь, успевает
+    // закончиться. Ключи, не дождавшиеся остановки сервера, остаются сиротами для StorageReconciler
+    public void deleteLater(String key, Duration delay) {
+        if (delay.isZero() || delay.isNegative()) {
+            delete(key);
+            return;
+        }
+        timer.schedule(() -> executor.execute(() -> delete(key)), delay.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    private void delete(String key) {
+        try {
+            storageBackend.delete(key);
+            eventPublisher.publishEvent(new StorageObjectChangedEvent(key));
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not delete " + key + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        // Дожидаемся уже поставленных удалений, чтобы не оставлять мусор при остановке
+        timer.shutdownNow();
+        executor.shutdown();
+        executor.awaitTermination(30, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,32 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.UserFile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Публикуется при загрузке, удалении, восстановлении и переименовании, чтобы сменить версию списка файлов.
+// added и removed — что именно изменилось, чтобы индекс поиска обновился без перестроения;
+// null — изменения неизвестны (перенос по префиксу), индекс сбрасывается
+public record FileListChangedEvent(Long userId, List<AddedFile> added, List<Long> removed) {
+
+    public FileListChangedEvent(Long userId) {
+        this(userId, null, null);
+    }
+
+    // Строки уже сохранены: id назначены. Переименование — удаление и добавление того же id
+    public static FileListChangedEvent of(Long userId, List<UserFile> added, List<UserFile> removed) {
+        List<AddedFile> addedFiles = new ArrayList<>(added.size());
+        for (UserFile file : added) {
+            addedFiles.add(new AddedFile(file.getId(), file.getFilename(), file.getSize()));
+        }
+        List<Long> removedIds = new ArrayList<>(removed.size());
+        for (UserFile file : removed) {
+            removedIds.add(file.getId());
+        }
+        return new FileListChangedEvent(userId, addedFiles, removedIds);
+    }
+
+    public record AddedFile(Long id, String filename, long size) {
+    }
+}
@@ -0,0 +1,99 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Версия списка файлов пользователя в памяти узла: опрос /list без изменений отвечает 304, не обращаясь к БД.
+// Версия сбрасывается после коммита любого изменения списка, а также по истечении version-ttl — так
+// изменения, сделанные через другой узел, становятся видны не позже чем через ttl.
+// Сериализованные тела ответов кэшируются с ограничением по байтам
+@Component
+public class FileListingCache {
+
+    public record Listing(long version, byte[] body, String nextCursor) {
+    }
+
+    private record PageKey(Long userId, Integer limit, String cursor) {
+    }
+
+    private final FileStorageService fileStorageService;
+    private final ObjectWriter writer;
+    private final boolean bodyCacheEnabled;
+    private final Cache<Long, Long> versions;
+    private final Cache<PageKey, Listing> bodies;
+    // Случайное начало: версии разных узлов и запусков не совпадают, чужой ETag не даст ложный 304
+    private final AtomicLong lastVersion = new AtomicLong(ThreadLocalRandom.current().nextLong());
+
+    public FileListingCache(FileStorageService fileStorageService,
+                            ObjectMapper objectMapper,
+                            @Value("${cloud.storage.list.cache.enabled:true}") boolean bodyCacheEnabled,
+                            @Value("${cloud.storage.list.cache.max-size:64MB}") DataSize maxSize,
+                            @Value("${cloud.storage.list.cache.max-users:100000}") long maxUsers,
+                            @Value("${cloud.storage.list.cache.version-ttl:1m}") Duration versionTtl) {
+        this.fileStorageService = fileStorageService;
+        this.writer = objectMapper.writerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, FileInfoResponse.class));
+        this.bodyCacheEnabled = bodyCacheEnabled;
+        this.versions = Caffeine.newBuilder()
+                .maximumSize(maxUsers)
+                .expireAfterWrite(versionTtl)
+                .build();
+        this.bodies = Caffeine.newBuilder()
+                .maximumWeight(maxSize.toBytes())
+                .<PageKey, Listing>weigher((key, listing) -> listing.body().length)
+                .build();
+    }
+
+    public long currentVersion(Long userId) {
+        return versions.get(userId, id -> lastVersion.incrementAndGet());
+    }
+
+    public static String etagOf(long version) {
+        return "\"" + Long.toHexString(version) + "\"";
+    }
+
+    // Версию вызывающий берёт до чтения списка: изменение, закоммиченное между ними, сменит версию,
+    // и следующий опрос с этим ETag получит полный ответ
+    public Listing getListing(User user, Integer limit, String cursor, long version) throws IOException {
+        if (!bodyCacheEnabled) {
+            return load(user, limit, cursor, version);
+        }
+
+        PageKey key = new PageKey(user.getId(), limit, cursor);
+        Listing cached = bodies.getIfPresent(key);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+
+        Listing listing = load(user, limit, cursor, version);
+        bodies.put(key, listing);
+        return listing;
+    }
+
+    // После коммита, чтобы параллельный опрос не получил новую версию со старым содержимым
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFileListChanged(FileListChangedEvent event) {
+        versions.invalidate(event.userId());
+    }
+
+    private Listing load(User user, Integer limit, String cursor, long version) throws IOException {
+        FileListPage page = fileStorageService.getUserFiles(user, limit, cursor);
+        return new Listing(version, writer.writeValueAsBytes(page.getFiles()), page.getNextCursor());
+    }
+}
@@ -0,0 +1,334 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileSummary;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Триграммный индекс имён файлов в памяти узла. Строится в фоне при первом поиске пользователя
+// и после коммита изменения его списка обновляется на месте; пока индекс не готов, поиск идёт в БД.
+// Изменения через другой узел видны не позже чем через ttl
+@Component
+public class FileSearchIndex {
+
+    private static final int BUILD_BATCH_SIZE = 10000;
+    private static final int BUILD_QUEUE_SIZE = 1000;
+
+    private final UserFileRepository fileRepository;
+    private final boolean enabled;
+    private final Cache<Long, UserIndex> indexes;
+    private final ThreadPoolExecutor executor;
+
+    public FileSearchIndex(UserFileRepository fileRepository,
+                           @Value("${cloud.storage.search.memory.enabled:false}") boolean enabled,
+                           @Value("${cloud.storage.search.memory.max-files:5000000}") long maxFiles,
+                           @Value("${cloud.storage.search.memory.ttl:5m}") Duration ttl,
+                           @Value("${cloud.storage.search.memory.build-threads:2}") int buildThreads) {
+        this.fileRepository = fileRepository;
+        this.enabled = enabled;
+        // Вес — число файлов: память индекса растёт примерно линейно от него
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maxFiles)
+                .<Long, UserIndex>weigher((userId, index) -> Math.max(1, index.size()))
+                .expireAfterWrite(ttl)
+                .build();
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(buildThreads, buildThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(BUILD_QUEUE_SIZE),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "search-index-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // query уже в нижнем регистре; null — индекса пользователя ещё нет, искать надо в БД
+    public List<FileInfoResponse> search(User user, String query, int offset, int limit) {
+        if (!enabled) {
+            return null;
+        }
+
+        Long userId = user.getId();
+        UserIndex index = indexes.getIfPresent(userId);
+        if (index == null) {
+            UserIndex created = new UserIndex();
+            index = indexes.asMap().putIfAbsent(userId, created);
+            if (index == null) {
+                startBuild(user, created);
+                return null;
+            }
+        }
+        return index.isReady() ? index.search(query, offset, limit) : null;
+    }
+
+    // Сбрасывается индекс, если состав изменений неизвестен, он ещё строится (прочитанная им страница
+    // могла не увидеть изменение) или в нём накопилось слишком много удалённых записей.
+    // Вес в кэше пересчитывается при следующем построении
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onFileListChanged(FileListChangedEvent event) {
+        UserIndex index = indexes.getIfPresent(event.userId());
+        if (index == null) {
+            return;
+        }
+        if (event.added() == null || !index.apply(event.added(), event.removed())) {
+            indexes.asMap().remove(event.userId(), index);
+        }
+    }
+
+    private void startBuild(User user, UserIndex index) {
+        try {
+            executor.execute(() -> build(user, index));
+        } catch (RejectedExecutionException e) {
+            // Очередь построения заполнена: следующий поиск попробует снова
+            indexes.asMap().remove(user.getId(), index);
+        }
+    }
+
+    private void build(User user, UserIndex index) {
+        Long userId = user.getId();
+        try {
+            PageRequest page = PageRequest.of(0, BUILD_BATCH_SIZE);
+            List<FileListChangedEvent.AddedFile> all = new ArrayList<>();
+            List<UserFileSummary> files = fileRepository.findFirstPage(user, page);
+            while (true) {
+                for (UserFileSummary file : files) {
+                    all.add(new FileListChangedEvent.AddedFile(file.getId(), file.getFilename(), file.getSize()));
+                }
+                if (files.size() < BUILD_BATCH_SIZE) {
+                    break;
+                }
+                UserFileSummary last = files.get(files.size() - 1);
+                files = fileRepository.findPageAfter(user, last.getUploadDate(), last.getId(), page);
+            }
+
+            index.publish(all);
+            // replace пересчитывает вес; если за время построения список изменился, запись уже удалена
+            indexes.asMap().replace(userId, index, index);
+        } catch (RuntimeException e) {
+            indexes.asMap().remove(userId, index);
+            System.err.println("Could not build search index for user " + userId + ": " + e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Три символа упаковываются в long; строки короче трёх символов триграмм не дают
+    static long trigram(String value, int start) {
+        return ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+    }
+
+    // Порядок тот же, что у запроса в БД: точное совпадение, префикс, затем короче (в символах,
+    // как length() в PostgreSQL) и раньше загруженные. Сравнение по id не зависит от collation базы
+    static int rank(String lowerName, String query) {
+        if (lowerName.equals(query)) {
+            return 0;
+        }
+        return lowerName.startsWith(query) ? 1 : 2;
+    }
+
+    private static class UserIndex {
+        // Удалённые записи остаются в списках триграмм; когда их больше половины, индекс перестраивается
+        private static final int MIN_COMPACT_SIZE = 1000;
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private volatile boolean ready;
+        private int count;
+        private int removedCount;
+        private long[] fileIds = new long[0];
+        private String[] names = new String[0];
+        private String[] lowerNames = new String[0];
+        private int[] lengths = new int[0];
+        private long[] sizes = new long[0];
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Map<Long, Posting> postings = new HashMap<>();
+
+        boolean isReady() {
+            return ready;
+        }
+
+        int size() {
+            return ready ? count - removedCount : 0;
+        }
+
+        void publish(List<FileListChangedEvent.AddedFile> files) {
+            lock.writeLock().lock();
+            try {
+                grow(files.size());
+                for (FileListChangedEvent.AddedFile file : files) {
+                    add(file);
+                }
+                ready = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        // false — индекс пора перестроить
+        boolean apply(List<FileListChangedEvent.AddedFile> added, List<Long> removed) {
+            if (!ready) {
+                return false;
+            }
+            lock.writeLock().lock();
+            try {
+                removed.forEach(this::remove);
+                grow(count + added.size());
+                for (FileListChangedEvent.AddedFile file : added) {
+                    add(file);
+                }
+                return removedCount < MIN_COMPACT_SIZE || removedCount * 2 < count;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void grow(int capacity) {
+            if (capacity <= names.length) {
+                return;
+            }
+            int length = Math.max(capacity, names.length + (names.length >> 1));
+            fileIds = Arrays.copyOf(fileIds, length);
+            names = Arrays.copyOf(names, length);
+            lowerNames = Arrays.copyOf(lowerNames, length);
+            lengths = Arrays.copyOf(lengths, length);
+            sizes = Arrays.copyOf(sizes, length);
+        }
+
+        private void remove(Long id) {
+            Integer slot = slots.remove(id);
+            if (slot != null) {
+                names[slot] = null;
+                lowerNames[slot] = null;
+                removedCount++;
+            }
+        }
+
+        // Построение могло уже прочитать строку, о которой потом пришло событие: старая запись заменяется
+        private void add(FileListChangedEvent.AddedFile file) {
+            remove(file.id());
+            int slot = count++;
+            String lower = file.filename().toLowerCase(Locale.ROOT);
+            fileIds[slot] = file.id();
+            names[slot] = file.filename();
+            lowerNames[slot] = lower;
+            lengths[slot] = file.filename().codePointCount(0, file.filename().length());
+            sizes[slot] = file.size();
+            slots.put(file.id(), slot);
+            if (lower.length() < 3) {
+                return;
+            }
+            long[] keys = new long[lower.length() - 2];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = trigram(lower, i);
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length; i++) {
+                if (i == 0 || keys[i] != keys[i - 1]) {
+                    postings.computeIfAbsent(keys[i], key -> new Posting()).add(slot);
+                }
+            }
+        }
+
+        List<FileInfoResponse> search(String query, int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                return find(query, offset, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private List<FileInfoResponse> find(String query, int offset, int limit) {
+            Posting candidates = query.length() >= 3 ? smallestPosting(query) : null;
+            if (query.length() >= 3 && candidates == null) {
+                return Collections.emptyList();
+            }
+
+            Comparator<Integer> order = Comparator.<Integer>comparingInt(slot -> rank(lowerNames[slot], query))
+                    .thenComparingInt(slot -> lengths[slot])
+                    .thenComparingLong(slot -> fileIds[slot]);
+            // Куча худших из лучших offset + limit: полная сортировка совпадений не нужна
+            int wanted = offset + limit;
+            PriorityQueue<Integer> top = new PriorityQueue<>(order.reversed());
+            int total = candidates != null ? candidates.size : count;
+            for (int i = 0; i < total; i++) {
+                int slot = candidates != null ? candidates.ids[i] : i;
+                if (lowerNames[slot] == null || !lowerNames[slot].contains(query)) {
+                    continue;
+                }
+                top.add(slot);
+                if (top.size() > wanted) {
+                    top.poll();
+                }
+            }
+
+            List<Integer> ordered = new ArrayList<>(top);
+            ordered.sort(order);
+            List<FileInfoResponse> result = new ArrayList<>();
+            for (int i = offset; i < ordered.size(); i++) {
+                int slot = ordered.get(i);
+                result.add(new FileInfoResponse(names[slot], sizes[slot]));
+            }
+            return result;
+        }
+
+        // Кандидаты — файлы из самого короткого списка среди триграмм запроса; null — совпадений нет
+        private Posting smallestPosting(String query) {
+            Posting smallest = null;
+            for (int i = 0; i + 3 <= query.length(); i++) {
+                Posting posting = postings.get(trigram(query, i));
+                if (posting == null) {
+                    return null;
+                }
+                if (smallest == null || posting.size < smallest.size) {
+                    smallest = posting;
+                }
+            }
+            return smallest;
+        }
+    }
+
+    private static class Posting {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.repository.FileSearchHit;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// Поиск файлов пользователя по подстроке имени без учёта регистра. Отвечает индекс в памяти,
+// если он включён и уже построен, иначе запрос в БД по триграммному индексу
+@Service
+public class FileSearchService {
+
+    private final UserFileRepository fileRepository;
+    private final FileSearchIndex searchIndex;
+    private final int maxListLimit;
+    private final int maxCandidates;
+
+    public FileSearchService(UserFileRepository fileRepository,
+                             FileSearchIndex searchIndex,
+                             @Value("${cloud.storage.list.max-limit:1000}") int maxListLimit,
+                             @Value("${cloud.storage.search.max-candidates:10000}") int maxCandidates) {
+        this.fileRepository = fileRepository;
+        this.searchIndex = searchIndex;
+        this.maxListLimit = maxListLimit;
+        this.maxCandidates = maxCandidates;
+    }
+
+    public FileListPage search(User user, String query, Integer limit, String cursor) {
+        if (query == null || query.isEmpty()) {
+            throw new IllegalArgumentException("Search query cannot be empty");
+        }
+        if (query.length() > 255) {
+            throw new IllegalArgumentException("Search query too long");
+        }
+
+        int pageSize = limit != null && limit > 0 ? Math.min(limit, maxListLimit) : maxListLimit;
+        int offset = parseCursor(cursor);
+        String needle = query.toLowerCase(Locale.ROOT);
+
+        // Выдача ограничена первыми maxCandidates результатами: глубже сортировка дорожает.
+        // Лишняя строка показывает, есть ли следующая страница
+        int window = Math.min(pageSize + 1, maxCandidates - offset);
+        if (window <= 0) {
+            return new FileListPage(List.of(), null);
+        }
+        List<FileInfoResponse> items = searchIndex.search(user, needle, offset, window);
+        if (items == null) {
+            String escaped = FileStorageService.escapeLike(needle);
+            List<FileSearchHit> hits = fileRepository.searchByFilename(user.getId(), needle,
+                    "%" + escaped + "%", escaped + "%", window, offset);
+            items = new ArrayList<>(hits.size());
+            for (FileSearchHit hit : hits) {
+                items.add(new FileInfoResponse(hit.getFilename(), hit.getSize()));
+            }
+        }
+
+        String nextCursor = null;
+        if (items.size() > pageSize) {
+            items = items.subList(0, pageSize);
+            nextCursor = String.valueOf(offset + pageSize);
+        }
+        return new FileListPage(items, nextCursor);
+    }
+
+    // Курсор поиска — смещение в ранжированной выдаче
+    private static int parseCursor(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            int offset = Integer.parseInt(cursor);
+            if (offset >= 0) {
+                return offset;
+            }
+        } catch (NumberFormatException e) {
+            // ниже
+        }
+        throw new IllegalArgumentException("Invalid cursor: " + cursor);
+    }
+}
@@ -1,111 +1,372 @@
 package araslanov.ruslan.cloudserver.service;
 
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.Blob;
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.exception.QuotaExceededException;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
 import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileSummary;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
 import jakarta.transaction.Transactional;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
+// Операции над записями идут в транзакции, а загрузки пишут байты вне её (NOT_SUPPORTED):
+// соединение из пула берётся только на короткую запись строки и перевод резерва квоты
 @Service
 @Transactional
 public class FileStorageService {
 
-    private final String baseStoragePath;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_DIRECTORY = ".staging";
+
+    private final long maxStreamSize;
+    private final int maxListLimit;
+    private final int maxBatchSize;
+    private final boolean dedupEnabled;
     private final UserFileRepository fileRepository;
+    private final BlobService blobService;
+    private final StorageLayout storageLayout;
+    private final StorageBackend storageBackend;
+    private final CompressionPolicy compressionPolicy;
+    private final TransferMetrics transferMetrics;
+    private final QuotaService quotaService;
+    private final TransactionTemplate transaction;
+    private final ApplicationEventPublisher eventPublisher;
 
     public FileStorageService(
-            @Value("${cloud.storage.path}") String baseStoragePath,
-            UserFileRepository fileRepository) {
-        this.baseStoragePath = baseStoragePath;
+            @Value("${cloud.storage.stream.max-size:10GB}") DataSize maxStreamSize,
+            @Value("${cloud.storage.dedup.enabled:false}") boolean dedupEnabled,
+            @Value("${cloud.storage.list.max-limit:1000}") int maxListLimit,
+            @Value("${cloud.storage.batch.max-files:1000}") int maxBatchSize,
+            UserFileRepository fileRepository,
+            BlobService blobService,
+            StorageLayout storageLayout,
+            StorageBackend storageBackend,
+            CompressionPolicy compressionPolicy,
+            TransferMetrics transferMetrics,
+            QuotaService quotaService,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher) {
+        this.maxStreamSize = maxStreamSize.toBytes();
+        this.maxListLimit = maxListLimit;
+        this.maxBatchSize = maxBatchSize;
+        this.dedupEnabled = dedupEnabled;
         this.fileRepository = fileRepository;
-        createStorageDirectory();
+        this.blobService = blobService;
+        this.storageLayout = storageLayout;
+        this.storageBackend = storageBackend;
+        this.compressionPolicy = compressionPolicy;
+        this.transferMetrics = transferMetrics;
+        this.quotaService = quotaService;
+        this.transaction = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
     }
 
-    private void createStorageDirectory() {
-        try {
-            Path path = Paths.get(baseStoragePath);
-            if (!Files.exists(path)) {
-                Files.createDirectories(path);
-                System.out.println("Base storage directory created: " + baseStoragePath);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Could not create storage directory", e);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void uploadFile(User user, String filename, MultipartFile file) throws IOException {
+        checkNewFilename(user, filename);
+
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("File is empty");
         }
-    }
 
-    private Path getUserStoragePath(User user) {
-        // Используем userId для создания уникальной папки
-        String userFolderName = "user_" + user.getId();
-        return Paths.get(baseStoragePath).resolve(userFolderName);
+        try (InputStream content = file.getInputStream()) {
+            storeFile(user, filename, content, Long.MAX_VALUE, file.getSize());
+        }
     }
 
-    private void createUserDirectoryIfNotExists(User user) throws IOException {
-        Path userPath = getUserStoragePath(user);
-        if (!Files.exists(userPath)) {
-            Files.createDirectories(userPath);
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void uploadFile(User user, String filename, InputStream content, long contentLength) throws IOException {
+        checkNewFilename(user, filename);
+
+        // Content-Length может отсутствовать (chunked), тогда лимит проверяется по ходу чтения
+        if (contentLength > maxStreamSize) {
+            throw new MaxUploadSizeExceededException(maxStreamSize);
         }
+
+        storeFile(user, filename, content, maxStreamSize, contentLength);
     }
 
-    public void uploadFile(User user, String filename, MultipartFile file) throws IOException {
+    public void checkNewFilename(User user, String filename) {
         validateFilename(filename);
 
         if (fileRepository.existsByUserAndFilename(user, filename)) {
             throw new IllegalArgumentException("File already exists: " + filename);
         }
+    }
 
-        if (file.isEmpty()) {
+    public long getMaxStreamSize() {
+        return maxStreamSize;
+    }
+
+    // Загрузка без передачи содержимого: клиент предъявляет хэш блоба, на который у него уже есть файл.
+    // Чужие блобы не подходят: знание хэша не доказывает владение содержимым, а ответ выдавал бы,
+    // хранит ли такой файл кто-то ещё
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public boolean uploadFileByHash(User user, String filename, String hash, long size) {
+        checkNewFilename(user, filename);
+        String contentHash = blobService.normalizeHash(hash);
+
+        if (!fileRepository.existsByUserAndContentHash(user, contentHash)) {
+            return false;
+        }
+
+        Optional<Blob> blob = blobService.acquireExisting(contentHash, size);
+        if (blob.isEmpty()) {
+            return false;
+        }
+
+        UserFile userFile = newUserFile(user, filename, blob.get().getFilePath(), size, contentHash,
+                blob.get().getCodec());
+        QuotaService.Reservation reservation;
+        try {
+            reservation = quotaService.reserve(user.getId(), size);
+        } catch (RuntimeException e) {
+            discardContent(userFile);
+            throw e;
+        }
+        saveStoredFile(user, userFile, reservation);
+        return true;
+    }
+
+    private void storeFile(User user, String filename, InputStream content, long maxBytes,
+                           long declaredLength) throws IOException {
+        // Известная длина резервируется целиком; для chunked резерв растёт порциями по мере чтения
+        QuotaService.Reservation reservation;
+        QuotaReservingInputStream reserving = null;
+        if (declaredLength >= 0) {
+            reservation = quotaService.reserve(user.getId(), declaredLength);
+        } else {
+            reservation = quotaService.reserveRemaining(user.getId(), maxBytes);
+            reserving = new QuotaReservingInputStream(content, quotaService, reservation, 0, maxBytes);
+        }
+
+        long limit = reserving != null ? maxBytes : Math.min(maxBytes, reservation.bytes());
+        UserFile userFile;
+        try {
+            userFile = storeContent(user, filename, reserving != null ? reserving : content, limit);
+        } catch (MaxUploadSizeExceededException e) {
+            quotaService.release(reserving != null ? reserving.getReservation() : reservation);
+            // Тело оказалось больше заявленной длины, под которую взят резерв, а не общего лимита
+            if (limit < maxBytes) {
+                throw new QuotaExceededException("Storage quota exceeded");
+            }
+            throw e;
+        } catch (IOException | RuntimeException e) {
+            quotaService.release(reserving != null ? reserving.getReservation() : reservation);
+            throw e;
+        }
+        saveStoredFile(user, userFile, reserving != null ? reserving.getReservation() : reservation);
+    }
+
+    // Короткая транзакция после записи байтов. Резерв переводится первым: если сохранение строки
+    // откатится, QuotaService.commit сам снимет резерв
+    private void saveStoredFile(User user, UserFile userFile, QuotaService.Reservation reservation) {
+        try {
+            transaction.executeWithoutResult(status -> {
+                quotaService.commit(reservation, userFile.getSize());
+                fileRepository.save(userFile);
+                listingChanged(user, List.of(userFile), List.of());
+            });
+        } catch (RuntimeException e) {
+            discardContent(userFile);
+            throw e;
+        }
+    }
+
+    // Записывает содержимое в хранилище и возвращает ещё не сохранённую запись о файле,
+    // чтобы вызывающий мог сохранить записи пачкой. Транзакция на время передачи не держится
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public UserFile storeContent(User user, String filename, InputStream content, long limit) throws IOException {
+        String targetLocation = dedupEnabled ? newStagingLocation() : newStorageLocation(user);
+        MessageDigest digest = dedupEnabled ? newContentDigest() : null;
+
+        // Лимит и хэш считаются по исходным байтам, до сжатия
+        SizeLimitInputStream limited = new SizeLimitInputStream(content, limit);
+        InputStream source = digest != null ? new DigestInputStream(limited, digest) : limited;
+        ContentCodec codec = ContentCodec.IDENTITY;
+
+        try {
+            if (compressionPolicy.isEnabled()) {
+                BufferedInputStream sampled = new BufferedInputStream(source, compressionPolicy.getSampleSize());
+                sampled.mark(compressionPolicy.getSampleSize());
+                codec = compressionPolicy.chooseCodec(sampled.readNBytes(compressionPolicy.getSampleSize()));
+                sampled.reset();
+                source = codec.encode(sampled, compressionPolicy.getLevel());
+            }
+            storageBackend.put(targetLocation, source);
+        } catch (IOException | RuntimeException e) {
+            storageBackend.delete(targetLocation);
+            throw e;
+        } finally {
+            // Освобождает Deflater; тело запроса к этому моменту уже прочитано
+            source.close();
+            transferMetrics.recordUpload(limited.getCount());
+        }
+
+        long size = limited.getCount();
+        if (size == 0) {
+            storageBackend.delete(targetLocation);
             throw new IllegalArgumentException("File is empty");
         }
 
-        createUserDirectoryIfNotExists(user);
+        if (dedupEnabled) {
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Blob blob = blobService.acquire(hash, targetLocation, size, codec);
+            return newUserFile(user, filename, blob.getFilePath(), size, hash, blob.getCodec());
+        }
+        return newUserFile(user, filename, targetLocation, size, null, codec);
+    }
 
+    // Содержимое, записанное до транзакции, если запись о файле так и не сохранилась
+    public void discardContent(UserFile file) {
+        try {
+            if (file.getContentHash() != null) {
+                blobService.release(file.getContentHash());
+            } else {
+                storageBackend.delete(file.getFilePath());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Could not discard " + file.getFilePath() + ": " + e.getMessage());
+        }
+    }
+
+    // Файл, собранный в staging (например, из частей upload-сессии), переносится на постоянное место.
+    // Хэширование и перенос идут вне транзакции, как и запись байтов при обычной загрузке.
+    // reservation — резерв, уже взятый под части файла; null — резервируется size
+    @Transactional(Transactional.TxType.NOT_SUPPORTED)
+    public void storeAssembledFile(User user, String filename, String stagedKey, long size,
+                                   QuotaService.Reservation reservation) throws IOException {
+        // Резерв сессии при ошибке остаётся за ней: части ещё лежат в хранилище
+        QuotaService.Reservation own = reservation == null ? quotaService.reserve(user.getId(), size) : null;
+        UserFile userFile;
+        try {
+            userFile = placeAssembledFile(user, filename, stagedKey, size);
+        } catch (IOException | RuntimeException e) {
+            if (own != null) {
+                quotaService.release(own);
+            }
+            throw e;
+        }
+        saveStoredFile(user, userFile, own != null ? own : reservation);
+    }
+
+    private UserFile placeAssembledFile(User user, String filename, String stagedKey, long size) throws IOException {
+        if (dedupEnabled) {
+            String hash = hashObject(stagedKey);
+            Blob blob = blobService.acquire(hash, stagedKey, size, ContentCodec.IDENTITY);
+            return newUserFile(user, filename, blob.getFilePath(), size, hash, blob.getCodec());
+        }
+
+        String targetLocation = newStorageLocation(user);
+        storageBackend.move(stagedKey, targetLocation);
+        return newUserFile(user, filename, targetLocation, size, null, ContentCodec.IDENTITY);
+    }
+
+    public String newStorageLocation(User user) {
         String uniqueFilename = UUID.randomUUID().toString();
-        Path userStoragePath = getUserStoragePath(user);
-        Path targetLocation = userStoragePath.resolve(uniqueFilename);
+        return storageLayout.fileLocation(user.getId(), uniqueFilename);
+    }
 
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    public String newStagingLocation() {
+        return STAGING_DIRECTORY + "/" + UUID.randomUUID();
+    }
 
+    private UserFile newUserFile(User user, String filename, String location, long size,
+                                 String contentHash, ContentCodec codec) {
         UserFile userFile = new UserFile();
         userFile.setUser(user);
         userFile.setFilename(filename); // Оригинальное имя
-        userFile.setFilePath(targetLocation.toString()); // Полный путь на диске
-        userFile.setSize(file.getSize());
+        userFile.setFilePath(location); // Ключ в хранилище
+        userFile.setSize(size);
+        userFile.setContentHash(contentHash);
+        userFile.setCodec(codec);
+        return userFile;
+    }
 
-        fileRepository.save(userFile);
+    public long writeContent(InputStream content, String key, long maxBytes) throws IOException {
+        SizeLimitInputStream limited = new SizeLimitInputStream(content, maxBytes);
+        try {
+            return storageBackend.put(key, limited);
+        } finally {
+            transferMetrics.recordUpload(limited.getCount());
+        }
+    }
+
+    private String hashObject(String key) throws IOException {
+        MessageDigest digest = newContentDigest();
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+
+        try (InputStream in = storageBackend.get(key)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                digest.update(chunk, 0, read);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private MessageDigest newContentDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
     }
 
-    public Path downloadFile(User user, String filename) throws IOException {
+    public UserFile getFile(User user, String filename) throws IOException {
         UserFile userFile = fileRepository.findByUserAndFilename(user, filename)
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + filename));
 
-        Path filePath = Paths.get(userFile.getFilePath());
-        if (!Files.exists(filePath)) {
+        if (storageBackend.stat(userFile.getFilePath()).isEmpty()) {
             throw new IOException("File not found on disk: " + filename);
         }
 
-        return filePath;
+        return userFile;
     }
 
-    public void deleteFile(User user, String filename) throws IOException {
+    // Удаление — только отметка в строке: файл уходит в корзину, байты и квоту освобождает TrashPurger
+    public void deleteFile(User user, String filename) {
         UserFile userFile = fileRepository.findByUserAndFilename(user, filename)
                 .orElseThrow(() -> new IllegalArgumentException("File not found: " + filename));
 
-        Path filePath = Paths.get(userFile.getFilePath());
-        Files.deleteIfExists(filePath);
-
-        fileRepository.delete(userFile);
-
-        cleanupUserDirectory(user);
+        userFile.setDeletedAt(LocalDateTime.now());
+        fileRepository.save(userFile);
+        listingChanged(user, List.of(), List.of(userFile));
     }
 
     public void renameFile(User user, String oldFilename, String newFilename) {
@@ -121,19 +382,224 @@ public class FileStorageService {
 
         userFile.setFilename(newFilename);
         fileRepository.save(userFile);
+        listingChanged(user, List.of(userFile), List.of(userFile));
     }
 
-    public List<UserFile> getUserFiles(User user, Integer limit) {
-        List<UserFile> files = fileRepository.findByUserOrderByUploadDateDesc(user);
+    // Пакетное удаление по списку имён или glob-шаблону: один SELECT и один UPDATE, файлы уходят в корзину
+    public int deleteFiles(User user, List<String> filenames, String pattern) {
+        List<UserFile> files = selectFiles(user, filenames, pattern);
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(files.size());
+        for (UserFile file : files) {
+            ids.add(file.getId());
+        }
+        int deleted = fileRepository.markDeleted(ids, LocalDateTime.now());
+        listingChanged(user, List.of(), files);
+        return deleted;
+    }
 
-        if (limit != null && limit > 0 && limit < files.size()) {
-            return files.subList(0, limit);
+    // Пакетное переименование: сущности грузятся одним запросом, UPDATE уходят JDBC-батчем при flush
+    public int renameFiles(User user, Map<String, String> renames) {
+        if (renames == null || renames.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to rename");
         }
+        checkBatchSize(renames.size());
 
+        Set<String> targets = new HashSet<>();
+        for (Map.Entry<String, String> rename : renames.entrySet()) {
+            validateFilename(rename.getValue());
+            if (!targets.add(rename.getValue())) {
+                throw new IllegalArgumentException("Duplicate target filename: " + rename.getValue());
+            }
+        }
+
+        // Цепочки и обмены именами не поддерживаются: уникальный индекс проверяется построчно
+        List<String> existing = fileRepository.findExistingFilenames(user, targets);
+        for (String name : existing) {
+            if (!name.equals(renames.get(name))) {
+                throw new IllegalArgumentException("File with new name already exists: " + name);
+            }
+        }
+
+        List<UserFile> files = fileRepository.findByUserAndFilenameIn(user, renames.keySet());
+        if (files.size() != renames.size()) {
+            Set<String> found = new HashSet<>();
+            files.forEach(file -> found.add(file.getFilename()));
+            for (String name : renames.keySet()) {
+                if (!found.contains(name)) {
+                    throw new IllegalArgumentException("File not found: " + name);
+                }
+            }
+        }
+
+        for (UserFile file : files) {
+            file.setFilename(renames.get(file.getFilename()));
+        }
+        fileRepository.saveAll(files);
+        listingChanged(user, files, files);
+
+        return files.size();
+    }
+
+    // Каталогов в хранилище нет, поэтому перенос — это замена префикса имени UPDATE по шаблону; лимит пакета
+    // и конфликты проверяются до него
+    public int moveFiles(User user, String fromPrefix, String toPrefix) {
+        if (fromPrefix == null || fromPrefix.isEmpty()) {
+            throw new IllegalArgumentException("Source prefix cannot be empty");
+        }
+        String target = toPrefix == null ? "" : toPrefix;
+        if (target.contains("/") || target.contains("\\") || target.length() > 255) {
+            throw new IllegalArgumentException("Invalid target prefix: " + target);
+        }
+        if (fromPrefix.equals(target)) {
+            return 0;
+        }
+
+        String pattern = escapeLike(fromPrefix) + "%";
+        long matched = fileRepository.countByPrefix(user, pattern);
+        if (matched == 0) {
+            return 0;
+        }
+        checkBatchSize((int) Math.min(matched, Integer.MAX_VALUE));
+        if (fileRepository.countPrefixConflicts(user, pattern, fromPrefix.length(), target) > 0) {
+            throw new IllegalArgumentException("Move would produce invalid or existing filenames");
+        }
+
+        int moved = fileRepository.stripFilenamePrefix(user, pattern, fromPrefix.length());
+        if (moved > 0) {
+            fileRepository.applyFilenamePrefix(user, target);
+            listingChanged(user);
+        }
+        return moved;
+    }
+
+    // Новая версия списка для ETag /list; сбрасывается после коммита
+    public void listingChanged(User user) {
+        eventPublisher.publishEvent(new FileListChangedEvent(user.getId()));
+    }
+
+    // То же, но с составом изменений: индекс поиска обновляется на месте
+    public void listingChanged(User user, List<UserFile> added, List<UserFile> removed) {
+        eventPublisher.publishEvent(FileListChangedEvent.of(user.getId(), added, removed));
+    }
+
+    // Файлы для архива одним запросом; по списку имён — в порядке запроса и все обязательно существуют
+    public List<UserFile> getFiles(User user, List<String> filenames, String pattern) {
+        List<UserFile> files = selectFiles(user, filenames, pattern);
+        if (filenames == null || filenames.isEmpty()) {
+            return files;
+        }
+
+        Map<String, UserFile> byName = new HashMap<>();
+        files.forEach(file -> byName.put(file.getFilename(), file));
+
+        List<UserFile> ordered = new ArrayList<>(byName.size());
+        for (String name : new LinkedHashSet<>(filenames)) {
+            UserFile file = byName.get(name);
+            if (file == null) {
+                throw new IllegalArgumentException("File not found: " + name);
+            }
+            ordered.add(file);
+        }
+        return ordered;
+    }
+
+    private List<UserFile> selectFiles(User user, List<String> filenames, String pattern) {
+        boolean byNames = filenames != null && !filenames.isEmpty();
+        boolean byPattern = pattern != null && !pattern.isEmpty();
+        if (byNames == byPattern) {
+            throw new IllegalArgumentException("Either filenames or pattern must be specified");
+        }
+
+        if (byNames) {
+            checkBatchSize(filenames.size());
+            return fileRepository.findByUserAndFilenameIn(user, filenames);
+        }
+
+        // Лишняя строка показывает, что под шаблон попало больше файлов, чем разрешено
+        List<UserFile> files = fileRepository.findByUserAndFilenameLike(user, globToLike(pattern),
+                PageRequest.of(0, maxBatchSize + 1));
+        checkBatchSize(files.size());
         return files;
     }
 
-    private void validateFilename(String filename) {
+    private void checkBatchSize(int size) {
+        if (size > maxBatchSize) {
+            throw new IllegalArgumentException("Too many files in one batch, maximum is " + maxBatchSize);
+        }
+    }
+
+    // * и ? из шаблона превращаются в % и _, остальные спецсимволы LIKE экранируются
+    static String globToLike(String glob) {
+        StringBuilder like = new StringBuilder(glob.length() + 8);
+        for (char c : glob.toCharArray()) {
+            switch (c) {
+                case '*' -> like.append('%');
+                case '?' -> like.append('_');
+                case '%', '_', '\\' -> like.append('\\').append(c);
+                default -> like.append(c);
+            }
+        }
+        return like.toString();
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public FileListPage getUserFiles(User user, Integer limit, String cursor) {
+        boolean firstPage = cursor == null || cursor.isEmpty();
+        // Без limit и курсора — весь список, как раньше: старые клиенты о курсоре не знают.
+        // Он всё равно читается из БД страницами по maxListLimit
+        if ((limit == null || limit <= 0) && firstPage) {
+            return new FileListPage(getAllUserFiles(user), null);
+        }
+
+        int pageSize = limit != null && limit > 0 ? Math.min(limit, maxListLimit) : maxListLimit;
+        PageRequest page = PageRequest.of(0, pageSize);
+
+        List<UserFileSummary> files;
+        if (firstPage) {
+            files = fileRepository.findFirstPage(user, page);
+        } else {
+            ListCursor after = ListCursor.decode(cursor);
+            files = fileRepository.findPageAfter(user, after.uploadDate(), after.id(), page);
+        }
+
+        List<FileInfoResponse> items = new ArrayList<>(files.size());
+        for (UserFileSummary file : files) {
+            items.add(new FileInfoResponse(file.getFilename(), file.getSize()));
+        }
+
+        String nextCursor = null;
+        if (files.size() == pageSize) {
+            UserFileSummary last = files.get(files.size() - 1);
+            nextCursor = new ListCursor(last.getUploadDate(), last.getId()).encode();
+        }
+
+        return new FileListPage(items, nextCursor);
+    }
+
+    private List<FileInfoResponse> getAllUserFiles(User user) {
+        PageRequest page = PageRequest.of(0, maxListLimit);
+        List<FileInfoResponse> items = new ArrayList<>();
+        List<UserFileSummary> files = fileRepository.findFirstPage(user, page);
+        while (true) {
+            for (UserFileSummary file : files) {
+                items.add(new FileInfoResponse(file.getFilename(), file.getSize()));
+            }
+            if (files.size() < maxListLimit) {
+                return items;
+            }
+            UserFileSummary last = files.get(files.size() - 1);
+            files = fileRepository.findPageAfter(user, last.getUploadDate(), last.getId(), page);
+        }
+    }
+
+    public void validateFilename(String filename) {
         if (filename == null || filename.trim().isEmpty()) {
             throw new IllegalArgumentException("Filename cannot be empty");
         }
@@ -147,18 +613,63 @@ public class FileStorageService {
         }
     }
 
-    private void cleanupUserDirectory(User user) {
-        try {
-            Path userPath = getUserStoragePath(user);
-            if (Files.exists(userPath)) {
-                try (var files = Files.list(userPath)) {
-                    if (files.findAny().isEmpty()) {
-                        Files.deleteIfExists(userPath);
-                    }
-                }
+    // Непрозрачный для клиента курсор: дата загрузки и id последнего файла страницы
+    private record ListCursor(LocalDateTime uploadDate, long id) {
+
+        String encode() {
+            String value = uploadDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static ListCursor decode(String cursor) {
+            try {
+                String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = value.indexOf('|');
+                return new ListCursor(LocalDateTime.parse(value.substring(0, separator)),
+                        Long.parseLong(value.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+    }
+
+    // Обрывает запись, как только поток превысил лимит, не дожидаясь конца тела запроса
+    private static class SizeLimitInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long count;
+
+        SizeLimitInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                count(read);
+            }
+            return read;
+        }
+
+        long getCount() {
+            return count;
+        }
+
+        private void count(int read) {
+            count += read;
+            if (count > maxBytes) {
+                throw new MaxUploadSizeExceededException(maxBytes);
             }
-        } catch (IOException e) {
-            System.err.println("Could not cleanup user directory: " + e.getMessage());
         }
     }
 
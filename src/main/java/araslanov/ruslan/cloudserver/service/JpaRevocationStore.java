@@ -0,0 +1,52 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.RevokedToken;
+import araslanov.ruslan.cloudserver.repository.RevokedTokenRepository;
+import araslanov.ruslan.cloudserver.security.RevocationStore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+// Отозванные токены в БД: узлы подтягивают их при старте и периодической синхронизации
+@Component
+@ConditionalOnProperty(name = "cloud.security.revocation.persistent", havingValue = "true", matchIfMissing = true)
+public class JpaRevocationStore implements RevocationStore {
+
+    private final RevokedTokenRepository repository;
+
+    public JpaRevocationStore(RevokedTokenRepository repository) {
+        this.repository = repository;
+    }
+
+    @Override
+    @Transactional
+    public void save(String digest, Instant expiresAt) {
+        // Все метки времени в UTC, чтобы узлы с разными часовыми поясами сравнивали одно и то же
+        RevokedToken token = new RevokedToken(digest, toLocal(expiresAt));
+        token.setRevokedAt(toLocal(Instant.now()));
+        repository.save(token);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RevokedTokenEntry> findRevokedSince(Instant since, Instant now) {
+        return repository.findByRevokedAtAfterAndExpiresAtAfter(toLocal(since), toLocal(now)).stream()
+                .map(token -> new RevokedTokenEntry(token.getTokenDigest(),
+                        token.getExpiresAt().toInstant(ZoneOffset.UTC)))
+                .toList();
+    }
+
+    @Override
+    @Transactional
+    public void deleteExpired(Instant now) {
+        repository.deleteExpired(toLocal(now));
+    }
+
+    private LocalDateTime toLocal(Instant instant) {
+        return LocalDateTime.ofInstant(instant, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,78 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.security.JwtUtil;
+import araslanov.ruslan.cloudserver.security.PasswordHashingExecutor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+// Логин: пользователь загружается один раз, BCrypt выполняется в отдельном пуле,
+// а хэш со старой стоимостью пересчитывается под текущую настройку
+@Service
+public class LoginService {
+
+    private final UserDetailsService userDetailsService;
+    private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final JwtUtil jwtUtil;
+
+    // Проверка против фиктивного хэша уравнивает время ответа для несуществующих логинов
+    private volatile String dummyHash;
+
+    public LoginService(UserDetailsService userDetailsService,
+                        UserService userService,
+                        PasswordEncoder passwordEncoder,
+                        PasswordHashingExecutor hashingExecutor,
+                        JwtUtil jwtUtil) {
+        this.userDetailsService = userDetailsService;
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.hashingExecutor = hashingExecutor;
+        this.jwtUtil = jwtUtil;
+    }
+
+    public String login(String login, String password) {
+        UserDetails user;
+        try {
+            user = userDetailsService.loadUserByUsername(login);
+        } catch (UsernameNotFoundException e) {
+            hashingExecutor.call(() -> passwordEncoder.matches(password, getDummyHash()));
+            throw new BadCredentialsException("Bad credentials");
+        }
+
+        String currentHash = user.getPassword();
+        // null — пароль не совпал; иначе актуальный хэш (новый, если стоимость устарела)
+        String actualHash = hashingExecutor.call(() -> {
+            if (!passwordEncoder.matches(password, currentHash)) {
+                return null;
+            }
+            return passwordEncoder.upgradeEncoding(currentHash) ? passwordEncoder.encode(password) : currentHash;
+        });
+
+        if (actualHash == null || !user.isEnabled()) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+
+        if (!actualHash.equals(currentHash)) {
+            try {
+                userService.updatePasswordHash(user.getUsername(), actualHash);
+            } catch (RuntimeException e) {
+                // Логин не должен падать из-за апгрейда хэша — попробуем при следующем входе
+                System.err.println("Failed to upgrade password hash for " + user.getUsername() + ": " + e.getMessage());
+            }
+        }
+
+        return jwtUtil.generateToken(user.getUsername());
+    }
+
+    private String getDummyHash() {
+        if (dummyHash == null) {
+            dummyHash = passwordEncoder.encode("dummy-password");
+        }
+        return dummyHash;
+    }
+}
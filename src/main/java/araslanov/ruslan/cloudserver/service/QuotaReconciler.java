@@ -0,0 +1,45 @@
+package araslanov.ruslan.cloudserver.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+// Периодически сверяет счётчики квот с user_files и живыми резервами.
+// Каждая пачка — отдельная короткая транзакция, чтобы не держать блокировки на всех пользователях сразу
+@Component
+public class QuotaReconciler {
+
+    private final QuotaService quotaService;
+    private final int batchSize;
+
+    public QuotaReconciler(QuotaService quotaService,
+                           @Value("${cloud.storage.quota.reconcile.batch-size:500}") int batchSize) {
+        this.quotaService = quotaService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelayString = "${cloud.storage.quota.reconcile.initial-delay-ms:60000}",
+            fixedDelayString = "${cloud.storage.quota.reconcile.interval-ms:3600000}")
+    public void reconcile() {
+        if (!quotaService.isEnabled()) {
+            return;
+        }
+
+        try {
+            int expired = quotaService.deleteExpiredReservations();
+
+            QuotaService.ReconcileStats stats = new QuotaService.ReconcileStats();
+            long lastId = 0;
+            while ((lastId = quotaService.reconcileBatch(lastId, batchSize, stats)) >= 0) {
+                // следующая пачка
+            }
+
+            if (stats.getCorrected() > 0 || expired > 0) {
+                System.out.println("Quota reconciliation: checked " + stats.getChecked() + " users, corrected "
+                        + stats.getCorrected() + ", expired reservations removed " + expired);
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Quota reconciliation failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package araslanov.ruslan.cloudserver.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Тело неизвестной длины: резерв квоты расширяется порциями по мере чтения. Когда квоты не хватает,
+// чтение прерывается QuotaExceededException; сверх max резерв не растёт — это лимит размера вызывающего
+class QuotaReservingInputStream extends FilterInputStream {
+
+    private final QuotaService quotaService;
+    private final long max;
+    private QuotaService.Reservation reservation;
+    private long count;
+
+    // base — байты, уже учтённые в резерве до этого потока (предыдущие записи архива)
+    QuotaReservingInputStream(InputStream in, QuotaService quotaService, QuotaService.Reservation reservation,
+                              long base, long max) {
+        super(in);
+        this.quotaService = quotaService;
+        this.reservation = reservation;
+        this.count = base;
+        this.max = max;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b != -1) {
+            count(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int read = super.read(b, off, len);
+        if (read > 0) {
+            count(read);
+        }
+        return read;
+    }
+
+    // Текущий резерв: его вызывающий переводит в занятое место или снимает
+    QuotaService.Reservation getReservation() {
+        return reservation;
+    }
+
+    private void count(int read) {
+        count += read;
+        while (count > reservation.bytes() && reservation.bytes() < max) {
+            reservation = quotaService.extend(reservation, max);
+        }
+    }
+}
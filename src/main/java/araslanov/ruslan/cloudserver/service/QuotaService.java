@@ -0,0 +1,254 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.QuotaReservation;
+import araslanov.ruslan.cloudserver.exception.QuotaExceededException;
+import araslanov.ruslan.cloudserver.repository.QuotaReservationRepository;
+import araslanov.ruslan.cloudserver.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Квоты на основе счётчиков в users. Загрузка сначала резервирует место в отдельной
+// транзакции (резерв сразу виден параллельным загрузкам), а после записи файла
+// переводит резерв в занятое место в транзакции самой загрузки.
+// reserve вызывается до транзакции загрузки: внутри неё REQUIRES_NEW занял бы
+// второе соединение, и при занятом пуле загрузки ждали бы друг друга до таймаута
+@Service
+public class QuotaService {
+
+    private final UserRepository userRepository;
+    private final QuotaReservationRepository reservationRepository;
+    private final TransactionTemplate requiresNew;
+    private final TransactionTemplate required;
+    private final boolean enabled;
+    private final long defaultQuota;
+    private final Duration reservationTtl;
+    private final long reservationChunk;
+
+    public QuotaService(UserRepository userRepository,
+                        QuotaReservationRepository reservationRepository,
+                        PlatformTransactionManager transactionManager,
+                        @Value("${cloud.storage.quota.enabled:true}") boolean enabled,
+                        @Value("${cloud.storage.quota.default:10GB}") DataSize defaultQuota,
+                        @Value("${cloud.storage.quota.reservation-ttl:6h}") Duration reservationTtl,
+                        @Value("${cloud.storage.quota.reservation-chunk:64MB}") DataSize reservationChunk) {
+        this.userRepository = userRepository;
+        this.reservationRepository = reservationRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.required = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.defaultQuota = defaultQuota.toBytes();
+        this.reservationTtl = reservationTtl;
+        this.reservationChunk = reservationChunk.toBytes();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getAvailable(Long userId) {
+        if (!enabled) {
+            return Long.MAX_VALUE;
+        }
+        return userRepository.findAvailableBytes(userId, defaultQuota).orElse(0L);
+    }
+
+    // Ранняя проверка по Content-Length, до чтения тела
+    public void checkAvailable(Long userId, long bytes) {
+        if (bytes > getAvailable(userId)) {
+            throw new QuotaExceededException("Storage quota exceeded");
+        }
+    }
+
+    public Reservation reserve(Long userId, long bytes) {
+        if (!enabled) {
+            return new Reservation(null, userId, bytes);
+        }
+
+        return requiresNew.execute(status -> {
+            if (userRepository.reserveBytes(userId, bytes, defaultQuota) == 0) {
+                throw new QuotaExceededException("Storage quota exceeded");
+            }
+            String id = UUID.randomUUID().toString();
+            reservationRepository.save(new QuotaReservation(id, userId, bytes, LocalDateTime.now().plus(reservationTtl)));
+            return new Reservation(id, userId, bytes);
+        });
+    }
+
+    // Длина заранее неизвестна (chunked, архив): резервируется первая порция, дальше резерв растёт
+    // через extend по мере чтения, чтобы одна загрузка не занимала весь остаток квоты
+    public Reservation reserveRemaining(Long userId, long max) {
+        if (!enabled) {
+            return new Reservation(null, userId, max);
+        }
+
+        long bytes = Math.min(Math.min(max, reservationChunk), getAvailable(userId));
+        if (bytes <= 0) {
+            throw new QuotaExceededException("Storage quota exceeded");
+        }
+        return reserve(userId, bytes);
+    }
+
+    // Следующая порция резерва, но не дальше max и остатка квоты; срок резерва продлевается
+    public Reservation extend(Reservation reservation, long max) {
+        long bytes = Math.min(reservationChunk, max - reservation.bytes());
+        if (reservation.id() == null) {
+            return new Reservation(null, reservation.userId(), reservation.bytes() + Math.max(bytes, 0));
+        }
+
+        long grow = Math.min(bytes, getAvailable(reservation.userId()));
+        if (grow <= 0) {
+            throw new QuotaExceededException("Storage quota exceeded");
+        }
+        addToReservation(reservation.id(), reservation.userId(), grow);
+        return new Reservation(reservation.id(), reservation.userId(), reservation.bytes() + grow);
+    }
+
+    // Резерв upload-сессии: строка с id сессии живёт столько же, сколько сессия, и растёт с каждой частью.
+    // Так место под ещё не собранные части тоже учитывается в квоте
+    public void openSessionReservation(String sessionId, Long userId, LocalDateTime expiresAt) {
+        if (!enabled) {
+            return;
+        }
+        requiresNew.executeWithoutResult(status ->
+                reservationRepository.save(new QuotaReservation(sessionId, userId, 0L, expiresAt)));
+    }
+
+    // Доля части в резерве сессии: известная длина резервируется сразу, неизвестная — порциями через extend
+    public Reservation reservePart(String sessionId, Long userId, long contentLength) {
+        if (!enabled || contentLength <= 0) {
+            return new Reservation(enabled ? sessionId : null, userId, 0);
+        }
+        addToReservation(sessionId, userId, contentLength);
+        return new Reservation(sessionId, userId, contentLength);
+    }
+
+    // Текущий резерв сессии для commit или release; пусто, если строка уже истекла
+    public Optional<Reservation> findReservation(String id) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        return reservationRepository.findById(id)
+                .map(row -> new Reservation(row.getId(), row.getUserId(), row.getBytes()));
+    }
+
+    // Возвращает часть резерва: несостоявшаяся или заменённая часть сессии, неиспользованный остаток порции
+    public void releaseBytes(Reservation reservation, long bytes) {
+        if (reservation.id() == null || bytes <= 0) {
+            return;
+        }
+
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                userRepository.applyUsage(reservation.userId(), bytes, 0);
+                reservationRepository.addBytes(reservation.id(), -bytes, LocalDateTime.now());
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Failed to release quota reservation " + reservation.id() + ": " + e.getMessage());
+        }
+    }
+
+    private void addToReservation(String id, Long userId, long bytes) {
+        requiresNew.executeWithoutResult(status -> {
+            if (userRepository.reserveBytes(userId, bytes, defaultQuota) == 0) {
+                throw new QuotaExceededException("Storage quota exceeded");
+            }
+            reservationRepository.addBytes(id, bytes, LocalDateTime.now().plus(reservationTtl));
+        });
+    }
+
+    // Вызывается в транзакции загрузки: счётчик меняется вместе с записью о файле.
+    // Если эта транзакция откатится, резерв снимается после отката
+    public void commit(Reservation reservation, long actualBytes) {
+        if (reservation.id() == null) {
+            return;
+        }
+
+        required.executeWithoutResult(status -> {
+            userRepository.applyUsage(reservation.userId(), reservation.bytes(), actualBytes);
+            reservationRepository.deleteById(reservation.id());
+        });
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_ROLLED_BACK) {
+                        release(reservation);
+                    }
+                }
+            });
+        }
+    }
+
+    public void release(Reservation reservation) {
+        if (reservation.id() == null) {
+            return;
+        }
+
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                userRepository.applyUsage(reservation.userId(), reservation.bytes(), 0);
+                reservationRepository.deleteById(reservation.id());
+            });
+        } catch (RuntimeException e) {
+            // Резерв истечёт сам, сверка пересчитает счётчик
+            System.err.println("Failed to release quota reservation " + reservation.id() + ": " + e.getMessage());
+        }
+    }
+
+    // Удаление файла: в транзакции вызывающего
+    public void releaseUsage(Long userId, long bytes) {
+        if (!enabled) {
+            return;
+        }
+        required.executeWithoutResult(status -> userRepository.applyUsage(userId, 0, -bytes));
+    }
+
+    // Пересчёт пачки пользователей после afterId; возвращает id последнего или -1, если пользователи кончились
+    public long reconcileBatch(long afterId, int batchSize, ReconcileStats stats) {
+        Long lastId = required.execute(status -> {
+            List<Long> ids = userRepository.lockIdsAfter(afterId, batchSize);
+            if (ids.isEmpty()) {
+                return null;
+            }
+            long last = ids.get(ids.size() - 1);
+            stats.corrected += userRepository.reconcileUsage(ids.get(0), last, LocalDateTime.now());
+            stats.checked += ids.size();
+            return last;
+        });
+        return lastId == null ? -1 : lastId;
+    }
+
+    public int deleteExpiredReservations() {
+        Integer deleted = required.execute(status -> reservationRepository.deleteExpired(LocalDateTime.now()));
+        return deleted == null ? 0 : deleted;
+    }
+
+    public record Reservation(String id, Long userId, long bytes) {
+    }
+
+    public static class ReconcileStats {
+        long checked;
+        long corrected;
+
+        public long getChecked() {
+            return checked;
+        }
+
+        public long getCorrected() {
+            return corrected;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package araslanov.ruslan.cloudserver.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class StorageLayout {
+
+    private final int fanoutDepth;
+    private final int fanoutWidth;
+
+    public StorageLayout(@Value("${cloud.storage.layout.fanout-depth:2}") int fanoutDepth,
+                         @Value("${cloud.storage.layout.fanout-width:2}") int fanoutWidth) {
+        // Префиксы берутся из первой группы UUID (8 hex-символов)
+        if (fanoutDepth < 0 || fanoutWidth < 1 || fanoutDepth * fanoutWidth > 8) {
+            throw new IllegalArgumentException("Invalid fan-out layout: depth=" + fanoutDepth
+                    + ", width=" + fanoutWidth);
+        }
+        this.fanoutDepth = fanoutDepth;
+        this.fanoutWidth = fanoutWidth;
+    }
+
+    public String userDirectory(long userId) {
+        // Используем userId для создания уникальной папки
+        return "user_" + userId;
+    }
+
+    // user_<id>/ab/cd/<uuid> при depth=2, width=2
+    public String fileLocation(long userId, String storedName) {
+        StringBuilder location = new StringBuilder(userDirectory(userId));
+        for (int level = 0; level < fanoutDepth; level++) {
+            location.append('/').append(storedName, level * fanoutWidth, (level + 1) * fanoutWidth);
+        }
+        return location.append('/').append(storedName).toString();
+    }
+}
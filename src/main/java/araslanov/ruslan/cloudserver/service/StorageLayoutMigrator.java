@@ -0,0 +1,108 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+// Переносит файлы из плоского каталога пользователя в fan-out раскладку, не останавливая сервер
+@Component
+public class StorageLayoutMigrator {
+
+    private final UserFileRepository fileRepository;
+    private final StorageLayout storageLayout;
+    private final StorageBackend storageBackend;
+    private final DeferredFileDeleter deferredFileDeleter;
+    private final boolean enabled;
+    private final int batchSize;
+    private final Duration deleteDelay;
+
+    private long lastMigratedId;
+    private long movedFiles;
+    private volatile boolean finished;
+
+    public StorageLayoutMigrator(UserFileRepository fileRepository,
+                                 StorageLayout storageLayout,
+                                 StorageBackend storageBackend,
+                                 DeferredFileDeleter deferredFileDeleter,
+                                 @Value("${cloud.storage.layout.migration.enabled:false}") boolean enabled,
+                                 @Value("${cloud.storage.layout.migration.batch-size:500}") int batchSize,
+                                 @Value("${cloud.storage.layout.migration.delete-delay:10m}") Duration deleteDelay) {
+        this.fileRepository = fileRepository;
+        this.storageLayout = storageLayout;
+        this.storageBackend = storageBackend;
+        this.deferredFileDeleter = deferredFileDeleter;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.deleteDelay = deleteDelay;
+    }
+
+    @Scheduled(fixedDelayString = "${cloud.storage.layout.migration.interval-ms:1000}")
+    public void migrateNextBatch() {
+        if (!enabled || finished) {
+            return;
+        }
+
+        List<UserFile> batch = fileRepository.findByIdGreaterThanAndContentHashIsNullOrderById(
+                lastMigratedId, PageRequest.of(0, batchSize));
+
+        if (batch.isEmpty()) {
+            finished = true;
+            System.out.println("Storage layout migration finished, files moved: " + movedFiles);
+            return;
+        }
+
+        for (UserFile file : batch) {
+            try {
+                if (migrate(file)) {
+                    movedFiles++;
+                }
+            } catch (IOException e) {
+                System.err.println("Could not migrate file " + file.getId() + ": " + e.getMessage());
+            }
+            lastMigratedId = file.getId();
+        }
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    public long getMovedFiles() {
+        return movedFiles;
+    }
+
+    boolean migrate(UserFile file) throws IOException {
+        String current = file.getFilePath().replace('\\', '/');
+        long userId = file.getUser().getId();
+        String target = storageLayout.fileLocation(userId, current.substring(current.lastIndexOf('/') + 1));
+
+        // Старые записи хранят полный путь с корнем хранилища: если хвост уже совпадает, файл на месте
+        if (current.equals(target) || current.endsWith("/" + target)
+                || storageBackend.stat(file.getFilePath()).isEmpty()) {
+            return false;
+        }
+
+        // Остаток прерванной попытки
+        storageBackend.delete(target);
+        storageBackend.copy(file.getFilePath(), target);
+
+        // Сначала появляется новая ссылка, затем меняется путь в БД и только потом удаляется старый файл:
+        // параллельное скачивание видит либо старый, либо новый путь, и оба существуют. Старый удаляется
+        // с задержкой: скачивание, прочитавшее старый путь до смены, ещё может его открывать
+        if (fileRepository.updateFilePath(file.getId(), file.getFilePath(), target) == 0) {
+            storageBackend.delete(target);
+            return false;
+        }
+
+        deferredFileDeleter.deleteLater(file.getFilePath(), deleteDelay);
+        return true;
+    }
+}
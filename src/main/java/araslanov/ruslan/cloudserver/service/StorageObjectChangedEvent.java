@@ -0,0 +1,5 @@
+package araslanov.ruslan.cloudserver.service;
+
+// Публикуется после удаления или перезаписи объекта хранилища, чтобы сбросить закэшированное содержимое
+public record StorageObjectChangedEvent(String key) {
+}
@@ -0,0 +1,394 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.Blob;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.repository.FileLocation;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import araslanov.ruslan.cloudserver.util.BloomFilter;
+import araslanov.ruslan.cloudserver.util.RateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Сверяет локальное хранилище с user_files и blobs. Обе стороны сводятся через Bloom-фильтры,
+// поэтому память не зависит от числа файлов: ключи из БД проверяются по фильтру файлов на диске и наоборот.
+// Файлы без записи в БД старше grace-period переносятся в карантин, записи без файла попадают в отчёт
+@Component
+public class StorageReconciler {
+
+    static final String QUARANTINE_DIRECTORY = ".quarantine";
+    // Части upload-сессий живут по своему TTL и удаляются вместе с сессией
+    private static final Set<String> SKIPPED_DIRECTORIES = Set.of(QUARANTINE_DIRECTORY, ".uploads");
+    private static final int REPORT_SAMPLE_SIZE = 100;
+
+    private final UserFileRepository fileRepository;
+    private final BlobRepository blobRepository;
+    private final StorageBackend storageBackend;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final Duration quarantineRetention;
+    private final int parallelism;
+    private final int batchSize;
+    private final double maxOpsPerSecond;
+    private final double falsePositiveRate;
+    private final int maxQuarantinePerRun;
+
+    private volatile Report lastReport;
+
+    public StorageReconciler(UserFileRepository fileRepository,
+                             BlobRepository blobRepository,
+                             StorageBackend storageBackend,
+                             @Value("${cloud.storage.reconcile.enabled:false}") boolean enabled,
+                             @Value("${cloud.storage.reconcile.grace-period:24h}") Duration gracePeriod,
+                             @Value("${cloud.storage.reconcile.quarantine-retention:7d}") Duration quarantineRetention,
+                             @Value("${cloud.storage.reconcile.parallelism:4}") int parallelism,
+                             @Value("${cloud.storage.reconcile.batch-size:1000}") int batchSize,
+                             @Value("${cloud.storage.reconcile.max-ops-per-second:1000}") double maxOpsPerSecond,
+                             @Value("${cloud.storage.reconcile.false-positive-rate:0.01}") double falsePositiveRate,
+                             @Value("${cloud.storage.reconcile.max-quarantine-per-run:10000}") int maxQuarantinePerRun) {
+        this.fileRepository = fileRepository;
+        this.blobRepository = blobRepository;
+        this.storageBackend = storageBackend;
+        this.enabled = enabled;
+        this.gracePeriod = gracePeriod;
+        this.quarantineRetention = quarantineRetention;
+        this.parallelism = parallelism;
+        this.batchSize = batchSize;
+        this.maxOpsPerSecond = maxOpsPerSecond;
+        this.falsePositiveRate = falsePositiveRate;
+        this.maxQuarantinePerRun = maxQuarantinePerRun;
+    }
+
+    @Scheduled(initialDelayString = "${cloud.storage.reconcile.initial-delay-ms:600000}",
+            fixedDelayString = "${cloud.storage.reconcile.interval-ms:86400000}")
+    public void reconcile() {
+        // Обход каталогов есть только у локального хранилища
+        if (!enabled || !(storageBackend instanceof LocalStorageBackend local)) {
+            return;
+        }
+
+        try {
+            Report report = run(local.getRoot());
+            System.out.println("Storage reconciliation: scanned " + report.getScannedFiles() + " files, orphans "
+                    + report.getOrphans() + ", quarantined " + report.getQuarantined() + ", dangling rows "
+                    + report.getDanglingRows() + ", purged from quarantine " + report.getPurged());
+            if (!report.getDanglingSample().isEmpty()) {
+                System.err.println("Rows pointing at missing files: " + report.getDanglingSample());
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Storage reconciliation failed: " + e.getMessage());
+        }
+    }
+
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    Report run(Path storageRoot) throws IOException {
+        Path root = storageRoot.toAbsolutePath().normalize();
+        RateLimiter limiter = new RateLimiter(maxOpsPerSecond);
+        Report report = new Report();
+
+        // Запас на файлы, появившиеся за время обхода
+        long expected = (fileRepository.count() + blobRepository.count()) * 5 / 4 + 1;
+        BloomFilter databaseKeys = BloomFilter.create(expected, falsePositiveRate);
+        BloomFilter diskKeys = BloomFilter.create(expected, falsePositiveRate);
+
+        forEachDatabaseKey(storageRoot, root, limiter, (key, reference) -> databaseKeys.put(key));
+
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        Queue<String> candidates = new ConcurrentLinkedQueue<>();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new DirectoryTask(root, root, limiter, cutoff, databaseKeys, diskKeys, candidates, report));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        quarantine(storageRoot, root, new ArrayList<>(candidates), report);
+
+        forEachDatabaseKey(storageRoot, root, limiter, (key, reference) -> {
+            if (diskKeys.mightContain(key)) {
+                return;
+            }
+            // Фильтр не ошибается в эту сторону, но файл мог появиться уже после обхода
+            limiter.acquire(1);
+            if (!Files.exists(root.resolve(key))) {
+                report.addDangling(reference);
+            }
+        });
+
+        purgeQuarantine(root, report);
+        lastReport = report;
+        return report;
+    }
+
+    private void forEachDatabaseKey(Path storageRoot, Path root, RateLimiter limiter, KeyConsumer consumer) {
+        long lastId = 0;
+        List<FileLocation> files;
+        do {
+            files = fileRepository.findLocationsAfter(lastId, PageRequest.of(0, batchSize));
+            limiter.acquire(files.size());
+            for (FileLocation file : files) {
+                consumer.accept(toKey(storageRoot, root, file.getFilePath()), "user_files#" + file.getId());
+                lastId = file.getId();
+            }
+        } while (files.size() == batchSize);
+
+        String lastHash = "";
+        List<Blob> blobs;
+        do {
+            blobs = blobRepository.findByHashGreaterThanOrderByHash(lastHash, PageRequest.of(0, batchSize));
+            limiter.acquire(blobs.size());
+            for (Blob blob : blobs) {
+                consumer.accept(toKey(storageRoot, root, blob.getFilePath()), "blobs#" + blob.getHash());
+                lastHash = blob.getHash();
+            }
+        } while (blobs.size() == batchSize);
+    }
+
+    // Кандидат переносится только после точной проверки по БД: фильтр мог пропустить ключ, которого там нет,
+    // но не наоборот, а запись могла появиться уже после построения фильтра
+    private void quarantine(Path storageRoot, Path root, List<String> candidates, Report report) throws IOException {
+        String quarantineDay = QUARANTINE_DIRECTORY + "/" + LocalDate.now(ZoneOffset.UTC);
+
+        for (int from = 0; from < candidates.size(); from += batchSize) {
+            List<String> batch = candidates.subList(from, Math.min(from + batchSize, candidates.size()));
+
+            // Старые записи хранят путь вместе с корнем хранилища
+            Set<String> paths = new HashSet<>();
+            for (String key : batch) {
+                paths.add(key);
+                paths.add(storageRoot.resolve(key).toString());
+                paths.add(root.resolve(key).toString());
+            }
+            Set<String> referenced = new HashSet<>();
+            for (String path : fileRepository.findExistingFilePaths(paths)) {
+                referenced.add(toKey(storageRoot, root, path));
+            }
+            for (String path : blobRepository.findExistingFilePaths(paths)) {
+                referenced.add(toKey(storageRoot, root, path));
+            }
+
+            for (String key : batch) {
+                if (referenced.contains(key)) {
+                    continue;
+                }
+                try {
+                    storageBackend.move(key, quarantineDay + "/" + key);
+                    report.quarantined.incrementAndGet();
+                } catch (NoSuchFileException e) {
+                    // Удалён после обхода
+                }
+            }
+        }
+    }
+
+    // Каталоги карантина называются датой переноса и удаляются целиком по истечении срока хранения
+    private void purgeQuarantine(Path root, Report report) throws IOException {
+        Path quarantine = root.resolve(QUARANTINE_DIRECTORY);
+        if (!Files.isDirectory(quarantine)) {
+            return;
+        }
+
+        LocalDate oldest = LocalDate.now(ZoneOffset.UTC).minusDays(quarantineRetention.toDays());
+        try (DirectoryStream<Path> days = Files.newDirectoryStream(quarantine)) {
+            for (Path day : days) {
+                LocalDate date;
+                try {
+                    date = LocalDate.parse(day.getFileName().toString());
+                } catch (DateTimeParseException e) {
+                    continue;
+                }
+                if (date.isBefore(oldest)) {
+                    report.purged.addAndGet(deleteTree(day));
+                }
+            }
+        }
+    }
+
+    private static long deleteTree(Path directory) throws IOException {
+        long files = 0;
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                if (Files.isRegularFile(path)) {
+                    files++;
+                }
+                Files.deleteIfExists(path);
+            }
+        }
+        return files;
+    }
+
+    // Ключ относительно корня хранилища, с прямыми слэшами; пути вне корня остаются как есть и ни с чем не совпадут
+    static String toKey(Path storageRoot, Path root, String filePath) {
+        Path path = Paths.get(filePath);
+        if (!path.isAbsolute() && !path.normalize().startsWith(storageRoot.normalize())) {
+            path = root.resolve(path);
+        }
+        path = path.toAbsolutePath().normalize();
+        String key = path.startsWith(root) ? root.relativize(path).toString() : path.toString();
+        return key.replace('\\', '/');
+    }
+
+    // ctime меняется и при жёсткой ссылке или переименовании (миграция раскладки, перенос из staging),
+    // поэтому свежий по ctime файл не считается сиротой, даже если mtime у него старый
+    private static Instant changedAt(Path file, BasicFileAttributes attributes) {
+        Instant changed = attributes.lastModifiedTime().toInstant();
+        try {
+            FileTime ctime = (FileTime) Files.getAttribute(file, "unix:ctime");
+            if (ctime.toInstant().isAfter(changed)) {
+                changed = ctime.toInstant();
+            }
+        } catch (UnsupportedOperationException | IllegalArgumentException | IOException e) {
+            // Не Unix: остаётся mtime
+        }
+        return changed;
+    }
+
+    @FunctionalInterface
+    private interface KeyConsumer {
+        void accept(String key, String reference);
+    }
+
+    private class DirectoryTask extends RecursiveAction {
+        private final Path root;
+        private final Path directory;
+        private final RateLimiter limiter;
+        private final Instant cutoff;
+        private final BloomFilter databaseKeys;
+        private final BloomFilter diskKeys;
+        private final Queue<String> candidates;
+        private final Report report;
+
+        DirectoryTask(Path root, Path directory, RateLimiter limiter, Instant cutoff, BloomFilter databaseKeys,
+                      BloomFilter diskKeys, Queue<String> candidates, Report report) {
+            this.root = root;
+            this.directory = directory;
+            this.limiter = limiter;
+            this.cutoff = cutoff;
+            this.databaseKeys = databaseKeys;
+            this.diskKeys = diskKeys;
+            this.candidates = candidates;
+            this.report = report;
+        }
+
+        @Override
+        protected void compute() {
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                limiter.acquire(1);
+                for (Path entry : entries) {
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+                    } catch (NoSuchFileException e) {
+                        // Удалён во время обхода
+                        continue;
+                    }
+                    if (attributes.isDirectory()) {
+                        if (!directory.equals(root) || !SKIPPED_DIRECTORIES.contains(entry.getFileName().toString())) {
+                            subdirectories.add(new DirectoryTask(root, entry, limiter, cutoff, databaseKeys,
+                                    diskKeys, candidates, report));
+                        }
+                    } else if (attributes.isRegularFile()) {
+                        limiter.acquire(1);
+                        visitFile(entry, attributes);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // Каталог удалён вместе с последним файлом
+                return;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            invokeAll(subdirectories);
+        }
+
+        private void visitFile(Path file, BasicFileAttributes attributes) {
+            String key = root.relativize(file).toString().replace('\\', '/');
+            diskKeys.put(key);
+            report.scannedFiles.incrementAndGet();
+
+            if (databaseKeys.mightContain(key) || changedAt(file, attributes).isAfter(cutoff)) {
+                return;
+            }
+            // Счёт ведётся по всем сиротам, а переносится не больше лимита за проход
+            if (report.orphans.incrementAndGet() <= maxQuarantinePerRun) {
+                candidates.add(key);
+            }
+        }
+    }
+
+    public static class Report {
+        private final AtomicLong scannedFiles = new AtomicLong();
+        private final AtomicLong orphans = new AtomicLong();
+        private final AtomicLong quarantined = new AtomicLong();
+        private final AtomicLong purged = new AtomicLong();
+        private long danglingRows;
+        private final List<String> danglingSample = new ArrayList<>();
+
+        void addDangling(String reference) {
+            danglingRows++;
+            if (danglingSample.size() < REPORT_SAMPLE_SIZE) {
+                danglingSample.add(reference);
+            }
+        }
+
+        public long getScannedFiles() {
+            return scannedFiles.get();
+        }
+
+        public long getOrphans() {
+            return orphans.get();
+        }
+
+        public long getQuarantined() {
+            return quarantined.get();
+        }
+
+        public long getPurged() {
+            return purged.get();
+        }
+
+        public long getDanglingRows() {
+            return danglingRows;
+        }
+
+        public List<String> getDanglingSample() {
+            return Collections.unmodifiableList(danglingSample);
+        }
+    }
+}
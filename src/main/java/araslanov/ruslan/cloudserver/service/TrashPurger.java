@@ -0,0 +1,56 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+// Физически удаляет файлы, пролежавшие в корзине дольше срока хранения
+@Component
+public class TrashPurger {
+
+    private final TrashService trashService;
+    private final int batchSize;
+
+    public TrashPurger(TrashService trashService,
+                       @Value("${cloud.storage.trash.purge.batch-size:500}") int batchSize) {
+        this.trashService = trashService;
+        this.batchSize = batchSize;
+    }
+
+    // Пачки — отдельные транзакции, как и при плановой очистке: большая корзина не держит одну длинную
+    public long emptyTrash(User user, String filename) throws IOException {
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = trashService.purgeTrash(user, filename, batchSize);
+            purged += deleted;
+        } while (deleted == batchSize);
+
+        if (purged == 0 && filename != null) {
+            throw new IllegalArgumentException("File not found in trash: " + filename);
+        }
+        return purged;
+    }
+
+    @Scheduled(initialDelayString = "${cloud.storage.trash.purge.initial-delay-ms:60000}",
+            fixedDelayString = "${cloud.storage.trash.purge.interval-ms:600000}")
+    public void purge() {
+        long purged = 0;
+        try {
+            int deleted;
+            do {
+                deleted = trashService.purgeExpired(batchSize);
+                purged += deleted;
+            } while (deleted == batchSize);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Trash purge failed: " + e.getMessage());
+        }
+
+        if (purged > 0) {
+            System.out.println("Trash purge: removed " + purged + " files");
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.TrashItemResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Корзина: удалённые файлы можно восстановить в течение retention, потом TrashPurger удаляет их пачками.
+// До физического удаления файл занимает место и учитывается в квоте; освободить его сразу можно очисткой корзины
+@Service
+@Transactional
+public class TrashService {
+
+    private final UserFileRepository fileRepository;
+    private final BlobService blobService;
+    private final QuotaService quotaService;
+    private final DeferredFileDeleter deferredFileDeleter;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Duration retention;
+    private final int maxListLimit;
+
+    public TrashService(UserFileRepository fileRepository,
+                        BlobService blobService,
+                        QuotaService quotaService,
+                        DeferredFileDeleter deferredFileDeleter,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${cloud.storage.trash.retention:30d}") Duration retention,
+                        @Value("${cloud.storage.list.max-limit:1000}") int maxListLimit) {
+        this.fileRepository = fileRepository;
+        this.blobService = blobService;
+        this.quotaService = quotaService;
+        this.deferredFileDeleter = deferredFileDeleter;
+        this.eventPublisher = eventPublisher;
+        this.retention = retention;
+        this.maxListLimit = maxListLimit;
+    }
+
+    public List<TrashItemResponse> getTrash(User user) {
+        List<UserFile> files = fileRepository.findTrash(user, restorableSince(), PageRequest.of(0, maxListLimit));
+
+        List<TrashItemResponse> items = new ArrayList<>(files.size());
+        for (UserFile file : files) {
+            items.add(new TrashItemResponse(file.getFilename(), file.getSize(), file.getDeletedAt(),
+                    file.getDeletedAt().plus(retention)));
+        }
+        return items;
+    }
+
+    // В корзине может быть несколько версий одного имени: восстанавливается удалённая последней
+    public void restoreFile(User user, String filename) {
+        UserFile file = fileRepository.findTrashedByFilename(user, filename, restorableSince(), PageRequest.of(0, 1))
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("File not found in trash: " + filename));
+
+        if (fileRepository.existsByUserAndFilename(user, filename)) {
+            throw new IllegalArgumentException("File already exists: " + filename);
+        }
+
+        file.setDeletedAt(null);
+        fileRepository.save(file);
+        eventPublisher.publishEvent(FileListChangedEvent.of(user.getId(), List.of(file), List.of()));
+    }
+
+    // Одна пачка — одна транзакция: один DELETE по id, блобы и квоты — по одному обращению на хэш
+    // и пользователя, сами файлы удаляются параллельно после коммита
+    public int purgeExpired(int batchSize) throws IOException {
+        return purge(fileRepository.findTrashedBefore(restorableSince(), PageRequest.of(0, batchSize)));
+    }
+
+    // Очистка корзины пользователем: пачка его удалённых файлов, всех или с одним именем
+    public int purgeTrash(User user, String filename, int batchSize) throws IOException {
+        return purge(fileRepository.findTrashedByUser(user, filename, PageRequest.of(0, batchSize)));
+    }
+
+    private int purge(List<UserFile> files) throws IOException {
+        if (files.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(files.size());
+        List<String> locations = new ArrayList<>();
+        // Сортировка по ключу: блокировки строк blobs и users всегда берутся в одном порядке
+        Map<String, Integer> blobRefs = new TreeMap<>();
+        Map<Long, Long> usage = new TreeMap<>();
+        for (UserFile file : files) {
+            ids.add(file.getId());
+            usage.merge(file.getUser().getId(), file.getSize(), Long::sum);
+            if (file.getContentHash() != null) {
+                blobRefs.merge(file.getContentHash(), 1, Integer::sum);
+            } else {
+                locations.add(file.getFilePath());
+            }
+        }
+
+        fileRepository.deleteByIdIn(ids);
+        for (Map.Entry<String, Integer> ref : blobRefs.entrySet()) {
+            blobService.release(ref.getKey(), ref.getValue());
+        }
+        for (Map.Entry<Long, Long> used : usage.entrySet()) {
+            quotaService.releaseUsage(used.getKey(), used.getValue());
+        }
+        deferredFileDeleter.deleteAfterCommit(locations);
+
+        return ids.size();
+    }
+
+    private LocalDateTime restorableSince() {
+        return LocalDateTime.now().minus(retention);
+    }
+}
@@ -0,0 +1,205 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.UploadSession;
+import araslanov.ruslan.cloudserver.entity.UploadSessionPart;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.repository.UploadSessionPartRepository;
+import araslanov.ruslan.cloudserver.repository.UploadSessionRepository;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+@Service
+public class UploadSessionService {
+
+    private static final String UPLOADS_DIRECTORY = ".uploads";
+
+    private final UploadSessionRepository sessionRepository;
+    private final UploadSessionPartRepository partRepository;
+    private final FileStorageService fileStorageService;
+    private final StorageBackend storageBackend;
+    private final QuotaService quotaService;
+    private final long maxPartSize;
+    private final int maxParts;
+    private final Duration sessionTtl;
+
+    public UploadSessionService(
+            UploadSessionRepository sessionRepository,
+            UploadSessionPartRepository partRepository,
+            FileStorageService fileStorageService,
+            StorageBackend storageBackend,
+            QuotaService quotaService,
+            @Value("${cloud.storage.upload-session.max-part-size:5GB}") DataSize maxPartSize,
+            @Value("${cloud.storage.upload-session.max-parts:10000}") int maxParts,
+            @Value("${cloud.storage.upload-session.ttl:24h}") Duration sessionTtl) {
+        this.sessionRepository = sessionRepository;
+        this.partRepository = partRepository;
+        this.fileStorageService = fileStorageService;
+        this.storageBackend = storageBackend;
+        this.quotaService = quotaService;
+        this.maxPartSize = maxPartSize.toBytes();
+        this.maxParts = maxParts;
+        this.sessionTtl = sessionTtl;
+    }
+
+    public UploadSession createSession(User user, String filename) {
+        fileStorageService.checkNewFilename(user, filename);
+
+        UploadSession session = new UploadSession(
+                UUID.randomUUID().toString(),
+                user,
+                filename,
+                LocalDateTime.now().plus(sessionTtl));
+
+        UploadSession saved = sessionRepository.save(session);
+        quotaService.openSessionReservation(saved.getId(), user.getId(), saved.getExpiresAt());
+        return saved;
+    }
+
+    public void uploadPart(User user, String sessionId, int partNumber,
+                           InputStream content, long contentLength) throws IOException {
+        if (partNumber < 1 || partNumber > maxParts) {
+            throw new IllegalArgumentException("Invalid part number: " + partNumber);
+        }
+
+        if (contentLength > maxPartSize) {
+            throw new MaxUploadSizeExceededException(maxPartSize);
+        }
+
+        UploadSession session = getSession(user, sessionId);
+
+        // Пишем во временный объект, чтобы повторная отправка части не испортила уже принятую
+        String partKey = getPartKey(session.getId(), partNumber);
+        String tempKey = getSessionDirectory(session.getId()) + "/" + partNumber + "." + UUID.randomUUID() + ".tmp";
+
+        // Части лежат на диске до commit, поэтому их байты сразу занимают место в резерве сессии
+        QuotaReservingInputStream reserving = new QuotaReservingInputStream(content, quotaService,
+                quotaService.reservePart(session.getId(), user.getId(), contentLength), 0, maxPartSize);
+        long size;
+        try {
+            size = fileStorageService.writeContent(reserving, tempKey, maxPartSize);
+            if (size == 0) {
+                throw new IllegalArgumentException("Part is empty");
+            }
+            storageBackend.move(tempKey, partKey);
+        } catch (IOException | RuntimeException e) {
+            storageBackend.delete(tempKey);
+            quotaService.releaseBytes(reserving.getReservation(), reserving.getReservation().bytes());
+            throw e;
+        }
+
+        // Возвращаются остаток последней порции и место части, которую заменила повторная отправка
+        long excess = reserving.getReservation().bytes() - size;
+        excess += partRepository.findById(new UploadSessionPart.PartId(session.getId(), partNumber))
+                .map(UploadSessionPart::getSize)
+                .orElse(0L);
+        partRepository.save(new UploadSessionPart(session.getId(), partNumber, size));
+        quotaService.releaseBytes(reserving.getReservation(), excess);
+    }
+
+    public UploadSession getSession(User user, String sessionId) {
+        return sessionRepository.findByIdAndUser(sessionId, user)
+                .filter(session -> session.getExpiresAt().isAfter(LocalDateTime.now()))
+                .orElseThrow(() -> new IllegalArgumentException("Upload session not found: " + sessionId));
+    }
+
+    public List<UploadSessionPart> getParts(UploadSession session) {
+        return partRepository.findBySessionIdOrderByPartNumber(session.getId());
+    }
+
+    public void commit(User user, String sessionId) throws IOException {
+        UploadSession session = getSession(user, sessionId);
+        List<UploadSessionPart> parts = getParts(session);
+
+        if (parts.isEmpty()) {
+            throw new IllegalArgumentException("No parts uploaded");
+        }
+
+        long totalSize = 0;
+        for (int i = 0; i < parts.size(); i++) {
+            if (parts.get(i).getPartNumber() != i + 1) {
+                throw new IllegalArgumentException("Missing part: " + (i + 1));
+            }
+            totalSize += parts.get(i).getSize();
+        }
+
+        if (totalSize > fileStorageService.getMaxStreamSize()) {
+            throw new MaxUploadSizeExceededException(fileStorageService.getMaxStreamSize());
+        }
+
+        fileStorageService.checkNewFilename(user, session.getFilename());
+
+        String stagedKey = fileStorageService.newStagingLocation();
+        try {
+            assembleParts(session.getId(), parts, stagedKey);
+            fileStorageService.storeAssembledFile(user, session.getFilename(), stagedKey, totalSize,
+                    quotaService.findReservation(session.getId()).orElse(null));
+        } catch (IOException | RuntimeException e) {
+            storageBackend.delete(stagedKey);
+            throw e;
+        }
+
+        removeSession(session);
+    }
+
+    public void abort(User user, String sessionId) {
+        removeSession(getSession(user, sessionId));
+    }
+
+    @Scheduled(fixedDelayString = "${cloud.storage.upload-session.cleanup-interval-ms:3600000}")
+    public void removeExpiredSessions() {
+        for (UploadSession session : sessionRepository.findByExpiresAtBefore(LocalDateTime.now())) {
+            removeSession(session);
+        }
+    }
+
+    // Склейку выполняет хранилище: локально через transferTo, в S3 - копированием частей на сервере
+    private void assembleParts(String sessionId, List<UploadSessionPart> parts,
+                               String targetKey) throws IOException {
+        List<String> partKeys = new ArrayList<>();
+        for (UploadSessionPart part : parts) {
+            String partKey = getPartKey(sessionId, part.getPartNumber());
+            long size = storageBackend.stat(partKey).map(object -> object.size()).orElse(-1L);
+            if (size != part.getSize()) {
+                throw new IOException("Part " + part.getPartNumber() + " is corrupted");
+            }
+            partKeys.add(partKey);
+        }
+
+        storageBackend.concat(partKeys, targetKey);
+    }
+
+    private void removeSession(UploadSession session) {
+        List<UploadSessionPart> parts = getParts(session);
+        sessionRepository.delete(session);
+        // После commit резерва уже нет: он переведён в занятое место вместе с записью о файле
+        quotaService.findReservation(session.getId()).ifPresent(quotaService::release);
+
+        for (UploadSessionPart part : parts) {
+            try {
+                storageBackend.delete(getPartKey(session.getId(), part.getPartNumber()));
+            } catch (IOException e) {
+                System.err.println("Could not remove upload session part: " + e.getMessage());
+            }
+        }
+    }
+
+    private String getSessionDirectory(String sessionId) {
+        return UPLOADS_DIRECTORY + "/" + sessionId;
+    }
+
+    private String getPartKey(String sessionId, int partNumber) {
+        return getSessionDirectory(sessionId) + "/" + partNumber;
+    }
+}
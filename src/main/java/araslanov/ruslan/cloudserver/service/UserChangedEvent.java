@@ -0,0 +1,5 @@
+package araslanov.ruslan.cloudserver.service;
+
+// Публикуется при любом изменении пользователя, чтобы сбросить закэшированный principal
+public record UserChangedEvent(String login) {
+}
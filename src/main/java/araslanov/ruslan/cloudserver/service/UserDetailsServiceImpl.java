@@ -2,32 +2,62 @@ package araslanov.ruslan.cloudserver.service;
 
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.repository.UserRepository;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
-import java.util.ArrayList;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
 
 @Service
-@Transactional
 public class UserDetailsServiceImpl implements UserDetailsService {
 
     private final UserRepository userRepository;
+    // JWT-фильтр вызывает loadUserByUsername на каждый запрос, поэтому principal кэшируется
+    private final Cache<String, AuthenticatedUser> principalCache;
 
-    public UserDetailsServiceImpl(UserRepository userRepository) {
+    public UserDetailsServiceImpl(UserRepository userRepository,
+                                  @Value("${cloud.security.user-cache.max-size:10000}") long maxSize,
+                                  @Value("${cloud.security.user-cache.ttl:5m}") Duration ttl) {
         this.userRepository = userRepository;
+        this.principalCache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
     }
 
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
+        // Отсутствующие пользователи не кэшируются: исключение из загрузчика не сохраняется в кэше
+        return principalCache.get(username, this::loadPrincipal);
+    }
+
+    public Cache<String, AuthenticatedUser> getPrincipalCache() {
+        return principalCache;
+    }
+
+    public CacheStats getCacheStats() {
+        return principalCache.stats();
+    }
+
+    // После коммита, чтобы параллельный запрос не успел закэшировать старое состояние
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onUserChanged(UserChangedEvent event) {
+        principalCache.invalidate(event.login());
+    }
+
+    private AuthenticatedUser loadPrincipal(String username) {
         User user = userRepository.findByLogin(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + username));
 
-        return new org.springframework.security.core.userdetails.User(
-                user.getLogin(),
-                user.getPassword(),
-                new ArrayList<>()
-        );
+        return new AuthenticatedUser(user.getId(), user.getLogin(), user.getPassword(), user.isEnabled());
     }
 }
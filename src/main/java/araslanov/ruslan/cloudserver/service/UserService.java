@@ -3,6 +3,7 @@ package araslanov.ruslan.cloudserver.service;
 import araslanov.ruslan.cloudserver.dto.RegisterRequest;
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.repository.UserRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -14,10 +15,13 @@ public class UserService {
 
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder) {
+    public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
+                       ApplicationEventPublisher eventPublisher) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
+        this.eventPublisher = eventPublisher;
     }
 
     public User registerUser(RegisterRequest request) {
@@ -29,11 +33,26 @@ public class UserService {
         user.setLogin(request.getLogin());
         user.setPassword(passwordEncoder.encode(request.getPassword()));
 
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(saved.getLogin()));
+        return saved;
+    }
+
+    // Пересчитанный хэш пароля; событие сбрасывает закэшированный principal со старым хэшем
+    public void updatePasswordHash(String login, String passwordHash) {
+        User user = findByLogin(login);
+        user.setPassword(passwordHash);
+        userRepository.save(user);
+        eventPublisher.publishEvent(new UserChangedEvent(login));
     }
 
     public User findByLogin(String login) {
         return userRepository.findByLogin(login)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found: " + login));
     }
-}
\ No newline at end of file
+
+    // Ссылка без запроса к БД: id берётся из principal, сам пользователь уже проверен при аутентификации
+    public User getReference(Long id) {
+        return userRepository.getReferenceById(id);
+    }
+}
@@ -0,0 +1,31 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+public enum ContentCodec {
+    IDENTITY("identity"),
+    GZIP("gzip");
+
+    private static final int DECODE_BUFFER_SIZE = 64 * 1024;
+
+    // Совпадает со значением HTTP-заголовка Content-Encoding
+    private final String contentEncoding;
+
+    ContentCodec(String contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public InputStream encode(InputStream in, int level) {
+        return this == GZIP ? new GzipCompressingInputStream(in, level) : in;
+    }
+
+    public InputStream decode(InputStream in) throws IOException {
+        return this == GZIP ? new GZIPInputStream(in, DECODE_BUFFER_SIZE) : in;
+    }
+}
@@ -0,0 +1,94 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Отдаёт gzip-представление исходного потока по мере чтения, не держа файл целиком в памяти.
+// Нужен, потому что StorageBackend.put принимает InputStream, а GZIPOutputStream пишет в OutputStream
+public class GzipCompressingInputStream extends InputStream {
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final InputStream source;
+    private final ExposedBuffer buffer = new ExposedBuffer();
+    private final GZIPOutputStream gzip;
+    private final byte[] chunk = new byte[CHUNK_SIZE];
+    private int position;
+    private boolean finished;
+
+    public GzipCompressingInputStream(InputStream source, int level) {
+        this.source = source;
+        try {
+            this.gzip = new GZIPOutputStream(buffer, CHUNK_SIZE) {
+                {
+                    def.setLevel(level);
+                }
+            };
+        } catch (IOException e) {
+            // Запись заголовка в память не может завершиться ошибкой
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+
+        // Deflater копит данные внутри, поэтому одна порция исходника может не дать ни байта
+        while (position >= buffer.size() && !finished) {
+            fill();
+        }
+
+        int available = buffer.size() - position;
+        if (available <= 0) {
+            return -1;
+        }
+
+        int count = Math.min(len, available);
+        System.arraycopy(buffer.bytes(), position, b, off, count);
+        position += count;
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            gzip.close();
+        } finally {
+            source.close();
+        }
+    }
+
+    private void fill() throws IOException {
+        buffer.reset();
+        position = 0;
+
+        int read = source.read(chunk);
+        if (read == -1) {
+            gzip.finish();
+            finished = true;
+        } else {
+            gzip.write(chunk, 0, read);
+        }
+    }
+
+    private static class ExposedBuffer extends ByteArrayOutputStream {
+        ExposedBuffer() {
+            super(CHUNK_SIZE);
+        }
+
+        byte[] bytes() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Хранит всё в heap: для тестов и бенчмарков
+public class InMemoryStorageBackend implements StorageBackend {
+
+    private record Entry(byte[] data, Instant lastModified) {
+    }
+
+    private final Map<String, Entry> objects = new ConcurrentHashMap<>();
+
+    @Override
+    public long put(String key, InputStream content) throws IOException {
+        byte[] data = content.readAllBytes();
+        objects.put(key, new Entry(data, Instant.now()));
+        return data.length;
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return new ByteArrayInputStream(require(key).data());
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        byte[] data = require(key).data();
+        int from = (int) Math.min(offset, data.length);
+        int count = (int) Math.min(length, data.length - from);
+        return new ByteArrayInputStream(data, from, count);
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, WritableByteChannel target) throws IOException {
+        byte[] data = require(key).data();
+        if (offset + length > data.length) {
+            throw new IOException("Range exceeds object size: " + key);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(data, (int) offset, (int) length);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return objects.remove(key) != null;
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) {
+        Entry entry = objects.get(key);
+        if (entry == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new StorageObject(key, entry.data().length, entry.lastModified()));
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        objects.put(targetKey, require(sourceKey));
+        objects.remove(sourceKey);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) throws IOException {
+        objects.put(targetKey, require(sourceKey));
+    }
+
+    @Override
+    public void concat(List<String> sourceKeys, String targetKey) throws IOException {
+        List<InputStream> streams = new ArrayList<>();
+        for (String sourceKey : sourceKeys) {
+            streams.add(get(sourceKey));
+        }
+        put(targetKey, new SequenceInputStream(Collections.enumeration(streams)));
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    private Entry require(String key) throws IOException {
+        Entry entry = objects.get(key);
+        if (entry == null) {
+            throw new NoSuchFileException(key);
+        }
+        return entry;
+    }
+}
@@ -0,0 +1,306 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+// Запись идёт во временный файл в .staging и атомарно переименовывается на место: по ключу никогда не виден
+// недописанный файл. При durability FSYNC метод возвращается только после fsync данных и каталога,
+// поэтому строка в БД, сохранённая после записи, не может ссылаться на обрезанный файл
+public class LocalStorageBackend implements StorageBackend {
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final String STAGING_DIRECTORY = ".staging";
+    // На Windows каталог нельзя открыть для fsync, записи каталога там и так синхронны
+    private static final boolean DIRECTORY_SYNC = !System.getProperty("os.name", "").startsWith("Windows");
+
+    private final Path root;
+    private final Path staging;
+    private final StorageDurability durability;
+
+    public LocalStorageBackend(Path root) {
+        this(root, StorageDurability.NONE);
+    }
+
+    public LocalStorageBackend(Path root, StorageDurability durability) {
+        this.root = root.normalize();
+        this.staging = this.root.resolve(STAGING_DIRECTORY);
+        this.durability = durability;
+        try {
+            if (!Files.exists(root)) {
+                Files.createDirectories(root);
+                System.out.println("Base storage directory created: " + root);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create storage directory", e);
+        }
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public StorageDurability getDurability() {
+        return durability;
+    }
+
+    @Override
+    public long put(String key, InputStream content) throws IOException {
+        Path target = resolve(key);
+        Path staged = newStagingFile();
+
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+        long written = 0;
+
+        try {
+            try (FileChannel channel = FileChannel.open(staged, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                int read;
+                while ((read = content.read(chunk)) != -1) {
+                    buffer.clear().limit(read);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                    written += read;
+                }
+                syncFile(channel);
+            }
+            publish(staged, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+
+        return written;
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        return new RangeInputStream(FileChannel.open(resolve(key), StandardOpenOption.READ), offset, length);
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, WritableByteChannel target) throws IOException {
+        try (FileChannel channel = FileChannel.open(resolve(key), StandardOpenOption.READ)) {
+            transfer(channel, offset, length, target);
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        Path path = resolve(key);
+        boolean deleted = Files.deleteIfExists(path);
+        pruneEmptyDirectories(path);
+        return deleted;
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(resolve(key), BasicFileAttributes.class);
+            return Optional.of(new StorageObject(key, attributes.size(), attributes.lastModifiedTime().toInstant()));
+        } catch (NoSuchFileException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        Path source = resolve(sourceKey);
+        publish(source, resolve(targetKey));
+        pruneEmptyDirectories(source);
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) throws IOException {
+        Path source = resolve(sourceKey);
+        Path target = resolve(targetKey);
+        List<Path> createdDirectories = createDirectories(target.getParent());
+        Files.deleteIfExists(target);
+
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(source, target);
+            if (durability != StorageDurability.NONE) {
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.READ)) {
+                    syncFile(channel);
+                }
+            }
+        }
+        syncDirectories(createdDirectories);
+    }
+
+    @Override
+    public void concat(List<String> sourceKeys, String targetKey) throws IOException {
+        Path target = resolve(targetKey);
+        Path staged = newStagingFile();
+
+        try {
+            try (FileChannel out = FileChannel.open(staged, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.WRITE)) {
+                for (String sourceKey : sourceKeys) {
+                    try (FileChannel in = FileChannel.open(resolve(sourceKey), StandardOpenOption.READ)) {
+                        transfer(in, 0, in.size(), out);
+                    }
+                }
+                syncFile(out);
+            }
+            publish(staged, target);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(staged);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.of(resolve(key));
+    }
+
+    Path resolve(String key) {
+        Path path = Paths.get(key);
+        // Старые записи user_files хранят полный путь, включая корень хранилища
+        if (path.isAbsolute() || path.normalize().startsWith(root)) {
+            return path;
+        }
+        return root.resolve(path);
+    }
+
+    private Path newStagingFile() throws IOException {
+        Files.createDirectories(staging);
+        return staging.resolve(UUID.randomUUID() + ".tmp");
+    }
+
+    // Атомарное переименование на место; затем fsync каталога, иначе после сбоя может пропасть сама запись о файле
+    private void publish(Path source, Path target) throws IOException {
+        List<Path> createdDirectories = createDirectories(target.getParent());
+        Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectories(createdDirectories);
+    }
+
+    // Возвращает каталог и все созданные над ним: каждый новый каталог должен попасть на диск в своём родителе
+    private static List<Path> createDirectories(Path directory) throws IOException {
+        Path existing = directory;
+        while (existing != null && !Files.isDirectory(existing)) {
+            existing = existing.getParent();
+        }
+        Files.createDirectories(directory);
+
+        List<Path> changed = new ArrayList<>();
+        for (Path current = directory; current != null; current = current.getParent()) {
+            changed.add(current);
+            if (current.equals(existing)) {
+                break;
+            }
+        }
+        return changed;
+    }
+
+    private void syncFile(FileChannel channel) throws IOException {
+        if (durability == StorageDurability.FSYNC) {
+            channel.force(false);
+        }
+    }
+
+    private void syncDirectories(List<Path> directories) throws IOException {
+        if (!DIRECTORY_SYNC || durability != StorageDurability.FSYNC) {
+            return;
+        }
+        for (Path directory : directories) {
+            try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+                channel.force(true);
+            }
+        }
+    }
+
+    private void pruneEmptyDirectories(Path file) {
+        Path directory = file.normalize().getParent();
+
+        // Каталог staging не удаляется: в него в любой момент может писать параллельная загрузка
+        while (directory != null && directory.startsWith(root) && !directory.equals(root)
+                && !directory.equals(staging)) {
+            try {
+                Files.delete(directory);
+            } catch (DirectoryNotEmptyException | NoSuchFileException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Could not cleanup directory " + directory + ": " + e.getMessage());
+                return;
+            }
+            directory = directory.getParent();
+        }
+    }
+
+    private static void transfer(FileChannel channel, long offset, long length,
+                                 WritableByteChannel target) throws IOException {
+        long position = offset;
+        long end = offset + length;
+        while (position < end) {
+            long transferred = channel.transferTo(position, end - position, target);
+            if (transferred <= 0) {
+                throw new EOFException("File is shorter than expected");
+            }
+            position += transferred;
+        }
+    }
+
+    private static class RangeInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RangeInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedMultipartUpload;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyObjectRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+// S3-совместимое хранилище (AWS, MinIO). Большие объекты пишутся multipart-загрузкой частями по partSize.
+// put держит в куче буфер в целую часть (по умолчанию 16MB) на каждую одновременную загрузку
+public class S3StorageBackend implements StorageBackend {
+
+    // Минимальный размер части multipart-загрузки в S3, кроме последней
+    static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+
+    // Максимальный размер одного CopyObject и одной части UploadPartCopy
+    static final long MAX_COPY_SIZE = 5L * 1024 * 1024 * 1024;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final S3Client client;
+    private final String bucket;
+    private final int partSize;
+
+    public S3StorageBackend(S3Client client, String bucket, long partSize) {
+        if (partSize < MIN_PART_SIZE || partSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("S3 part size must be between 5MB and 2GB");
+        }
+        this.client = client;
+        this.bucket = bucket;
+        this.partSize = (int) partSize;
+    }
+
+    @Override
+    public long put(String key, InputStream content) throws IOException {
+        // Один буфер на всю загрузку: части отдаются из него потоком, без копий
+        byte[] buffer = new byte[partSize];
+        int filled = content.readNBytes(buffer, 0, partSize);
+
+        // Объект меньше одной части - обычный PUT
+        if (filled < partSize) {
+            client.putObject(PutObjectRequest.builder().bucket(bucket).key(key).build(),
+                    body(buffer, filled));
+            return filled;
+        }
+
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).build()).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+        long total = 0;
+
+        try {
+            int partNumber = 1;
+            while (filled > 0) {
+                String etag = client.uploadPart(UploadPartRequest.builder()
+                                .bucket(bucket).key(key).uploadId(uploadId).partNumber(partNumber)
+                                .contentLength((long) filled).build(),
+                        body(buffer, filled)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                total += filled;
+                partNumber++;
+                filled = content.readNBytes(buffer, 0, partSize);
+            }
+
+            complete(key, uploadId, parts);
+            return total;
+        } catch (IOException | RuntimeException e) {
+            abort(key, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream get(String key) throws IOException {
+        try {
+            return client.getObject(GetObjectRequest.builder().bucket(bucket).key(key).build());
+        } catch (S3Exception e) {
+            throw new IOException("Could not read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public InputStream getRange(String key, long offset, long length) throws IOException {
+        if (length == 0) {
+            return InputStream.nullInputStream();
+        }
+        try {
+            return client.getObject(GetObjectRequest.builder().bucket(bucket).key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1)).build());
+        } catch (S3Exception e) {
+            throw new IOException("Could not read " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void transferTo(String key, long offset, long length, WritableByteChannel target) throws IOException {
+        byte[] chunk = new byte[COPY_BUFFER_SIZE];
+        ByteBuffer buffer = ByteBuffer.wrap(chunk);
+
+        try (InputStream in = getRange(key, offset, length)) {
+            int read;
+            while ((read = in.read(chunk)) != -1) {
+                buffer.clear().limit(read);
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        if (stat(key).isEmpty()) {
+            return false;
+        }
+        client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(key).build());
+        return true;
+    }
+
+    @Override
+    public Optional<StorageObject> stat(String key) throws IOException {
+        try {
+            HeadObjectResponse head = client.headObject(HeadObjectRequest.builder().bucket(bucket).key(key).build());
+            return Optional.of(new StorageObject(key, head.contentLength(), head.lastModified()));
+        } catch (NoSuchKeyException e) {
+            return Optional.empty();
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return Optional.empty();
+            }
+            throw new IOException("Could not stat " + key + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public void move(String sourceKey, String targetKey) throws IOException {
+        copy(sourceKey, targetKey);
+        client.deleteObject(DeleteObjectRequest.builder().bucket(bucket).key(sourceKey).build());
+    }
+
+    @Override
+    public void copy(String sourceKey, String targetKey) throws IOException {
+        long size = stat(sourceKey).orElseThrow(() -> new IOException("Object not found: " + sourceKey)).size();
+
+        // Одиночный CopyObject ограничен 5GB, крупнее - через части
+        if (size <= MAX_COPY_SIZE) {
+            client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucket).sourceKey(sourceKey)
+                    .destinationBucket(bucket).destinationKey(targetKey).build());
+            return;
+        }
+        concat(List.of(sourceKey), targetKey);
+    }
+
+    @Override
+    public void concat(List<String> sourceKeys, String targetKey) throws IOException {
+        List<Long> sizes = new ArrayList<>();
+        for (String sourceKey : sourceKeys) {
+            sizes.add(stat(sourceKey).orElseThrow(() -> new IOException("Object not found: " + sourceKey)).size());
+        }
+
+        // Серверная склейка возможна, только если все части кроме последней не меньше 5MB
+        for (int i = 0; i < sizes.size() - 1; i++) {
+            if (sizes.get(i) < MIN_PART_SIZE) {
+                concatByStreaming(sourceKeys, targetKey);
+                return;
+            }
+        }
+
+        // Пустой хвост ничего не добавляет, а пустая часть-копия S3 не принимает
+        int count = sourceKeys.size();
+        while (count > 1 && sizes.get(count - 1) == 0) {
+            count--;
+        }
+        if (count == 1 && sizes.get(0) == 0) {
+            put(targetKey, InputStream.nullInputStream());
+            return;
+        }
+
+        String uploadId = client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucket).key(targetKey).build()).uploadId();
+        List<CompletedPart> parts = new ArrayList<>();
+
+        try {
+            int partNumber = 1;
+            for (int i = 0; i < count; i++) {
+                long size = sizes.get(i);
+                // Источник до 5GB копируется одной частью; крупнее - равными диапазонами не больше 5GB,
+                // каждый из которых заведомо больше минимального размера части
+                long pieces = (size + MAX_COPY_SIZE - 1) / MAX_COPY_SIZE;
+                long pieceSize = (size + pieces - 1) / pieces;
+                for (long offset = 0; offset < size; offset += pieceSize) {
+                    UploadPartCopyRequest.Builder request = UploadPartCopyRequest.builder()
+                            .sourceBucket(bucket).sourceKey(sourceKeys.get(i))
+                            .destinationBucket(bucket).destinationKey(targetKey)
+                            .uploadId(uploadId).partNumber(partNumber);
+                    if (pieces > 1) {
+                        long end = Math.min(offset + pieceSize, size) - 1;
+                        request.copySourceRange("bytes=" + offset + "-" + end);
+                    }
+                    String etag = client.uploadPartCopy(request.build()).copyPartResult().eTag();
+                    parts.add(CompletedPart.builder().partNumber(partNumber).eTag(etag).build());
+                    partNumber++;
+                }
+            }
+
+            complete(targetKey, uploadId, parts);
+        } catch (RuntimeException e) {
+            abort(targetKey, uploadId);
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Path> localPath(String key) {
+        return Optional.empty();
+    }
+
+    private void concatByStreaming(List<String> sourceKeys, String targetKey) throws IOException {
+        List<InputStream> streams = new ArrayList<>();
+        try {
+            for (String sourceKey : sourceKeys) {
+                streams.add(get(sourceKey));
+            }
+            try (InputStream joined = new SequenceInputStream(Collections.enumeration(streams))) {
+                put(targetKey, joined);
+            }
+        } finally {
+            for (InputStream stream : streams) {
+                stream.close();
+            }
+        }
+    }
+
+    private void complete(String key, String uploadId, List<CompletedPart> parts) {
+        client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucket).key(key).uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                .build());
+    }
+
+    private void abort(String key, String uploadId) {
+        try {
+            client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucket).key(key).uploadId(uploadId).build());
+        } catch (RuntimeException e) {
+            System.err.println("Could not abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    // fromBytes копирует массив; поток над буфером - нет, а mark/reset позволяет SDK повторить запрос
+    private static RequestBody body(byte[] buffer, int length) {
+        return RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length);
+    }
+}
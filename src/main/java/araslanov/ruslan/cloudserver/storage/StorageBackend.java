@@ -0,0 +1,38 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+
+// Хранилище байтов. Ключ - относительный путь вида user_1/ab/cd/<uuid>
+public interface StorageBackend {
+
+    // Записывает поток до конца, существующий объект перезаписывается. Возвращает число байт
+    long put(String key, InputStream content) throws IOException;
+
+    InputStream get(String key) throws IOException;
+
+    InputStream getRange(String key, long offset, long length) throws IOException;
+
+    // Копирует диапазон напрямую в канал ответа; локальная реализация использует transferTo
+    void transferTo(String key, long offset, long length, WritableByteChannel target) throws IOException;
+
+    boolean delete(String key) throws IOException;
+
+    Optional<StorageObject> stat(String key) throws IOException;
+
+    // Перемещение с заменой существующего объекта
+    void move(String sourceKey, String targetKey) throws IOException;
+
+    // Копия, после которой оба ключа доступны независимо (локально - жёсткая ссылка)
+    void copy(String sourceKey, String targetKey) throws IOException;
+
+    // Склеивает объекты по порядку в новый объект без загрузки их в heap
+    void concat(List<String> sourceKeys, String targetKey) throws IOException;
+
+    // Путь на локальном диске, если объект там лежит (нужен для sendfile)
+    Optional<Path> localPath(String key);
+}
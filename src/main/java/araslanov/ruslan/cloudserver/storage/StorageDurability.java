@@ -0,0 +1,9 @@
+package araslanov.ruslan.cloudserver.storage;
+
+// Когда запись в локальное хранилище считается завершённой
+public enum StorageDurability {
+    // Без fsync: данные остаются в page cache, после сбоя питания файл может оказаться обрезанным
+    NONE,
+    // fsync файла и каталога на каждую запись
+    FSYNC
+}
@@ -0,0 +1,6 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import java.time.Instant;
+
+public record StorageObject(String key, long size, Instant lastModified) {
+}
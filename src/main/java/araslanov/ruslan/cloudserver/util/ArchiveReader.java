@@ -0,0 +1,289 @@
+package araslanov.ruslan.cloudserver.util;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+// Последовательное чтение ZIP, tar и tar.gz прямо из потока, без распаковки во временные файлы.
+// Содержимое текущей записи доступно через content() до следующего вызова next()
+public abstract class ArchiveReader {
+
+    private static final int TAR_BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public record Entry(String name, boolean directory) {
+    }
+
+    // Записи-каталоги и служебные записи tar пропускаются; null — архив закончился
+    public abstract Entry next() throws IOException;
+
+    // Поток текущей записи; close() не закрывает сам архив
+    public abstract InputStream content();
+
+    public static ArchiveReader open(InputStream in) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(in, BUFFER_SIZE);
+        buffered.mark(TAR_BLOCK_SIZE);
+        byte[] head = buffered.readNBytes(TAR_BLOCK_SIZE);
+        buffered.reset();
+
+        if (head.length >= 4 && head[0] == 'P' && head[1] == 'K' && (head[2] == 3 || head[2] == 5)) {
+            return new ZipReader(buffered);
+        }
+        if (head.length >= 2 && head[0] == 0x1f && head[1] == (byte) 0x8b) {
+            return openTar(new BufferedInputStream(new GZIPInputStream(buffered, BUFFER_SIZE), BUFFER_SIZE));
+        }
+        if (TarReader.isHeader(head)) {
+            return new TarReader(buffered);
+        }
+        throw new IllegalArgumentException("Unsupported archive format");
+    }
+
+    private static ArchiveReader openTar(BufferedInputStream in) throws IOException {
+        in.mark(TAR_BLOCK_SIZE);
+        byte[] head = in.readNBytes(TAR_BLOCK_SIZE);
+        in.reset();
+        if (!TarReader.isHeader(head)) {
+            throw new IllegalArgumentException("Unsupported archive format");
+        }
+        return new TarReader(in);
+    }
+
+    private static class ZipReader extends ArchiveReader {
+        private final ZipInputStream zip;
+        private final InputStream content;
+
+        ZipReader(InputStream in) {
+            this.zip = new ZipInputStream(in, StandardCharsets.UTF_8);
+            this.content = new FilterInputStream(zip) {
+                @Override
+                public void close() {
+                    // Запись закрывается следующим getNextEntry
+                }
+            };
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            ZipEntry entry = zip.getNextEntry();
+            return entry == null ? null : new Entry(entry.getName(), entry.isDirectory());
+        }
+
+        @Override
+        public InputStream content() {
+            return content;
+        }
+    }
+
+    // ustar и GNU tar: длинные имена (L) и pax-заголовки (x) с path и size
+    private static class TarReader extends ArchiveReader {
+        private final InputStream in;
+        private EntryStream current;
+
+        TarReader(InputStream in) {
+            this.in = in;
+        }
+
+        static boolean isHeader(byte[] block) {
+            if (block.length < TAR_BLOCK_SIZE) {
+                return false;
+            }
+            long expected;
+            try {
+                expected = parseOctal(block, 148, 8);
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            // Контрольная сумма считается с пробелами на месте самого поля
+            long sum = 0;
+            for (int i = 0; i < TAR_BLOCK_SIZE; i++) {
+                sum += i >= 148 && i < 156 ? ' ' : block[i] & 0xff;
+            }
+            return sum == expected;
+        }
+
+        @Override
+        public Entry next() throws IOException {
+            String longName = null;
+            Long paxSize = null;
+
+            while (true) {
+                finishCurrent();
+
+                byte[] header = in.readNBytes(TAR_BLOCK_SIZE);
+                if (header.length < TAR_BLOCK_SIZE || isZeroBlock(header)) {
+                    return null;
+                }
+                if (!isHeader(header)) {
+                    throw new IllegalArgumentException("Invalid archive: corrupted tar header");
+                }
+
+                byte type = header[156];
+                long size = paxSize != null ? paxSize : parseSize(header);
+                current = new EntryStream(in, size);
+
+                if (type == 'L') {
+                    longName = readString(current);
+                    continue;
+                }
+                if (type == 'x') {
+                    String pax = readString(current);
+                    String path = paxValue(pax, "path");
+                    String paxSizeValue = paxValue(pax, "size");
+                    longName = path != null ? path : longName;
+                    paxSize = paxSizeValue != null ? Long.parseLong(paxSizeValue) : null;
+                    continue;
+                }
+
+                String name = longName != null ? longName : headerName(header);
+                if (type == '0' || type == 0 || type == '7') {
+                    return new Entry(name, false);
+                }
+                if (type == '5') {
+                    return new Entry(name, true);
+                }
+                // Ссылки, устройства, глобальные pax-заголовки: содержимое пропускается
+                longName = null;
+                paxSize = null;
+            }
+        }
+
+        @Override
+        public InputStream content() {
+            return current;
+        }
+
+        private void finishCurrent() throws IOException {
+            if (current == null) {
+                return;
+            }
+            current.skipNBytes(current.remaining);
+            long padding = (TAR_BLOCK_SIZE - current.size % TAR_BLOCK_SIZE) % TAR_BLOCK_SIZE;
+            in.skipNBytes(padding);
+            current = null;
+        }
+
+        private static String headerName(byte[] header) {
+            String name = readField(header, 0, 100);
+            boolean ustar = new String(header, 257, 5, StandardCharsets.US_ASCII).equals("ustar");
+            String prefix = ustar ? readField(header, 345, 155) : "";
+            return prefix.isEmpty() ? name : prefix + "/" + name;
+        }
+
+        private static long parseSize(byte[] header) {
+            // Размеры больше 8 ГБ GNU tar пишет в base-256 со старшим битом-флагом
+            if ((header[124] & 0x80) != 0) {
+                long size = header[124] & 0x7f;
+                for (int i = 125; i < 136; i++) {
+                    size = (size << 8) | (header[i] & 0xff);
+                }
+                return size;
+            }
+            return parseOctal(header, 124, 12);
+        }
+
+        private static long parseOctal(byte[] block, int offset, int length) {
+            long value = 0;
+            for (int i = offset; i < offset + length; i++) {
+                byte b = block[i];
+                if (b == 0 || b == ' ') {
+                    if (value > 0) {
+                        break;
+                    }
+                    continue;
+                }
+                if (b < '0' || b > '7') {
+                    throw new IllegalArgumentException("Invalid octal field");
+                }
+                value = (value << 3) + (b - '0');
+            }
+            return value;
+        }
+
+        private static String readField(byte[] block, int offset, int length) {
+            int end = offset;
+            while (end < offset + length && block[end] != 0) {
+                end++;
+            }
+            return new String(block, offset, end - offset, StandardCharsets.UTF_8);
+        }
+
+        private static String readString(EntryStream stream) throws IOException {
+            // Служебные записи небольшие; ограничение защищает от поддельного размера
+            if (stream.size > BUFFER_SIZE) {
+                throw new IOException("Tar metadata entry is too large");
+            }
+            byte[] value = stream.readAllBytes();
+            int end = value.length;
+            while (end > 0 && value[end - 1] == 0) {
+                end--;
+            }
+            return new String(value, 0, end, StandardCharsets.UTF_8);
+        }
+
+        // Записи вида "<длина> ключ=значение\n"
+        private static String paxValue(String pax, String key) {
+            for (String record : pax.split("\n")) {
+                int space = record.indexOf(' ');
+                int equals = record.indexOf('=');
+                if (space > 0 && equals > space && record.substring(space + 1, equals).equals(key)) {
+                    return record.substring(equals + 1);
+                }
+            }
+            return null;
+        }
+
+        private static boolean isZeroBlock(byte[] block) {
+            return Arrays.equals(block, new byte[TAR_BLOCK_SIZE]);
+        }
+    }
+
+    // Ограничивает чтение размером записи tar
+    private static class EntryStream extends InputStream {
+        private final InputStream in;
+        private final long size;
+        private long remaining;
+
+        EntryStream(InputStream in, long size) {
+            this.in = in;
+            this.size = size;
+            this.remaining = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b == -1) {
+                throw new IOException("Unexpected end of tar archive");
+            }
+            remaining--;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read == -1) {
+                throw new IOException("Unexpected end of tar archive");
+            }
+            remaining -= read;
+            return read;
+        }
+
+        @Override
+        public void close() {
+            // Остаток записи пропускается в next()
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package araslanov.ruslan.cloudserver.util;
+
+import java.util.concurrent.locks.LockSupport;
+
+// Равномерно распределяет операции во времени: не больше permitsPerSecond в секунду на все потоки.
+// 0 и меньше — без ограничения
+public class RateLimiter {
+
+    private final double nanosPerPermit;
+    private long nextFreeNanos = System.nanoTime();
+
+    public RateLimiter(double permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? 1_000_000_000d / permitsPerSecond : 0;
+    }
+
+    public void acquire(int permits) {
+        if (nanosPerPermit == 0 || permits <= 0) {
+            return;
+        }
+
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            // Простой не накапливается: после паузы лимит не превращается во всплеск
+            long start = Math.max(nextFreeNanos, now);
+            nextFreeNanos = start + (long) (permits * nanosPerPermit);
+            waitNanos = start - now;
+        }
+
+        if (waitNanos > 0) {
+            LockSupport.parkNanos(waitNanos);
+        }
+    }
+}
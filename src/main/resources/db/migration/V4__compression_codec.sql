@@ -0,0 +1,3 @@
+ALTER TABLE user_files ADD COLUMN codec VARCHAR(16) NOT NULL DEFAULT 'IDENTITY';
+
+ALTER TABLE blobs ADD COLUMN codec VARCHAR(16) NOT NULL DEFAULT 'IDENTITY';
@@ -0,0 +1 @@
+CREATE INDEX IF NOT EXISTS idx_user_files_user_upload_date ON user_files(user_id, upload_date DESC, id DESC);
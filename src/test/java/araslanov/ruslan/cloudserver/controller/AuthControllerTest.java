@@ -6,6 +6,10 @@ import araslanov.ruslan.cloudserver.dto.LoginResponse;
 import araslanov.ruslan.cloudserver.dto.RegisterRequest;
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.security.JwtUtil;
+import araslanov.ruslan.cloudserver.security.TokenDenylist;
+import araslanov.ruslan.cloudserver.security.VerifiedToken;
+import io.jsonwebtoken.JwtException;
+import araslanov.ruslan.cloudserver.service.LoginService;
 import araslanov.ruslan.cloudserver.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -15,11 +19,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
-import java.util.Collections;
+import org.springframework.security.authentication.BadCredentialsException;
+import java.time.Instant;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -28,16 +29,16 @@ import static org.mockito.Mockito.*;
 class AuthControllerTest {
 
     @Mock
-    private AuthenticationManager authenticationManager;
+    private LoginService loginService;
 
     @Mock
     private JwtUtil jwtUtil;
 
     @Mock
-    private UserDetailsService userDetailsService;
+    private UserService userService;
 
     @Mock
-    private UserService userService;
+    private TokenDenylist tokenDenylist;
 
     @InjectMocks
     private AuthController authController;
@@ -62,11 +63,7 @@ class AuthControllerTest {
 
     @Test
     void loginReturnsTokenWhenCredentialsAreValid() {
-        UserDetails userDetails = new org.springframework.security.core.userdetails.User(
-                "testuser", "password", Collections.emptyList());
-
-        when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.generateToken("testuser")).thenReturn("test-jwt-token");
+        when(loginService.login("testuser", "password123")).thenReturn("test-jwt-token");
 
         ResponseEntity<LoginResponse> response = authController.login(loginRequest);
 
@@ -74,9 +71,14 @@ class AuthControllerTest {
         assertNotNull(response.getBody());
         assertEquals("test-jwt-token", response.getBody().getAuthToken());
 
-        verify(authenticationManager).authenticate(any(UsernamePasswordAuthenticationToken.class));
-        verify(userDetailsService).loadUserByUsername("testuser");
-        verify(jwtUtil).generateToken("testuser");
+        verify(loginService).login("testuser", "password123");
+    }
+
+    @Test
+    void loginPropagatesBadCredentials() {
+        when(loginService.login("testuser", "password123")).thenThrow(new BadCredentialsException("Bad credentials"));
+
+        assertThrows(BadCredentialsException.class, () -> authController.login(loginRequest));
     }
 
     @Test
@@ -91,8 +93,32 @@ class AuthControllerTest {
 
     @Test
     void logoutReturnsOkStatus() {
+        VerifiedToken verified = new VerifiedToken("testuser", Instant.now().plusSeconds(3600), "digest");
+        when(jwtUtil.verify("test-token")).thenReturn(verified);
+
         ResponseEntity<Void> response = authController.logout("test-token");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(tokenDenylist).revoke(verified);
+    }
+
+    @Test
+    void logoutStripsBearerPrefix() {
+        VerifiedToken verified = new VerifiedToken("testuser", Instant.now().plusSeconds(3600), "digest");
+        when(jwtUtil.verify("test-token")).thenReturn(verified);
+
+        authController.logout("Bearer test-token");
+
+        verify(tokenDenylist).revoke(verified);
+    }
+
+    @Test
+    void logoutIgnoresInvalidToken() {
+        when(jwtUtil.verify("broken")).thenThrow(new JwtException("bad token"));
+
+        ResponseEntity<Void> response = authController.logout("broken");
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verifyNoInteractions(tokenDenylist);
     }
 }
\ No newline at end of file
@@ -1,9 +1,11 @@
 package araslanov.ruslan.cloudserver.controller;
 
-import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.BatchResultResponse;
 import araslanov.ruslan.cloudserver.dto.FileRenameRequest;
+import araslanov.ruslan.cloudserver.dto.FileSelectionRequest;
 import araslanov.ruslan.cloudserver.entity.User;
-import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.FileListingCache;
 import araslanov.ruslan.cloudserver.service.FileStorageService;
 import araslanov.ruslan.cloudserver.service.UserService;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,10 +16,12 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
-import java.util.Arrays;
+import java.io.InputStream;
 import java.util.List;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -33,7 +37,7 @@ class FileControllerTest {
     private UserService userService;
 
     @Mock
-    private UserDetails userDetails;
+    private FileListingCache fileListingCache;
 
     @Mock
     private MultipartFile multipartFile;
@@ -42,93 +46,138 @@ class FileControllerTest {
     private FileController fileController;
 
     private User testUser;
+    private AuthenticatedUser principal;
 
     @BeforeEach
     void setUp() {
         testUser = new User("testuser", "password");
         testUser.setId(1L);
+        principal = new AuthenticatedUser(1L, "testuser", "password", true);
     }
 
     @Test
     void uploadFileReturnsOkWhenSuccessful() throws IOException {
-        when(userDetails.getUsername()).thenReturn("testuser");
-        when(userService.findByLogin("testuser")).thenReturn(testUser);
+        when(userService.getReference(1L)).thenReturn(testUser);
 
         doNothing().when(fileStorageService).uploadFile(any(User.class), anyString(), any(MultipartFile.class));
 
-        ResponseEntity<Void> response = fileController.uploadFile(userDetails, "test.txt", multipartFile);
+        ResponseEntity<Void> response = fileController.uploadFile(principal, "test.txt", multipartFile);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(fileStorageService).uploadFile(testUser, "test.txt", multipartFile);
     }
 
+    @Test
+    void uploadFileStreamPassesRequestBodyToService() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("PUT", "/file");
+        request.setContent("raw body".getBytes());
+
+        ResponseEntity<Void> response = fileController.uploadFileStream(principal, "raw.bin", request);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(fileStorageService).uploadFile(eq(testUser), eq("raw.bin"), any(InputStream.class), eq(8L));
+    }
+
     @Test
     void deleteFileReturnsOkWhenSuccessful() throws IOException {
-        when(userDetails.getUsername()).thenReturn("testuser");
-        when(userService.findByLogin("testuser")).thenReturn(testUser);
+        when(userService.getReference(1L)).thenReturn(testUser);
 
         doNothing().when(fileStorageService).deleteFile(any(User.class), anyString());
 
-        ResponseEntity<Void> response = fileController.deleteFile(userDetails, "test.txt");
+        ResponseEntity<Void> response = fileController.deleteFile(principal, "test.txt");
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(fileStorageService).deleteFile(testUser, "test.txt");
     }
 
+    @Test
+    void deleteFilesReturnsDeletedCount() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
+        when(fileStorageService.deleteFiles(testUser, List.of("a.txt", "b.txt"), null)).thenReturn(2);
+
+        ResponseEntity<BatchResultResponse> response = fileController.deleteFiles(principal,
+                new FileSelectionRequest(List.of("a.txt", "b.txt"), null));
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, response.getBody().getCount());
+    }
+
     @Test
     void renameFileReturnsOkWhenSuccessful() {
-        when(userDetails.getUsername()).thenReturn("testuser");
-        when(userService.findByLogin("testuser")).thenReturn(testUser);
+        when(userService.getReference(1L)).thenReturn(testUser);
 
         FileRenameRequest renameRequest = new FileRenameRequest();
         renameRequest.setName("newfile.txt");
 
         doNothing().when(fileStorageService).renameFile(any(User.class), anyString(), anyString());
 
-        ResponseEntity<Void> response = fileController.renameFile(userDetails, "oldfile.txt", renameRequest);
+        ResponseEntity<Void> response = fileController.renameFile(principal, "oldfile.txt", renameRequest);
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
         verify(fileStorageService).renameFile(testUser, "oldfile.txt", "newfile.txt");
     }
 
     @Test
-    void getFileListReturnsFilesWithLimit() {
-        when(userDetails.getUsername()).thenReturn("testuser");
-        when(userService.findByLogin("testuser")).thenReturn(testUser);
-
-        List<UserFile> userFiles = Arrays.asList(
-                new UserFile(testUser, "file1.txt", "/path/file1.txt", 100L),
-                new UserFile(testUser, "file2.txt", "/path/file2.txt", 200L)
-        );
+    void getFileListReturnsSerializedBodyWithEtag() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
+        when(fileListingCache.currentVersion(1L)).thenReturn(0x2aL);
 
-        when(fileStorageService.getUserFiles(testUser, 10)).thenReturn(userFiles);
+        byte[] body = "[{\"filename\":\"file1.txt\",\"size\":100}]".getBytes();
+        when(fileListingCache.getListing(testUser, 10, null, 0x2aL))
+                .thenReturn(new FileListingCache.Listing(0x2aL, body, null));
 
-        ResponseEntity<List<FileInfoResponse>> response = fileController.getFileList(userDetails, 10);
+        ResponseEntity<byte[]> response = fileController.getFileList(principal, 10, null, webRequest(null));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNotNull(response.getBody());
-        assertEquals(2, response.getBody().size());
-        assertEquals("file1.txt", response.getBody().get(0).getFilename());
-        assertEquals(100L, response.getBody().get(0).getSize());
+        assertArrayEquals(body, response.getBody());
+        assertEquals("\"2a\"", response.getHeaders().getETag());
+        assertNull(response.getHeaders().getFirst(FileController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void getFileListAnswersNotModifiedWithoutLoadingList() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
+        when(fileListingCache.currentVersion(1L)).thenReturn(0x2aL);
+        ServletWebRequest webRequest = webRequest("\"2a\"");
+
+        ResponseEntity<byte[]> response = fileController.getFileList(principal, null, null, webRequest);
 
-        verify(fileStorageService).getUserFiles(testUser, 10);
+        assertNull(response);
+        assertEquals(304, webRequest.getResponse().getStatus());
+        verify(fileListingCache, never()).getListing(any(), any(), any(), anyLong());
+        verifyNoInteractions(fileStorageService);
     }
 
     @Test
-    void getFileListReturnsAllFilesWhenLimitNotSpecified() {
-        when(userDetails.getUsername()).thenReturn("testuser");
-        when(userService.findByLogin("testuser")).thenReturn(testUser);
+    void controllerResolvesUserFromPrincipalIdWithoutLoginLookup() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
 
-        List<UserFile> userFiles = Arrays.asList(
-                new UserFile(testUser, "file1.txt", "/path/file1.txt", 100L)
-        );
+        fileController.deleteFile(principal, "test.txt");
 
-        when(fileStorageService.getUserFiles(testUser, null)).thenReturn(userFiles);
+        verify(userService, never()).findByLogin(anyString());
+        verify(fileStorageService).deleteFile(testUser, "test.txt");
+    }
+
+    @Test
+    void getFileListExposesNextCursorHeader() throws IOException {
+        when(userService.getReference(1L)).thenReturn(testUser);
+        when(fileListingCache.currentVersion(1L)).thenReturn(1L);
+        when(fileListingCache.getListing(testUser, 1, "abc", 1L))
+                .thenReturn(new FileListingCache.Listing(1L, "[]".getBytes(), "next"));
 
-        ResponseEntity<List<FileInfoResponse>> response = fileController.getFileList(userDetails, null);
+        ResponseEntity<byte[]> response = fileController.getFileList(principal, 1, "abc", webRequest("\"stale\""));
 
         assertEquals(HttpStatus.OK, response.getStatusCode());
-        assertNotNull(response.getBody());
-        assertEquals(1, response.getBody().size());
+        assertEquals("next", response.getHeaders().getFirst(FileController.NEXT_CURSOR_HEADER));
+    }
+
+    private ServletWebRequest webRequest(String ifNoneMatch) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/list");
+        if (ifNoneMatch != null) {
+            request.addHeader("If-None-Match", ifNoneMatch);
+        }
+        return new ServletWebRequest(request, new MockHttpServletResponse());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,245 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.service.ContentCache;
+import araslanov.ruslan.cloudserver.service.StorageObjectChangedEvent;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileDownloadWriterTest {
+
+    @TempDir
+    Path storageDir;
+
+    private FileDownloadWriter writer;
+    private TransferMetrics transferMetrics;
+    private ContentCache contentCache;
+    private UserFile userFile;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        transferMetrics = new TransferMetrics();
+        LocalStorageBackend storageBackend = new LocalStorageBackend(storageDir);
+        contentCache = contentCache(storageBackend);
+        writer = new FileDownloadWriter(storageBackend, true, transferMetrics, contentCache);
+
+        Files.writeString(storageDir.resolve("stored"), "0123456789");
+        userFile = new UserFile(new User("testuser", "password"), "digits.txt", "stored", 10L);
+        userFile.setId(42L);
+    }
+
+    @Test
+    void writeSendsWholeFileWithValidators() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, new MockHttpServletRequest("GET", "/file"), response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+        assertEquals(10, response.getContentLengthLong());
+        assertEquals("bytes", response.getHeader("Accept-Ranges"));
+        assertEquals(writer.etagOf(userFile), response.getHeader("ETag"));
+        assertNotNull(response.getHeader("Last-Modified"));
+        assertEquals(10, transferMetrics.getDownloadedBytes());
+    }
+
+    @Test
+    void writeAnswersNotModifiedForMatchingEtag() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("If-None-Match", writer.etagOf(userFile));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(304, response.getStatus());
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writeSendsSingleRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertEquals("bytes 2-5/10", response.getHeader("Content-Range"));
+        assertEquals(4, response.getContentLengthLong());
+    }
+
+    @Test
+    void writeSendsMultipleRangesAsMultipart() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=0-1,-2");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        String body = response.getContentAsString();
+        assertEquals(206, response.getStatus());
+        assertTrue(response.getContentType().startsWith("multipart/byteranges; boundary="));
+        assertTrue(body.contains("Content-Range: bytes 0-1/10\r\n\r\n01"));
+        assertTrue(body.contains("Content-Range: bytes 8-9/10\r\n\r\n89"));
+        assertEquals(body.length(), response.getContentLengthLong());
+    }
+
+    @Test
+    void writeRejectsUnsatisfiableRange() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=20-30");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(416, response.getStatus());
+        assertEquals("bytes */10", response.getHeader("Content-Range"));
+    }
+
+    @Test
+    void writeIgnoresRangeWhenIfRangeDoesNotMatch() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Range", "bytes=2-5");
+        request.addHeader("If-Range", "\"stale\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("0123456789", response.getContentAsString());
+    }
+
+    @Test
+    void writeDelegatesToSendfileWhenContainerSupportsIt() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(0L, request.getAttribute("org.apache.tomcat.sendfile.start"));
+        assertEquals(10L, request.getAttribute("org.apache.tomcat.sendfile.end"));
+        assertEquals(0, response.getContentAsByteArray().length);
+    }
+
+    @Test
+    void writeStreamsFromBackendWithoutLocalFile() throws Exception {
+        InMemoryStorageBackend storageBackend = new InMemoryStorageBackend();
+        storageBackend.put("stored", new ByteArrayInputStream("0123456789".getBytes()));
+        FileDownloadWriter inMemoryWriter = new FileDownloadWriter(storageBackend, true, transferMetrics,
+                contentCache(storageBackend));
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=4-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        inMemoryWriter.write(userFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("456789", response.getContentAsString());
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.start"));
+    }
+
+    @Test
+    void writeSendsStoredGzipAsIsWhenClientAcceptsIt() throws Exception {
+        byte[] compressed = storeCompressed();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Accept-Encoding", "br, gzip;q=0.8");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("gzip", response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals(writer.encodedEtag(userFile), response.getHeader("ETag"));
+        assertEquals(compressed.length, response.getContentLengthLong());
+        assertArrayEquals(compressed, response.getContentAsByteArray());
+    }
+
+    @Test
+    void writeDecompressesWhenClientDoesNotAcceptStoredCodec() throws Exception {
+        storeCompressed();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.addHeader("Accept-Encoding", "gzip;q=0, identity");
+        request.addHeader("Range", "bytes=3-5");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertNull(response.getHeader("Content-Encoding"));
+        assertEquals("Accept-Encoding", response.getHeader("Vary"));
+        assertEquals("bytes 3-5/10", response.getHeader("Content-Range"));
+        assertEquals("345", response.getContentAsString());
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.start"));
+    }
+
+    @Test
+    void writeServesRepeatedDownloadsFromContentCache() throws Exception {
+        // Первое скачивание только отмечается, второе загружает файл в кэш
+        writer.write(userFile, new MockHttpServletRequest("GET", "/file"), new MockHttpServletResponse());
+        assertNull(contentCache.getIfPresent("stored"));
+        writer.write(userFile, new MockHttpServletRequest("GET", "/file"), new MockHttpServletResponse());
+        assertNotNull(contentCache.getIfPresent("stored"));
+
+        // Дальше хранилище не трогается: ни stat, ни открытия файла
+        Files.delete(storageDir.resolve("stored"));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/file");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader("Range", "bytes=2-5");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(userFile, request, response);
+
+        assertEquals(206, response.getStatus());
+        assertEquals("2345", response.getContentAsString());
+        assertNull(request.getAttribute("org.apache.tomcat.sendfile.start"));
+    }
+
+    @Test
+    void writeDoesNotServeInvalidatedContent() throws Exception {
+        writer.write(userFile, new MockHttpServletRequest("GET", "/file"), new MockHttpServletResponse());
+        writer.write(userFile, new MockHttpServletRequest("GET", "/file"), new MockHttpServletResponse());
+
+        Files.delete(storageDir.resolve("stored"));
+        contentCache.onStorageObjectChanged(new StorageObjectChangedEvent("stored"));
+
+        assertThrows(NoSuchFileException.class, () -> writer.write(userFile,
+                new MockHttpServletRequest("GET", "/file"), new MockHttpServletResponse()));
+    }
+
+    private static ContentCache contentCache(StorageBackend storageBackend) {
+        return new ContentCache(storageBackend, true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), 1000);
+    }
+
+    private byte[] storeCompressed() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write("0123456789".getBytes());
+        }
+        Files.write(storageDir.resolve("stored"), compressed.toByteArray());
+        userFile.setCodec(ContentCodec.GZIP);
+        return compressed.toByteArray();
+    }
+}
@@ -0,0 +1,116 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.service.QuotaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuotaPrecheckFilterTest {
+
+    @Mock
+    private QuotaService quotaService;
+
+    private QuotaPrecheckFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new QuotaPrecheckFilter(quotaService, new ObjectMapper());
+        AuthenticatedUser principal = new AuthenticatedUser(1L, "testuser", "password", true);
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void rejectsUploadLargerThanAvailableQuotaBeforeReadingBody() throws Exception {
+        when(quotaService.isEnabled()).thenReturn(true);
+        when(quotaService.getAvailable(1L)).thenReturn(100L);
+        MockHttpServletRequest request = upload("PUT", "/file", 500);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(413, response.getStatus());
+        assertTrue(response.getContentAsString().contains("Storage quota exceeded"));
+        assertNull(chain.getRequest());
+    }
+
+    @Test
+    void passesUploadThatFitsQuota() throws Exception {
+        when(quotaService.isEnabled()).thenReturn(true);
+        when(quotaService.getAvailable(1L)).thenReturn(1000L);
+        MockHttpServletRequest request = upload("PUT", "/upload-session/abc/parts/1", 500);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+    }
+
+    @Test
+    void skipsRequestsThatAreNotUploads() throws Exception {
+        when(quotaService.isEnabled()).thenReturn(true);
+        MockHttpServletRequest request = upload("GET", "/file", 500);
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertSame(request, chain.getRequest());
+        verify(quotaService, never()).getAvailable(any());
+    }
+
+    @Test
+    void passesJsonRenameWhenUserIsOverQuota() throws Exception {
+        when(quotaService.isEnabled()).thenReturn(true);
+        MockHttpServletRequest request = upload("PUT", "/file", 500);
+        request.setContentType("application/json");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+
+        filter.doFilter(request, response, chain);
+
+        assertEquals(200, response.getStatus());
+        assertSame(request, chain.getRequest());
+        verify(quotaService, never()).getAvailable(any());
+    }
+
+    @Test
+    void rejectsMultipartUploadLargerThanAvailableQuota() throws Exception {
+        when(quotaService.isEnabled()).thenReturn(true);
+        when(quotaService.getAvailable(1L)).thenReturn(0L);
+        MockHttpServletRequest request = upload("POST", "/file", 500);
+        request.setContentType("multipart/form-data; boundary=abc");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, new MockFilterChain());
+
+        assertEquals(413, response.getStatus());
+    }
+
+    private MockHttpServletRequest upload(String method, String path, int length) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setContent(new byte[length]);
+        request.setContentType("application/octet-stream");
+        return request;
+    }
+}
@@ -0,0 +1,93 @@
+package araslanov.ruslan.cloudserver.controller;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.service.CompressionPolicy;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ZipDownloadWriterTest {
+
+    private InMemoryStorageBackend storageBackend;
+    private TransferMetrics transferMetrics;
+    private ZipDownloadWriter writer;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new InMemoryStorageBackend();
+        transferMetrics = new TransferMetrics();
+        CompressionPolicy compressionPolicy = new CompressionPolicy(false,
+                DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6);
+        writer = new ZipDownloadWriter(storageBackend, compressionPolicy, transferMetrics, 1);
+        user = new User("testuser", "password");
+    }
+
+    @Test
+    void writeStreamsEntriesInRequestedOrder() throws Exception {
+        byte[] text = "hello zip ".repeat(1000).getBytes();
+        byte[] png = new byte[2048];
+        png[0] = (byte) 0x89;
+        png[1] = 0x50;
+        png[2] = 0x4e;
+        png[3] = 0x47;
+
+        storageBackend.put("k1", new ByteArrayInputStream(text));
+        storageBackend.put("k2", new ByteArrayInputStream(png));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(List.of(new UserFile(user, "a.txt", "k1", (long) text.length),
+                new UserFile(user, "b.png", "k2", (long) png.length)), "files.zip", response);
+
+        assertEquals("application/zip", response.getContentType());
+        assertEquals("attachment; filename=\"files.zip\"", response.getHeader("Content-Disposition"));
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            ZipEntry first = zip.getNextEntry();
+            assertEquals("a.txt", first.getName());
+            assertArrayEquals(text, zip.readAllBytes());
+
+            ZipEntry second = zip.getNextEntry();
+            assertEquals("b.png", second.getName());
+            assertArrayEquals(png, zip.readAllBytes());
+
+            assertNull(zip.getNextEntry());
+        }
+        // Повторяющийся текст сжат, архив заметно меньше содержимого
+        assertTrue(response.getContentAsByteArray().length < text.length / 2 + png.length + 512);
+        assertEquals(text.length + png.length, transferMetrics.getDownloadedBytes());
+    }
+
+    @Test
+    void writeDecodesCompressedStorageContent() throws Exception {
+        byte[] content = "stored gzipped".getBytes();
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(content);
+        }
+        storageBackend.put("gz", new ByteArrayInputStream(gzipped.toByteArray()));
+
+        UserFile file = new UserFile(user, "c.txt", "gz", (long) content.length);
+        file.setCodec(ContentCodec.GZIP);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        writer.write(List.of(file), "files.zip", response);
+
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            assertEquals("c.txt", zip.getNextEntry().getName());
+            assertArrayEquals(content, zip.readAllBytes());
+        }
+    }
+}
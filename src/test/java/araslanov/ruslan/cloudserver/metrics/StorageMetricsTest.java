@@ -0,0 +1,64 @@
+package araslanov.ruslan.cloudserver.metrics;
+
+import araslanov.ruslan.cloudserver.service.ContentCache;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import araslanov.ruslan.cloudserver.storage.StorageBackend;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StorageMetricsTest {
+
+    @TempDir
+    Path storageDir;
+
+    @Test
+    void localBackendExposesFreeSpace() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        LocalStorageBackend backend = new LocalStorageBackend(storageDir);
+        new StorageMetrics(backend, contentCache(backend)).bindTo(registry);
+
+        double usable = registry.find("cloud.storage.root.usable").gauge().value();
+        double total = registry.find("cloud.storage.root.total").gauge().value();
+
+        assertTrue(usable > 0);
+        assertTrue(total >= usable);
+    }
+
+    @Test
+    void nonLocalBackendHasNoFreeSpaceGauges() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        new StorageMetrics(backend, contentCache(backend)).bindTo(registry);
+
+        assertNull(registry.find("cloud.storage.root.usable").gauge());
+    }
+
+    @Test
+    void contentCacheExposesHitsAndResidentBytes() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        InMemoryStorageBackend backend = new InMemoryStorageBackend();
+        ContentCache contentCache = contentCache(backend);
+        new StorageMetrics(backend, contentCache).bindTo(registry);
+        backend.put("hot", new ByteArrayInputStream("content".getBytes()));
+
+        contentCache.admit("hot", 7);
+        contentCache.admit("hot", 7);
+        contentCache.getIfPresent("hot");
+        contentCache.getCache().cleanUp();
+
+        assertEquals(7, registry.find("cloud.storage.cache.resident").gauge().value());
+        assertEquals(1, registry.find("cache.gets").tag("cache", "file-content").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    private static ContentCache contentCache(StorageBackend backend) {
+        return new ContentCache(backend, true, DataSize.ofMegabytes(1), DataSize.ofKilobytes(64), 1000);
+    }
+}
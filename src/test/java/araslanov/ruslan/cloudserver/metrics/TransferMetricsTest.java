@@ -0,0 +1,26 @@
+package araslanov.ruslan.cloudserver.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransferMetricsTest {
+
+    @Test
+    void countersAreExposedToRegistry() {
+        TransferMetrics metrics = new TransferMetrics();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        metrics.bindTo(registry);
+
+        metrics.recordUpload(100);
+        metrics.recordUpload(50);
+        metrics.recordDownloadStarted();
+        metrics.recordDownloaded(70);
+
+        assertEquals(150, registry.find("cloud.storage.upload.bytes").functionCounter().count());
+        assertEquals(2, registry.find("cloud.storage.uploads").functionCounter().count());
+        assertEquals(70, registry.find("cloud.storage.download.bytes").functionCounter().count());
+        assertEquals(1, registry.find("cloud.storage.downloads").functionCounter().count());
+    }
+}
@@ -0,0 +1,61 @@
+package araslanov.ruslan.cloudserver.repository;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import java.time.LocalDateTime;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest
+class UserFileRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserFileRepository fileRepository;
+
+    @Test
+    void prefixMoveOntoOverlappingNamesKeepsThemUnique() {
+        User user = entityManager.persist(new User("mover", "password"));
+        UserFile short1 = entityManager.persist(new UserFile(user, "a1", "user_1/a1", 1L));
+        UserFile long1 = entityManager.persist(new UserFile(user, "ab1", "user_1/ab1", 1L));
+        UserFile other = entityManager.persist(new UserFile(user, "b1", "user_1/b1", 1L));
+        entityManager.flush();
+
+        // "a1" -> "ab1", пока "ab1" ещё не стала "abb1"
+        assertEquals(2, fileRepository.stripFilenamePrefix(user, "a%", 1));
+        assertEquals(2, fileRepository.applyFilenamePrefix(user, "ab"));
+        entityManager.clear();
+
+        assertEquals("ab1", entityManager.find(UserFile.class, short1.getId()).getFilename());
+        assertEquals("abb1", entityManager.find(UserFile.class, long1.getId()).getFilename());
+        assertEquals("b1", entityManager.find(UserFile.class, other.getId()).getFilename());
+        assertNull(entityManager.find(UserFile.class, short1.getId()).getDeletedAt());
+    }
+
+    @Test
+    void prefixMoveLeavesTrashAndOtherUsersAlone() {
+        User user = entityManager.persist(new User("owner", "password"));
+        User stranger = entityManager.persist(new User("stranger", "password"));
+        UserFile trashed = new UserFile(user, "old-trashed", "user_1/old-trashed", 1L);
+        trashed.setDeletedAt(LocalDateTime.now());
+        entityManager.persist(trashed);
+        entityManager.persist(new UserFile(user, "old-live", "user_1/old-live", 1L));
+        entityManager.persist(new UserFile(stranger, "old-live", "user_2/old-live", 1L));
+        entityManager.flush();
+
+        assertEquals(1, fileRepository.stripFilenamePrefix(user, "old-%", 4));
+        assertEquals(1, fileRepository.applyFilenamePrefix(user, "new-"));
+        entityManager.clear();
+
+        List<String> names = entityManager.getEntityManager()
+                .createQuery("select f.filename from UserFile f order by f.filename", String.class)
+                .getResultList();
+        assertEquals(List.of("new-live", "old-live", "old-trashed"), names);
+    }
+}
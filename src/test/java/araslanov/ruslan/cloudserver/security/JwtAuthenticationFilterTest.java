@@ -1,5 +1,6 @@
 package araslanov.ruslan.cloudserver.security;
 
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -13,6 +14,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import java.time.Instant;
 import java.util.Collections;
 
 import static org.junit.Assert.assertNotNull;
@@ -28,6 +30,9 @@ class JwtAuthenticationFilterTest {
     @Mock
     private UserDetailsService userDetailsService;
 
+    @Mock
+    private TokenDenylist tokenDenylist;
+
     @Mock
     private HttpServletRequest request;
 
@@ -65,21 +70,25 @@ class JwtAuthenticationFilterTest {
         verifyNoInteractions(jwtUtil, userDetailsService);
     }
 
+    private VerifiedToken verified(String username) {
+        return new VerifiedToken(username, Instant.now().plusSeconds(3600), "digest");
+    }
+
     @Test
     void doFilterInternalSetsAuthenticationWhenValidToken() throws Exception {
         String token = "Bearer valid-jwt-token";
         UserDetails userDetails = new User("testuser", "password", Collections.emptyList());
 
         when(request.getHeader("auth-token")).thenReturn(token);
-        when(jwtUtil.extractUsername("valid-jwt-token")).thenReturn("testuser");
+        when(jwtUtil.verify("valid-jwt-token")).thenReturn(verified("testuser"));
         when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.validateToken("valid-jwt-token", userDetails)).thenReturn(true);
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
-        verify(jwtUtil).extractUsername("valid-jwt-token");
+        verify(jwtUtil, times(1)).verify("valid-jwt-token");
         verify(userDetailsService).loadUserByUsername("testuser");
-        verify(jwtUtil).validateToken("valid-jwt-token", userDetails);
+        verify(jwtUtil, never()).extractUsername(anyString());
+        verify(jwtUtil, never()).validateToken(anyString(), any());
         verify(filterChain).doFilter(request, response);
 
         assertNotNull(SecurityContextHolder.getContext().getAuthentication());
@@ -88,16 +97,42 @@ class JwtAuthenticationFilterTest {
     @Test
     void doFilterInternalContinuesWhenInvalidToken() throws Exception {
         String token = "Bearer invalid-jwt-token";
-        UserDetails userDetails = new User("testuser", "password", Collections.emptyList());
 
         when(request.getHeader("auth-token")).thenReturn(token);
-        when(jwtUtil.extractUsername("invalid-jwt-token")).thenReturn("testuser");
+        when(jwtUtil.verify("invalid-jwt-token")).thenThrow(new JwtException("bad signature"));
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    @Test
+    void doFilterInternalRejectsDisabledUser() throws Exception {
+        String token = "Bearer valid-jwt-token";
+        UserDetails userDetails = new AuthenticatedUser(1L, "testuser", "password", false);
+
+        when(request.getHeader("auth-token")).thenReturn(token);
+        when(jwtUtil.verify("valid-jwt-token")).thenReturn(verified("testuser"));
         when(userDetailsService.loadUserByUsername("testuser")).thenReturn(userDetails);
-        when(jwtUtil.validateToken("invalid-jwt-token", userDetails)).thenReturn(false);
 
         jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
 
         verify(filterChain).doFilter(request, response);
         assertNull(SecurityContextHolder.getContext().getAuthentication());
     }
-}
\ No newline at end of file
+
+    @Test
+    void doFilterInternalRejectsRevokedToken() throws Exception {
+        when(request.getHeader("auth-token")).thenReturn("Bearer revoked-jwt-token");
+        when(jwtUtil.verify("revoked-jwt-token")).thenReturn(verified("testuser"));
+        when(tokenDenylist.isRevoked("digest")).thenReturn(true);
+
+        jwtAuthenticationFilter.doFilterInternal(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        verifyNoInteractions(userDetailsService);
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+    }
+}
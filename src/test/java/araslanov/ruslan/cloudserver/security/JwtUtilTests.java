@@ -1,5 +1,6 @@
 package araslanov.ruslan.cloudserver.security;
 
+import io.jsonwebtoken.JwtException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.security.core.userdetails.User;
@@ -20,6 +21,17 @@ class JwtUtilTests {
 
         ReflectionTestUtils.setField(jwtUtil, "secret", "12345678901234567890123456789012");
         ReflectionTestUtils.setField(jwtUtil, "expiration", 86400000L);
+        jwtUtil.init();
+    }
+
+    private JwtUtil createUtil(String secret, String kid, String retiredKeys) {
+        JwtUtil util = new JwtUtil();
+        ReflectionTestUtils.setField(util, "secret", secret);
+        ReflectionTestUtils.setField(util, "expiration", 86400000L);
+        ReflectionTestUtils.setField(util, "activeKeyId", kid);
+        ReflectionTestUtils.setField(util, "retiredKeys", retiredKeys);
+        util.init();
+        return util;
     }
 
     @Test
@@ -64,4 +76,44 @@ class JwtUtilTests {
         assertTrue(expiration.after(new java.util.Date()),
                 "Дата истечения токена должна быть в будущем");
     }
-}
\ No newline at end of file
+
+    @Test
+    void verifyCachesVerifiedToken() {
+        String token = jwtUtil.generateToken("testuser");
+
+        VerifiedToken first = jwtUtil.verify(token);
+        VerifiedToken second = jwtUtil.verify(token);
+
+        assertEquals("testuser", first.username());
+        assertSame(first, second);
+        assertEquals(1, jwtUtil.getVerifiedTokens().stats().hitCount());
+    }
+
+    @Test
+    void verifyRejectsTamperedToken() {
+        String token = jwtUtil.generateToken("testuser");
+        String tampered = token.substring(0, token.length() - 2) + (token.endsWith("AA") ? "BB" : "AA");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(tampered));
+        assertEquals(0, jwtUtil.getVerifiedTokens().estimatedSize());
+    }
+
+    @Test
+    void verifyAcceptsTokenSignedWithRetiredKey() {
+        JwtUtil oldUtil = createUtil("abcdefghijabcdefghijabcdefghij12", "k1", "");
+        String token = oldUtil.generateToken("testuser");
+
+        JwtUtil rotated = createUtil("12345678901234567890123456789012", "k2",
+                "k1=abcdefghijabcdefghijabcdefghij12");
+
+        assertEquals("testuser", rotated.verify(token).username());
+    }
+
+    @Test
+    void verifyRejectsTokenWithUnknownKeyId() {
+        JwtUtil other = createUtil("abcdefghijabcdefghijabcdefghij12", "k1", "");
+        String token = other.generateToken("testuser");
+
+        assertThrows(JwtException.class, () -> jwtUtil.verify(token));
+    }
+}
@@ -0,0 +1,83 @@
+package araslanov.ruslan.cloudserver.security;
+
+import araslanov.ruslan.cloudserver.exception.LoginThrottledException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHashingExecutorTest {
+
+    private PasswordHashingExecutor executor;
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    void callReturnsTaskResult() {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+
+        assertEquals("done", executor.call(() -> "done"));
+    }
+
+    @Test
+    void callRethrowsTaskException() {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+
+        assertThrows(IllegalStateException.class, () -> executor.call(() -> {
+            throw new IllegalStateException("boom");
+        }));
+    }
+
+    // Отказ чужого пула внутри задачи — не перегрузка логина и не 429
+    @Test
+    void callRethrowsRejectionFromTaskAsIs() {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+
+        assertThrows(RejectedExecutionException.class, () -> executor.call(() -> {
+            throw new RejectedExecutionException("other pool");
+        }));
+    }
+
+    @Test
+    void callRejectsWhenQueueIsFull() throws Exception {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofSeconds(5));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        // Занимаем единственный поток и единственное место в очереди
+        Thread busy = new Thread(() -> executor.call(() -> {
+            started.countDown();
+            return release.await(5, TimeUnit.SECONDS);
+        }));
+        busy.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Thread queued = new Thread(() -> executor.call(() -> true));
+        queued.start();
+        while (executor.getQueueDepth() == 0) {
+            Thread.sleep(5);
+        }
+
+        assertThrows(LoginThrottledException.class, () -> executor.call(() -> true));
+
+        release.countDown();
+        busy.join();
+        queued.join();
+    }
+
+    @Test
+    void callRejectsOnTimeout() {
+        executor = new PasswordHashingExecutor(1, 1, Duration.ofMillis(50));
+
+        assertThrows(LoginThrottledException.class, () -> executor.call(() -> {
+            Thread.sleep(1000);
+            return true;
+        }));
+    }
+}
@@ -0,0 +1,85 @@
+package araslanov.ruslan.cloudserver.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class TokenDenylistTest {
+
+    @SuppressWarnings("unchecked")
+    private TokenDenylist createDenylist(RevocationStore store) {
+        ObjectProvider<RevocationStore> provider = mock(ObjectProvider.class);
+        when(provider.getIfAvailable()).thenReturn(store);
+        return new TokenDenylist(provider, Duration.ofMinutes(10), 1000, 0.001);
+    }
+
+    @Test
+    void revokedTokenIsReported() {
+        TokenDenylist denylist = createDenylist(null);
+
+        denylist.revoke(new VerifiedToken("testuser", Instant.now().plusSeconds(3600), "digest-1"));
+
+        assertTrue(denylist.isRevoked("digest-1"));
+        assertFalse(denylist.isRevoked("digest-2"));
+    }
+
+    @Test
+    void alreadyExpiredTokenIsNotStored() {
+        TokenDenylist denylist = createDenylist(null);
+
+        denylist.revoke(new VerifiedToken("testuser", Instant.now().minusSeconds(1), "digest-1"));
+
+        assertEquals(0, denylist.size());
+    }
+
+    @Test
+    void purgeDropsExpiredBuckets() {
+        TokenDenylist denylist = createDenylist(null);
+        denylist.revoke(new VerifiedToken("testuser", Instant.now().plusSeconds(60), "short"));
+        denylist.revoke(new VerifiedToken("testuser", Instant.now().plus(Duration.ofHours(2)), "long"));
+
+        denylist.purgeExpired(Instant.now().plus(Duration.ofMinutes(30)));
+
+        assertFalse(denylist.isRevoked("short"));
+        assertTrue(denylist.isRevoked("long"));
+        assertEquals(1, denylist.size());
+    }
+
+    @Test
+    void revokePersistsToStore() {
+        RevocationStore store = mock(RevocationStore.class);
+        TokenDenylist denylist = createDenylist(store);
+        Instant expiresAt = Instant.now().plusSeconds(3600);
+
+        denylist.revoke(new VerifiedToken("testuser", expiresAt, "digest-1"));
+
+        verify(store).save("digest-1", expiresAt);
+    }
+
+    @Test
+    void syncLoadsRevocationsFromOtherNodes() {
+        RevocationStore store = mock(RevocationStore.class);
+        when(store.findRevokedSince(any(), any())).thenReturn(List.of(
+                new RevocationStore.RevokedTokenEntry("remote", Instant.now().plusSeconds(3600))));
+        TokenDenylist denylist = createDenylist(store);
+
+        denylist.sync();
+
+        assertTrue(denylist.isRevoked("remote"));
+    }
+
+    @Test
+    void syncSurvivesStoreFailure() {
+        RevocationStore store = mock(RevocationStore.class);
+        when(store.findRevokedSince(any(), any())).thenThrow(new IllegalStateException("db down"));
+        TokenDenylist denylist = createDenylist(store);
+
+        assertDoesNotThrow(denylist::sync);
+    }
+}
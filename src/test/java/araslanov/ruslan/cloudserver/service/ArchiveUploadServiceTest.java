@@ -0,0 +1,171 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.ArchiveEntryResult;
+import araslanov.ruslan.cloudserver.dto.ArchiveUploadResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ArchiveUploadServiceTest {
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path storageDir;
+
+    private LocalStorageBackend storageBackend;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new LocalStorageBackend(storageDir);
+        user = new User("testuser", "password");
+        user.setId(1L);
+    }
+
+    private ArchiveUploadService createService(int maxEntries, int batchSize) {
+        QuotaService quotaService = new QuotaService(null, null, null, false, DataSize.ofGigabytes(1),
+                Duration.ofHours(1), DataSize.ofMegabytes(64));
+        FileStorageService fileStorageService = new FileStorageService(
+                DataSize.ofMegabytes(16), false, 100, 1000, fileRepository,
+                new BlobService(storageBackend, null, event -> { }), new StorageLayout(2, 2), storageBackend,
+                new CompressionPolicy(false, DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6),
+                new TransferMetrics(), quotaService, transactionManager, event -> { });
+        return new ArchiveUploadService(fileStorageService, fileRepository, quotaService, transactionManager,
+                maxEntries, 100, DataSize.ofGigabytes(1), batchSize);
+    }
+
+    @Test
+    void uploadExtractsEntriesAndReportsRenamedAndSkipped() throws Exception {
+        byte[] archive = zip(
+                "docs/", null,
+                "docs/a.txt", "first",
+                "other/a.txt", "second",
+                "exists.txt", "third",
+                "bad..name", "fourth",
+                "empty.txt", "");
+
+        when(fileRepository.findExistingFilenames(eq(user), any())).thenAnswer(invocation -> {
+            Collection<String> names = invocation.getArgument(1);
+            return names.contains("exists.txt") ? List.of("exists.txt") : List.of();
+        });
+
+        ArchiveUploadResponse response = createService(100, 50).upload(user, new ByteArrayInputStream(archive));
+
+        List<ArchiveEntryResult> entries = response.getEntries();
+        assertEquals(5, entries.size());
+        assertEquals(ArchiveEntryResult.ACCEPTED, entries.get(0).getStatus());
+        assertEquals("a.txt", entries.get(0).getFilename());
+        assertEquals(ArchiveEntryResult.RENAMED, entries.get(1).getStatus());
+        assertEquals("a (1).txt", entries.get(1).getFilename());
+        assertEquals(ArchiveEntryResult.RENAMED, entries.get(2).getStatus());
+        assertEquals("exists (1).txt", entries.get(2).getFilename());
+        assertEquals(ArchiveEntryResult.SKIPPED, entries.get(3).getStatus());
+        assertEquals(ArchiveEntryResult.SKIPPED, entries.get(4).getStatus());
+        assertEquals(1, response.getAccepted());
+        assertEquals(2, response.getRenamed());
+        assertEquals(2, response.getSkipped());
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<UserFile>> captor = ArgumentCaptor.forClass(List.class);
+        verify(fileRepository).saveAll(captor.capture());
+        assertEquals(3, captor.getValue().size());
+        verify(fileRepository, never()).save(any());
+        assertEquals(3, storedFileCount());
+    }
+
+    @Test
+    void uploadSavesRowsInBatches() throws Exception {
+        byte[] archive = zip("1.txt", "a", "2.txt", "b", "3.txt", "c", "4.txt", "d", "5.txt", "e");
+
+        when(fileRepository.findExistingFilenames(eq(user), any())).thenReturn(List.of());
+
+        createService(100, 2).upload(user, new ByteArrayInputStream(archive));
+
+        verify(fileRepository, times(3)).saveAll(any());
+        verify(fileRepository, times(3)).findExistingFilenames(eq(user), any());
+    }
+
+    @Test
+    void uploadRejectsTooManyEntriesAndRemovesWrittenContent() throws Exception {
+        byte[] archive = zip("1.txt", "a", "2.txt", "b", "3.txt", "c");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> createService(2, 50).upload(user, new ByteArrayInputStream(archive)));
+
+        verify(fileRepository, never()).saveAll(any());
+        assertEquals(0, storedFileCount());
+    }
+
+    @Test
+    void uploadRejectsZipBomb() throws Exception {
+        // 8 МБ нулей сжимаются в несколько килобайт
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("zeros.bin"));
+            zip.write(new byte[8 * 1024 * 1024]);
+            zip.closeEntry();
+        }
+
+        assertThrows(IllegalArgumentException.class,
+                () -> createService(100, 50).upload(user, new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals(0, storedFileCount());
+    }
+
+    @Test
+    void numberedNameKeepsExtensionAndLengthLimit() {
+        assertEquals("report (2).pdf", ArchiveUploadService.numberedName("report.pdf", 2));
+        assertEquals("README (1)", ArchiveUploadService.numberedName("README", 1));
+        assertEquals(255, ArchiveUploadService.numberedName("x".repeat(251) + ".txt", 1).length());
+    }
+
+    private long storedFileCount() throws Exception {
+        try (var files = Files.walk(storageDir)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    // Пары "имя, содержимое"; null — каталог
+    private byte[] zip(String... entries) throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            for (int i = 0; i < entries.length; i += 2) {
+                zip.putNextEntry(new ZipEntry(entries[i]));
+                if (entries[i + 1] != null) {
+                    zip.write(entries[i + 1].getBytes());
+                }
+                zip.closeEntry();
+            }
+        }
+        return bytes.toByteArray();
+    }
+}
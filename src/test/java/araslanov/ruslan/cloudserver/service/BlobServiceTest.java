@@ -0,0 +1,95 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.Blob;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.io.ByteArrayInputStream;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BlobServiceTest {
+
+    private static final String HASH = "ab" + "cd" + "0".repeat(60);
+    private static final String BLOB_KEY = "blobs/ab/cd/" + HASH;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    private InMemoryStorageBackend storageBackend;
+    private BlobService blobService;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new InMemoryStorageBackend();
+        blobService = new BlobService(storageBackend, blobRepository, event -> { });
+    }
+
+    @Test
+    void acquireMovesStagedFileIntoFanOutDirectory() throws Exception {
+        storageBackend.put("staged", new ByteArrayInputStream("content".getBytes()));
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(new Blob(HASH, BLOB_KEY, 7L, 1L)));
+
+        Blob blob = blobService.acquire(HASH, "staged", 7, ContentCodec.IDENTITY);
+
+        assertEquals(BLOB_KEY, blob.getFilePath());
+        assertEquals("content", new String(storageBackend.get(BLOB_KEY).readAllBytes()));
+        assertTrue(storageBackend.stat("staged").isEmpty());
+        verify(blobRepository).acquire(HASH, BLOB_KEY, 7, "IDENTITY");
+    }
+
+    @Test
+    void acquireDropsStagedCopyWhenBlobAlreadyStored() throws Exception {
+        Blob stored = new Blob(HASH, BLOB_KEY, 7L, 1L);
+        stored.setCodec(ContentCodec.GZIP);
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(stored));
+        storageBackend.put("first", new ByteArrayInputStream("content".getBytes()));
+        blobService.acquire(HASH, "first", 7, ContentCodec.GZIP);
+        storageBackend.put("second", new ByteArrayInputStream("content".getBytes()));
+
+        // Вторая копия пришла несжатой, но ссылка получает кодек уже хранимого блоба
+        Blob blob = blobService.acquire(HASH, "second", 7, ContentCodec.IDENTITY);
+
+        assertEquals(ContentCodec.GZIP, blob.getCodec());
+        assertTrue(storageBackend.stat("second").isEmpty());
+        assertTrue(storageBackend.stat(BLOB_KEY).isPresent());
+    }
+
+    @Test
+    void releaseDecrementsRefCountAndKeepsSharedFile() throws Exception {
+        storageBackend.put(BLOB_KEY, new ByteArrayInputStream("content".getBytes()));
+        Blob blob = new Blob(HASH, BLOB_KEY, 7L, 2L);
+        when(blobRepository.findByHashForUpdate(HASH)).thenReturn(Optional.of(blob));
+
+        blobService.release(HASH);
+
+        assertEquals(1L, blob.getRefCount());
+        assertTrue(storageBackend.stat(BLOB_KEY).isPresent());
+        verify(blobRepository, never()).delete(any());
+    }
+
+    @Test
+    void releaseOfLastReferenceRemovesBlob() throws Exception {
+        storageBackend.put(BLOB_KEY, new ByteArrayInputStream("content".getBytes()));
+        Blob blob = new Blob(HASH, BLOB_KEY, 7L, 1L);
+        when(blobRepository.findByHashForUpdate(HASH)).thenReturn(Optional.of(blob));
+
+        blobService.release(HASH);
+
+        verify(blobRepository).delete(blob);
+        assertTrue(storageBackend.stat(BLOB_KEY).isEmpty());
+    }
+
+    @Test
+    void normalizeHashRejectsMalformedValue() {
+        assertThrows(IllegalArgumentException.class, () -> blobService.normalizeHash("not-a-hash"));
+        assertEquals(HASH, blobService.normalizeHash(HASH.toUpperCase()));
+    }
+}
@@ -0,0 +1,50 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressionPolicyTest {
+
+    private final CompressionPolicy policy = new CompressionPolicy(
+            true, DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6);
+
+    @Test
+    void chooseCodecCompressesText() {
+        byte[] csv = "id,name,amount\n1,alice,100\n2,bob,200\n".repeat(200).getBytes();
+
+        assertEquals(ContentCodec.GZIP, policy.chooseCodec(csv));
+    }
+
+    @Test
+    void chooseCodecSkipsKnownCompressedFormats() {
+        byte[] zip = "PK\u0003\u0004".getBytes();
+        byte[] sample = new byte[4096];
+        System.arraycopy(zip, 0, sample, 0, zip.length);
+
+        assertEquals(ContentCodec.IDENTITY, policy.chooseCodec(sample));
+    }
+
+    @Test
+    void chooseCodecSkipsIncompressibleData() {
+        byte[] random = new byte[8192];
+        new Random(42).nextBytes(random);
+
+        assertEquals(ContentCodec.IDENTITY, policy.chooseCodec(random));
+    }
+
+    @Test
+    void chooseCodecSkipsSmallFiles() {
+        assertEquals(ContentCodec.IDENTITY, policy.chooseCodec("tiny".getBytes()));
+    }
+
+    @Test
+    void chooseCodecReturnsIdentityWhenDisabled() {
+        CompressionPolicy disabled = new CompressionPolicy(
+                false, DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6);
+
+        assertEquals(ContentCodec.IDENTITY, disabled.chooseCodec("a".repeat(4096).getBytes()));
+    }
+}
@@ -0,0 +1,125 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentCacheTest {
+
+    private CountingStorageBackend storageBackend;
+    private ContentCache contentCache;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageBackend = new CountingStorageBackend();
+        storageBackend.put("hot", new ByteArrayInputStream("hot content".getBytes()));
+        contentCache = new ContentCache(storageBackend, true, DataSize.ofKilobytes(1), DataSize.ofBytes(100), 1000);
+    }
+
+    @Test
+    void admitLoadsOnlyFromSecondAccess() throws Exception {
+        assertNull(contentCache.admit("hot", 11));
+        assertNull(contentCache.getIfPresent("hot"));
+
+        ByteBuffer content = contentCache.admit("hot", 11);
+
+        assertEquals("hot content", StandardCharsets.UTF_8.decode(content).toString());
+        assertTrue(contentCache.getIfPresent("hot").isDirect());
+        assertEquals(1, storageBackend.loads.get());
+    }
+
+    @Test
+    void returnedBuffersDoNotShareReadPosition() throws Exception {
+        contentCache.admit("hot", 11);
+        contentCache.admit("hot", 11).position(5);
+
+        assertEquals(11, contentCache.getIfPresent("hot").remaining());
+    }
+
+    @Test
+    void concurrentMissesLoadOnce() throws Exception {
+        contentCache.admit("hot", 11);
+        storageBackend.delay = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<ByteBuffer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> contentCache.admit("hot", 11)));
+            }
+            Thread.sleep(100);
+            storageBackend.delay.countDown();
+
+            for (Future<ByteBuffer> result : results) {
+                assertEquals(11, result.get().remaining());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, storageBackend.loads.get());
+    }
+
+    @Test
+    void admitSkipsLargeObjectsAndMissingFilesAreNotCached() throws Exception {
+        assertFalse(contentCache.isCacheable(101));
+        assertNull(contentCache.admit("big", 101));
+        assertNull(contentCache.admit("big", 101));
+
+        contentCache.admit("missing", 10);
+        assertThrows(NoSuchFileException.class, () -> contentCache.admit("missing", 10));
+        assertNull(contentCache.getIfPresent("missing"));
+    }
+
+    @Test
+    void storageChangeInvalidatesEntry() throws Exception {
+        contentCache.admit("hot", 11);
+        contentCache.admit("hot", 11);
+
+        contentCache.onStorageObjectChanged(new StorageObjectChangedEvent("hot"));
+
+        assertNull(contentCache.getIfPresent("hot"));
+    }
+
+    @Test
+    void disabledCacheNeverLoads() throws Exception {
+        ContentCache disabled = new ContentCache(storageBackend, false, DataSize.ofKilobytes(1),
+                DataSize.ofBytes(100), 1000);
+
+        assertNull(disabled.admit("hot", 11));
+        assertNull(disabled.admit("hot", 11));
+        assertEquals(0, storageBackend.loads.get());
+    }
+
+    private static class CountingStorageBackend extends InMemoryStorageBackend {
+        private final AtomicInteger loads = new AtomicInteger();
+        private volatile CountDownLatch delay;
+
+        @Override
+        public void transferTo(String key, long offset, long length, WritableByteChannel target) throws IOException {
+            loads.incrementAndGet();
+            if (delay != null) {
+                try {
+                    delay.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            super.transferTo(key, offset, length, target);
+        }
+    }
+}
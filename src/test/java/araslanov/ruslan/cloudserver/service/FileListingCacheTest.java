@@ -0,0 +1,98 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.util.unit.DataSize;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileListingCacheTest {
+
+    @Mock
+    private FileStorageService fileStorageService;
+
+    private FileListingCache listingCache;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        listingCache = createCache(true);
+        user = new User("testuser", "password");
+        user.setId(1L);
+    }
+
+    private FileListingCache createCache(boolean bodyCacheEnabled) {
+        return new FileListingCache(fileStorageService, new ObjectMapper(), bodyCacheEnabled,
+                DataSize.ofMegabytes(1), 1000, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void versionIsStableUntilListChanges() {
+        long version = listingCache.currentVersion(1L);
+
+        assertEquals(version, listingCache.currentVersion(1L));
+        assertNotEquals(version, listingCache.currentVersion(2L));
+
+        listingCache.onFileListChanged(new FileListChangedEvent(1L));
+
+        assertNotEquals(version, listingCache.currentVersion(1L));
+    }
+
+    @Test
+    void getListingSerializesPageOnceForSameVersion() throws Exception {
+        when(fileStorageService.getUserFiles(user, 10, null)).thenReturn(new FileListPage(
+                List.of(new FileInfoResponse("file1.txt", 100L), new FileInfoResponse("file2.txt", 200L)), "next"));
+        long version = listingCache.currentVersion(1L);
+
+        FileListingCache.Listing first = listingCache.getListing(user, 10, null, version);
+        FileListingCache.Listing second = listingCache.getListing(user, 10, null, version);
+
+        assertSame(first, second);
+        assertEquals("[{\"filename\":\"file1.txt\",\"size\":100},{\"filename\":\"file2.txt\",\"size\":200}]",
+                new String(first.body(), StandardCharsets.UTF_8));
+        assertEquals("next", first.nextCursor());
+        verify(fileStorageService, times(1)).getUserFiles(user, 10, null);
+    }
+
+    @Test
+    void getListingReloadsAfterChange() throws Exception {
+        when(fileStorageService.getUserFiles(user, null, null))
+                .thenReturn(new FileListPage(List.of(new FileInfoResponse("old.txt", 1L)), null))
+                .thenReturn(new FileListPage(List.of(new FileInfoResponse("new.txt", 1L)), null));
+
+        listingCache.getListing(user, null, null, listingCache.currentVersion(1L));
+        listingCache.onFileListChanged(new FileListChangedEvent(1L));
+        FileListingCache.Listing listing = listingCache.getListing(user, null, null, listingCache.currentVersion(1L));
+
+        assertTrue(new String(listing.body(), StandardCharsets.UTF_8).contains("new.txt"));
+        verify(fileStorageService, times(2)).getUserFiles(user, null, null);
+    }
+
+    @Test
+    void disabledBodyCacheLoadsEveryTime() throws Exception {
+        FileListingCache uncached = createCache(false);
+        when(fileStorageService.getUserFiles(user, null, null)).thenReturn(new FileListPage(List.of(), null));
+        long version = uncached.currentVersion(1L);
+
+        uncached.getListing(user, null, null, version);
+        uncached.getListing(user, null, null, version);
+
+        verify(fileStorageService, times(2)).getUserFiles(user, null, null);
+    }
+
+    @Test
+    void etagIsQuotedHexVersion() {
+        assertEquals("\"ff\"", FileListingCache.etagOf(255));
+    }
+}
@@ -0,0 +1,166 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileInfoResponse;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileSearchIndexTest {
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    private FileSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        searchIndex = new FileSearchIndex(fileRepository, true, 1000, Duration.ofMinutes(5), 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        searchIndex.shutdown();
+    }
+
+    @Test
+    void searchRanksExactThenPrefixThenShorterNames() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "old-report-final.txt", "Report", "report.txt", "my-report.txt", "notes.txt");
+
+        List<FileInfoResponse> result = awaitSearch(user, "report", 0, 10);
+
+        assertEquals(List.of("Report", "report.txt", "my-report.txt", "old-report-final.txt"), names(result));
+    }
+
+    @Test
+    void searchPagesByOffset() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "a1.txt", "a22.txt", "a333.txt", "b.txt");
+
+        List<FileInfoResponse> result = awaitSearch(user, "a", 1, 5);
+
+        assertEquals(List.of("a22.txt", "a333.txt"), names(result));
+    }
+
+    @Test
+    void searchWithUnknownTrigramFindsNothing() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "report.txt");
+
+        assertTrue(awaitSearch(user, "xyz", 0, 10).isEmpty());
+        assertEquals(List.of("report.txt"), names(searchIndex.search(user, "port", 0, 10)));
+    }
+
+    @Test
+    void listChangeUpdatesIndexInPlace() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "report.txt", "report-old.txt");
+        awaitSearch(user, "report", 0, 10);
+
+        // Переименование 2 и новый файл 3
+        searchIndex.onFileListChanged(new FileListChangedEvent(1L,
+                List.of(new FileListChangedEvent.AddedFile(2L, "archive.txt", 1L),
+                        new FileListChangedEvent.AddedFile(3L, "report-2.txt", 1L)),
+                List.of(2L)));
+
+        assertEquals(List.of("report.txt", "report-2.txt"), names(searchIndex.search(user, "report", 0, 10)));
+        assertEquals(List.of("archive.txt"), names(searchIndex.search(user, "arch", 0, 10)));
+        verify(fileRepository, times(1)).findFirstPage(eq(user), any());
+    }
+
+    @Test
+    void equalRankAndLengthIsOrderedById() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "report-b.txt", "report-a.txt");
+
+        assertEquals(List.of("report-b.txt", "report-a.txt"), names(awaitSearch(user, "report", 0, 10)));
+    }
+
+    @Test
+    void unknownListChangeDropsIndexUntilRebuilt() throws InterruptedException {
+        User user = createTestUser();
+        stubFiles(user, "report.txt");
+        awaitSearch(user, "report", 0, 10);
+
+        stubFiles(user, "report.txt", "report-2.txt");
+        searchIndex.onFileListChanged(new FileListChangedEvent(1L));
+
+        assertNull(searchIndex.search(user, "report", 0, 10));
+        assertEquals(List.of("report.txt", "report-2.txt"), names(awaitSearch(user, "report", 0, 10)));
+    }
+
+    @Test
+    void disabledIndexLeavesSearchToDatabase() {
+        FileSearchIndex disabled = new FileSearchIndex(fileRepository, false, 1000, Duration.ofMinutes(5), 1);
+
+        assertNull(disabled.search(createTestUser(), "report", 0, 10));
+        verifyNoInteractions(fileRepository);
+        disabled.shutdown();
+    }
+
+    // Первый поиск только запускает построение: ждём, пока индекс ответит сам
+    private List<FileInfoResponse> awaitSearch(User user, String query, int offset, int limit)
+            throws InterruptedException {
+        for (int i = 0; i < 500; i++) {
+            List<FileInfoResponse> result = searchIndex.search(user, query, offset, limit);
+            if (result != null) {
+                return result;
+            }
+            Thread.sleep(10);
+        }
+        fail("Search index was not built");
+        return null;
+    }
+
+    private void stubFiles(User user, String... filenames) {
+        List<UserFileSummary> files = new ArrayList<>();
+        for (int i = 0; i < filenames.length; i++) {
+            files.add(summary((long) i + 1, filenames[i]));
+        }
+        when(fileRepository.findFirstPage(eq(user), any())).thenReturn(files);
+    }
+
+    private List<String> names(List<FileInfoResponse> files) {
+        return files.stream().map(FileInfoResponse::getFilename).toList();
+    }
+
+    private UserFileSummary summary(Long id, String filename) {
+        return new UserFileSummary() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getFilename() {
+                return filename;
+            }
+
+            public Long getSize() {
+                return 1L;
+            }
+
+            public LocalDateTime getUploadDate() {
+                return LocalDateTime.now();
+            }
+        };
+    }
+
+    private User createTestUser() {
+        User user = new User("testuser", "password");
+        user.setId(1L);
+        return user;
+    }
+}
@@ -0,0 +1,103 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.repository.FileSearchHit;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.time.Duration;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FileSearchServiceTest {
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    private FileSearchService searchService;
+
+    @BeforeEach
+    void setUp() {
+        FileSearchIndex disabledIndex = new FileSearchIndex(fileRepository, false, 1000, Duration.ofMinutes(5), 1);
+        searchService = new FileSearchService(fileRepository, disabledIndex, 2, 10000);
+    }
+
+    @Test
+    void searchEscapesWildcardsAndIgnoresCase() {
+        User user = createTestUser();
+        when(fileRepository.searchByFilename(1L, "50%_off", "%50\\%\\_off%", "50\\%\\_off%", 3, 0))
+                .thenReturn(List.of(hit("50%_OFF.pdf", 10L)));
+
+        FileListPage page = searchService.search(user, "50%_OFF", null, null);
+
+        assertEquals(1, page.getFiles().size());
+        assertEquals("50%_OFF.pdf", page.getFiles().get(0).getFilename());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void searchReturnsOffsetCursorWhenMoreResultsExist() {
+        User user = createTestUser();
+        when(fileRepository.searchByFilename(1L, "report", "%report%", "report%", 3, 2))
+                .thenReturn(List.of(hit("report-3.txt", 1L), hit("report-4.txt", 1L), hit("report-5.txt", 1L)));
+
+        FileListPage page = searchService.search(user, "report", 5, "2");
+
+        assertEquals(2, page.getFiles().size());
+        assertEquals("report-4.txt", page.getFiles().get(1).getFilename());
+        assertEquals("4", page.getNextCursor());
+    }
+
+    @Test
+    void searchStopsAtMaxCandidates() {
+        User user = createTestUser();
+        FileSearchIndex disabledIndex = new FileSearchIndex(fileRepository, false, 1000, Duration.ofMinutes(5), 1);
+        FileSearchService limited = new FileSearchService(fileRepository, disabledIndex, 2, 5);
+        when(fileRepository.searchByFilename(1L, "report", "%report%", "report%", 1, 4))
+                .thenReturn(List.of(hit("report-5.txt", 1L)));
+
+        FileListPage last = limited.search(user, "report", null, "4");
+
+        assertEquals(1, last.getFiles().size());
+        assertNull(last.getNextCursor());
+        assertTrue(limited.search(user, "report", null, "5").getFiles().isEmpty());
+    }
+
+    @Test
+    void searchRejectsInvalidInput() {
+        User user = createTestUser();
+
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(user, "", null, null));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(user, "a".repeat(256), null, null));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(user, "a", null, "-1"));
+        assertThrows(IllegalArgumentException.class, () -> searchService.search(user, "a", null, "abc"));
+        verify(fileRepository, never()).searchByFilename(anyLong(), anyString(), anyString(), anyString(),
+                anyInt(), anyInt());
+    }
+
+    private FileSearchHit hit(String filename, Long size) {
+        return new FileSearchHit() {
+            public String getFilename() {
+                return filename;
+            }
+
+            public Long getSize() {
+                return size;
+            }
+        };
+    }
+
+    private User createTestUser() {
+        User user = new User("testuser", "password");
+        user.setId(1L);
+        return user;
+    }
+}
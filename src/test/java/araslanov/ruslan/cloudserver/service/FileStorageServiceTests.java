@@ -1,16 +1,44 @@
 package araslanov.ruslan.cloudserver.service;
 
+import araslanov.ruslan.cloudserver.dto.FileListPage;
+import araslanov.ruslan.cloudserver.entity.Blob;
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.exception.QuotaExceededException;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
 import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileSummary;
+import araslanov.ruslan.cloudserver.storage.ContentCodec;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import java.util.Arrays;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,95 +47,631 @@ class FileStorageServiceTests {
     @Mock
     private UserFileRepository fileRepository;
 
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    Path storageDir;
+
+    private LocalStorageBackend storageBackend;
     private FileStorageService fileStorageService;
 
     @BeforeEach
     void setUp() {
-        fileStorageService = new FileStorageService("./test-storage", fileRepository);
+        storageBackend = new LocalStorageBackend(storageDir);
+        fileStorageService = createService(false);
+    }
+
+    private FileStorageService createService(boolean dedupEnabled) {
+        return createService(dedupEnabled, false);
+    }
+
+    private final TransferMetrics transferMetrics = new TransferMetrics();
+    private final List<Object> publishedEvents = new ArrayList<>();
+
+    private FileStorageService createService(boolean dedupEnabled, boolean compressionEnabled) {
+        return createService(dedupEnabled, compressionEnabled,
+                new QuotaService(null, null, null, false, DataSize.ofGigabytes(1), Duration.ofHours(1),
+                        DataSize.ofMegabytes(64)));
+    }
+
+    private FileStorageService createService(boolean dedupEnabled, boolean compressionEnabled,
+                                             QuotaService quotaService) {
+        BlobService blobService = new BlobService(storageBackend, blobRepository, event -> { });
+        CompressionPolicy compressionPolicy = new CompressionPolicy(compressionEnabled,
+                DataSize.ofBytes(512), DataSize.ofBytes(64), 0.9, 6);
+        return new FileStorageService(
+                DataSize.ofKilobytes(1), dedupEnabled, 100, 10, fileRepository, blobService,
+                new StorageLayout(2, 2), storageBackend, compressionPolicy, transferMetrics, quotaService,
+                transactionManager, publishedEvents::add);
     }
 
     @Test
-    void getUserFilesReturnsLimitedResultsWhenLimitSpecified() {
+    void getUserFilesPushesLimitIntoQuery() {
         User user = createTestUser();
+        LocalDateTime now = LocalDateTime.now();
 
-        List<UserFile> allFiles = Arrays.asList(
-                createUserFile(user, "file1.txt", 100L),
-                createUserFile(user, "file2.txt", 200L),
-                createUserFile(user, "file3.txt", 300L)
-        );
+        when(fileRepository.findFirstPage(user, PageRequest.of(0, 2))).thenReturn(List.of(
+                summary(3L, "file1.txt", 100L, now),
+                summary(2L, "file2.txt", 200L, now.minusMinutes(1))));
 
-        when(fileRepository.findByUserOrderByUploadDateDesc(user)).thenReturn(allFiles);
+        FileListPage page = fileStorageService.getUserFiles(user, 2, null);
 
-        List<UserFile> result = fileStorageService.getUserFiles(user, 2);
+        assertEquals(2, page.getFiles().size());
+        assertEquals("file1.txt", page.getFiles().get(0).getFilename());
+        assertEquals(200L, page.getFiles().get(1).getSize());
+        assertNotNull(page.getNextCursor());
+        verify(fileRepository, never()).findByUserOrderByUploadDateDesc(any());
+    }
+
+    @Test
+    void getUserFilesReturnsWholeListWithoutLimitAndCursor() {
+        User user = createTestUser();
+        LocalDateTime now = LocalDateTime.now();
+        List<UserFileSummary> firstPage = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            firstPage.add(summary(200L - i, "file" + i + ".txt", 1L, now.minusMinutes(i)));
+        }
+        UserFileSummary last = firstPage.get(99);
+
+        when(fileRepository.findFirstPage(user, PageRequest.of(0, 100))).thenReturn(firstPage);
+        when(fileRepository.findPageAfter(user, last.getUploadDate(), last.getId(), PageRequest.of(0, 100)))
+                .thenReturn(List.of(summary(1L, "oldest.txt", 1L, now.minusDays(1))));
+
+        FileListPage page = fileStorageService.getUserFiles(user, null, null);
+
+        assertEquals(101, page.getFiles().size());
+        assertEquals("oldest.txt", page.getFiles().get(100).getFilename());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getUserFilesUsesMaxLimitWhenOnlyCursorIsSent() {
+        User user = createTestUser();
+        LocalDateTime uploaded = LocalDateTime.of(2024, 5, 1, 12, 30, 15);
+
+        when(fileRepository.findFirstPage(user, PageRequest.of(0, 1)))
+                .thenReturn(List.of(summary(7L, "newest.txt", 10L, uploaded)));
+        String cursor = fileStorageService.getUserFiles(user, 1, null).getNextCursor();
 
-        assertEquals(2, result.size());
-        assertEquals("file1.txt", result.get(0).getFilename());
-        assertEquals("file2.txt", result.get(1).getFilename());
+        when(fileRepository.findPageAfter(user, uploaded, 7L, PageRequest.of(0, 100))).thenReturn(List.of());
 
-        verify(fileRepository, times(1)).findByUserOrderByUploadDateDesc(user);
+        assertTrue(fileStorageService.getUserFiles(user, 0, cursor).getFiles().isEmpty());
     }
 
     @Test
-    void getUserFilesReturnsAllResultsWhenLimitIsNull() {
+    void getUserFilesCapsLimitAtMaximum() {
         User user = createTestUser();
 
-        List<UserFile> expectedFiles = Arrays.asList(
-                createUserFile(user, "file1.txt", 100L),
-                createUserFile(user, "file2.txt", 200L)
-        );
+        when(fileRepository.findFirstPage(user, PageRequest.of(0, 100))).thenReturn(List.of());
 
-        when(fileRepository.findByUserOrderByUploadDateDesc(user)).thenReturn(expectedFiles);
+        fileStorageService.getUserFiles(user, 100_000, null);
+
+        verify(fileRepository).findFirstPage(user, PageRequest.of(0, 100));
+    }
+
+    @Test
+    void getUserFilesContinuesAfterCursor() {
+        User user = createTestUser();
+        LocalDateTime uploaded = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
 
-        List<UserFile> result = fileStorageService.getUserFiles(user, null);
+        when(fileRepository.findFirstPage(user, PageRequest.of(0, 1)))
+                .thenReturn(List.of(summary(7L, "newest.txt", 10L, uploaded)));
+        String cursor = fileStorageService.getUserFiles(user, 1, null).getNextCursor();
 
-        assertEquals(2, result.size());
-        assertIterableEquals(expectedFiles, result);
+        when(fileRepository.findPageAfter(user, uploaded, 7L, PageRequest.of(0, 1))).thenReturn(List.of());
+        FileListPage next = fileStorageService.getUserFiles(user, 1, cursor);
+
+        assertTrue(next.getFiles().isEmpty());
+        assertNull(next.getNextCursor());
     }
 
     @Test
-    void getUserFilesReturnsEmptyListWhenNoFilesExist() {
+    void getUserFilesRejectsMalformedCursor() {
         User user = createTestUser();
 
-        when(fileRepository.findByUserOrderByUploadDateDesc(user)).thenReturn(List.of());
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.getUserFiles(user, 10, "not-a-cursor"));
+    }
+
+    @Test
+    void uploadFileStreamWritesContentAndSavesMetadata() throws Exception {
+        User user = createTestUser();
+        byte[] content = "streamed content".getBytes();
+
+        when(fileRepository.existsByUserAndFilename(user, "stream.txt")).thenReturn(false);
+
+        fileStorageService.uploadFile(user, "stream.txt", new ByteArrayInputStream(content), content.length);
 
-        List<UserFile> result = fileStorageService.getUserFiles(user, 10);
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
 
-        assertNotNull(result);
-        assertTrue(result.isEmpty());
+        UserFile saved = captor.getValue();
+        String storedName = saved.getFilePath().substring(saved.getFilePath().lastIndexOf('/') + 1);
+        assertEquals("user_1/" + storedName.substring(0, 2) + "/" + storedName.substring(2, 4) + "/" + storedName,
+                saved.getFilePath());
+        assertEquals("stream.txt", saved.getFilename());
+        assertEquals(content.length, saved.getSize());
+        assertArrayEquals(content, Files.readAllBytes(storageDir.resolve(saved.getFilePath())));
+        assertEquals(content.length, transferMetrics.getUploadedBytes());
     }
 
     @Test
-    void getUserFilesReturnsAllFilesWhenLimitGreaterThanFileCount() {
+    void uploadFileStreamRejectsDeclaredLengthOverLimit() {
         User user = createTestUser();
 
-        List<UserFile> expectedFiles = Arrays.asList(
-                createUserFile(user, "file1.txt", 100L),
-                createUserFile(user, "file2.txt", 200L)
-        );
+        when(fileRepository.existsByUserAndFilename(user, "big.bin")).thenReturn(false);
 
-        when(fileRepository.findByUserOrderByUploadDateDesc(user)).thenReturn(expectedFiles);
+        assertThrows(MaxUploadSizeExceededException.class, () -> fileStorageService.uploadFile(
+                user, "big.bin", new ByteArrayInputStream(new byte[0]), 2048));
 
-        List<UserFile> result = fileStorageService.getUserFiles(user, 5);
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadFileStreamRemovesPartialFileWhenLimitExceededWhileStreaming() throws Exception {
+        User user = createTestUser();
 
-        assertEquals(2, result.size());
-        assertIterableEquals(expectedFiles, result);
+        when(fileRepository.existsByUserAndFilename(user, "big.bin")).thenReturn(false);
+
+        // Длина неизвестна (-1), лимит срабатывает во время чтения
+        assertThrows(MaxUploadSizeExceededException.class, () -> fileStorageService.uploadFile(
+                user, "big.bin", new ByteArrayInputStream(new byte[4096]), -1));
+
+        verify(fileRepository, never()).save(any());
+        try (var files = Files.walk(storageDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
     }
 
     @Test
-    void getUserFilesReturnsAllFilesWhenLimitIsZero() {
+    void uploadFileStreamRejectsEmptyBody() {
         User user = createTestUser();
 
-        List<UserFile> expectedFiles = Arrays.asList(
-                createUserFile(user, "file1.txt", 100L),
-                createUserFile(user, "file2.txt", 200L)
-        );
+        when(fileRepository.existsByUserAndFilename(user, "empty.txt")).thenReturn(false);
 
-        when(fileRepository.findByUserOrderByUploadDateDesc(user)).thenReturn(expectedFiles);
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.uploadFile(
+                user, "empty.txt", new ByteArrayInputStream(new byte[0]), 0));
 
-        List<UserFile> result = fileStorageService.getUserFiles(user, 0);
+        verify(fileRepository, never()).save(any());
+    }
 
-        assertEquals(2, result.size());
-        assertIterableEquals(expectedFiles, result);
+    @Test
+    void uploadFileInDedupModeStoresContentUnderItsHash() throws Exception {
+        FileStorageService dedupService = createService(true);
+        User user = createTestUser();
+        byte[] content = "same bytes".getBytes();
+        String hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+
+        when(fileRepository.existsByUserAndFilename(eq(user), anyString())).thenReturn(false);
+        when(blobRepository.findById(hash)).thenReturn(Optional.of(new Blob(hash,
+                "blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash,
+                (long) content.length, 1L)));
+
+        dedupService.uploadFile(user, "a.txt", new ByteArrayInputStream(content), content.length);
+        dedupService.uploadFile(user, "b.txt", new ByteArrayInputStream(content), content.length);
+
+        verify(blobRepository, times(2)).acquire(eq(hash), anyString(), eq((long) content.length), eq("IDENTITY"));
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository, times(2)).save(captor.capture());
+        UserFile first = captor.getAllValues().get(0);
+        UserFile second = captor.getAllValues().get(1);
+
+        assertEquals(hash, first.getContentHash());
+        assertEquals(first.getFilePath(), second.getFilePath());
+        assertEquals("blobs/" + hash.substring(0, 2) + "/" + hash.substring(2, 4) + "/" + hash, first.getFilePath());
+        assertArrayEquals(content, Files.readAllBytes(storageDir.resolve(first.getFilePath())));
+        // Каталог staging остаётся, но ни временных файлов бэкенда, ни промежуточной копии в нём нет
+        try (Stream<Path> staged = Files.list(storageDir.resolve(".staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void uploadFileByHashIgnoresContentOfOtherUsers() {
+        User user = createTestUser();
+        String hash = "c".repeat(64);
+
+        when(fileRepository.existsByUserAndFilename(user, "copy.bin")).thenReturn(false);
+        when(fileRepository.existsByUserAndContentHash(user, hash)).thenReturn(false);
+
+        assertFalse(fileStorageService.uploadFileByHash(user, "copy.bin", hash, 10L));
+        verify(blobRepository, never()).incrementRefCount(any(), anyLong());
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadFileByHashReturnsFalseForUnknownContent() {
+        User user = createTestUser();
+        String hash = "a".repeat(64);
+
+        when(fileRepository.existsByUserAndFilename(user, "copy.bin")).thenReturn(false);
+        when(fileRepository.existsByUserAndContentHash(user, hash)).thenReturn(true);
+        when(blobRepository.incrementRefCount(hash, 10L)).thenReturn(0);
+
+        assertFalse(fileStorageService.uploadFileByHash(user, "copy.bin", hash, 10L));
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadFileByHashLinksExistingBlob() {
+        User user = createTestUser();
+        String hash = "b".repeat(64);
+
+        when(fileRepository.existsByUserAndFilename(user, "copy.bin")).thenReturn(false);
+        when(fileRepository.existsByUserAndContentHash(user, hash)).thenReturn(true);
+        when(blobRepository.incrementRefCount(hash, 10L)).thenReturn(1);
+        Blob blob = new Blob(hash, "blobs/bb/bb/" + hash, 10L, 2L);
+        blob.setCodec(ContentCodec.GZIP);
+        when(blobRepository.findById(hash)).thenReturn(Optional.of(blob));
+
+        assertTrue(fileStorageService.uploadFileByHash(user, "copy.bin", hash.toUpperCase(), 10L));
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
+        assertEquals(hash, captor.getValue().getContentHash());
+        assertEquals(10L, captor.getValue().getSize());
+        assertEquals(ContentCodec.GZIP, captor.getValue().getCodec());
+    }
+
+    @Test
+    void uploadFileByHashReleasesBlobReferenceWhenQuotaIsExceeded() {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+        String hash = "d".repeat(64);
+
+        when(fileRepository.existsByUserAndFilename(user, "copy.bin")).thenReturn(false);
+        when(fileRepository.existsByUserAndContentHash(user, hash)).thenReturn(true);
+        when(blobRepository.incrementRefCount(hash, 10L)).thenReturn(1);
+        when(blobRepository.findById(hash)).thenReturn(Optional.of(new Blob(hash, "blobs/dd/dd/" + hash, 10L, 2L)));
+        when(quotaService.reserve(1L, 10L)).thenThrow(new QuotaExceededException("Storage quota exceeded"));
+
+        assertThrows(QuotaExceededException.class, () -> service.uploadFileByHash(user, "copy.bin", hash, 10L));
+
+        verify(blobRepository).findByHashForUpdate(hash);
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadFileCompressesTextAndKeepsOriginalSize() throws Exception {
+        FileStorageService compressingService = createService(false, true);
+        User user = createTestUser();
+        byte[] content = "2024-01-01 INFO request handled\n".repeat(30).getBytes();
+
+        when(fileRepository.existsByUserAndFilename(user, "app.log")).thenReturn(false);
+
+        compressingService.uploadFile(user, "app.log", new ByteArrayInputStream(content), -1);
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
+        UserFile saved = captor.getValue();
+
+        assertEquals(ContentCodec.GZIP, saved.getCodec());
+        assertEquals(content.length, saved.getSize());
+        assertTrue(Files.size(storageDir.resolve(saved.getFilePath())) < content.length);
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(storageDir.resolve(saved.getFilePath())))) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+    }
+
+    @Test
+    void uploadFileSkipsCompressionForAlreadyCompressedData() throws Exception {
+        FileStorageService compressingService = createService(false, true);
+        User user = createTestUser();
+        byte[] content = new byte[600];
+        content[0] = (byte) 0x89;
+        content[1] = 0x50;
+        content[2] = 0x4e;
+        content[3] = 0x47;
+
+        when(fileRepository.existsByUserAndFilename(user, "image.png")).thenReturn(false);
+
+        compressingService.uploadFile(user, "image.png", new ByteArrayInputStream(content), content.length);
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
+        assertEquals(ContentCodec.IDENTITY, captor.getValue().getCodec());
+        assertArrayEquals(content, Files.readAllBytes(storageDir.resolve(captor.getValue().getFilePath())));
+    }
+
+    @Test
+    void deleteFileMovesFileToTrashAndKeepsContent() throws Exception {
+        User user = createTestUser();
+        byte[] content = "to delete".getBytes();
+
+        when(fileRepository.existsByUserAndFilename(user, "gone.txt")).thenReturn(false);
+        fileStorageService.uploadFile(user, "gone.txt", new ByteArrayInputStream(content), content.length);
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
+        UserFile stored = captor.getValue();
+        when(fileRepository.findByUserAndFilename(user, "gone.txt")).thenReturn(Optional.of(stored));
+
+        fileStorageService.deleteFile(user, "gone.txt");
+
+        assertNotNull(stored.getDeletedAt());
+        assertTrue(Files.exists(storageDir.resolve(stored.getFilePath())));
+        verify(fileRepository, never()).delete(any(UserFile.class));
+    }
+
+    @Test
+    void uploadFileStreamReservesDeclaredLengthAndCommitsActualSize() throws Exception {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+        byte[] content = "quota content".getBytes();
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, content.length);
+
+        when(fileRepository.existsByUserAndFilename(user, "quota.txt")).thenReturn(false);
+        when(quotaService.reserve(1L, content.length)).thenReturn(reservation);
+
+        service.uploadFile(user, "quota.txt", new ByteArrayInputStream(content), content.length);
+
+        verify(quotaService).commit(reservation, content.length);
+        verify(quotaService, never()).release(any());
+    }
+
+    @Test
+    void uploadFileRemovesContentWhenRowIsNotSaved() throws Exception {
+        User user = createTestUser();
+
+        when(fileRepository.existsByUserAndFilename(user, "race.txt")).thenReturn(false);
+        when(fileRepository.save(any())).thenThrow(new DataIntegrityViolationException("duplicate filename"));
+
+        assertThrows(DataIntegrityViolationException.class, () -> fileStorageService.uploadFile(
+                user, "race.txt", new ByteArrayInputStream("content".getBytes()), 7));
+
+        try (var files = Files.walk(storageDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void uploadFileStreamDoesNotWriteWhenReservationFails() {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+
+        when(fileRepository.existsByUserAndFilename(user, "quota.txt")).thenReturn(false);
+        when(quotaService.reserve(1L, 100)).thenThrow(new QuotaExceededException("Storage quota exceeded"));
+
+        assertThrows(QuotaExceededException.class, () -> service.uploadFile(
+                user, "quota.txt", new ByteArrayInputStream(new byte[100]), 100));
+
+        verify(fileRepository, never()).save(any());
+        assertFalse(Files.exists(storageDir.resolve("user_1")));
+    }
+
+    @Test
+    void uploadFileChunkedGrowsReservationWhileReading() throws Exception {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+        QuotaService.Reservation first = new QuotaService.Reservation("r1", 1L, 100);
+        QuotaService.Reservation grown = new QuotaService.Reservation("r1", 1L, 600);
+
+        when(fileRepository.existsByUserAndFilename(user, "chunked.bin")).thenReturn(false);
+        when(quotaService.reserveRemaining(1L, 1024)).thenReturn(first);
+        when(quotaService.extend(first, 1024)).thenReturn(grown);
+
+        service.uploadFile(user, "chunked.bin", new ByteArrayInputStream(new byte[500]), -1);
+
+        verify(quotaService).commit(grown, 500);
+        verify(quotaService, never()).release(any());
+    }
+
+    @Test
+    void uploadFileChunkedStopsAtRemainingQuotaAndReleasesReservation() throws Exception {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, 100);
+
+        when(fileRepository.existsByUserAndFilename(user, "chunked.bin")).thenReturn(false);
+        when(quotaService.reserveRemaining(1L, 1024)).thenReturn(reservation);
+        when(quotaService.extend(reservation, 1024)).thenThrow(new QuotaExceededException("Storage quota exceeded"));
+
+        // Общий лимит 1 КБ не превышен, но резерв не растёт дальше 100 байт
+        assertThrows(QuotaExceededException.class, () -> service.uploadFile(
+                user, "chunked.bin", new ByteArrayInputStream(new byte[500]), -1));
+
+        verify(quotaService).release(reservation);
+        verify(quotaService, never()).commit(any(), anyLong());
+        verify(fileRepository, never()).save(any());
+        try (var files = Files.walk(storageDir)) {
+            assertEquals(0, files.filter(Files::isRegularFile).count());
+        }
+    }
+
+    @Test
+    void deleteFileKeepsUsedQuotaUntilPurge() {
+        FileStorageService service = createService(false, false, quotaService);
+        User user = createTestUser();
+        UserFile userFile = new UserFile(user, "gone.txt", "user_1/ab/cd/abcd", 42L);
+
+        when(fileRepository.findByUserAndFilename(user, "gone.txt")).thenReturn(Optional.of(userFile));
+
+        service.deleteFile(user, "gone.txt");
+
+        verify(quotaService, never()).releaseUsage(anyLong(), anyLong());
+    }
+
+    @Test
+    void deleteFilesMarksRowsWithOneStatement() throws Exception {
+        User user = createTestUser();
+        Files.createDirectories(storageDir.resolve("user_1"));
+        Files.writeString(storageDir.resolve("user_1/a"), "aaa");
+
+        UserFile a = storedFile(1L, user, "a.txt", "user_1/a", 3L, null);
+        UserFile b = storedFile(2L, user, "b.txt", "blobs/ha/sh/hash", 5L, "hash");
+
+        when(fileRepository.findByUserAndFilenameIn(user, List.of("a.txt", "b.txt"))).thenReturn(List.of(a, b));
+        when(fileRepository.markDeleted(eq(List.of(1L, 2L)), any(LocalDateTime.class))).thenReturn(2);
+
+        int deleted = fileStorageService.deleteFiles(user, List.of("a.txt", "b.txt"), null);
+
+        assertEquals(2, deleted);
+        verify(fileRepository, never()).deleteByIdIn(any());
+        verifyNoInteractions(blobRepository);
+        assertTrue(Files.exists(storageDir.resolve("user_1/a")));
+    }
+
+    @Test
+    void changesToFileListPublishListingEvent() throws Exception {
+        User user = createTestUser();
+        UserFile file = new UserFile(user, "old.txt", "user_1/ab/cd/abcd", 42L);
+        file.setId(7L);
+
+        when(fileRepository.findByUserAndFilename(user, "old.txt")).thenReturn(Optional.of(file));
+        when(fileRepository.existsByUserAndFilename(user, "new.txt")).thenReturn(false);
+
+        fileStorageService.renameFile(user, "old.txt", "new.txt");
+
+        assertEquals(List.of(new FileListChangedEvent(1L,
+                List.of(new FileListChangedEvent.AddedFile(7L, "new.txt", 42L)), List.of(7L))), publishedEvents);
+    }
+
+    @Test
+    void moveWithoutMatchesDoesNotChangeListingVersion() {
+        User user = createTestUser();
+
+        when(fileRepository.countByPrefix(user, "a%")).thenReturn(0L);
+
+        assertEquals(0, fileStorageService.moveFiles(user, "a", "b"));
+        assertTrue(publishedEvents.isEmpty());
+        verify(fileRepository, never()).stripFilenamePrefix(any(), anyString(), anyInt());
+    }
+
+    @Test
+    void deleteFilesByPatternTranslatesGlobToLike() throws Exception {
+        User user = createTestUser();
+
+        when(fileRepository.findByUserAndFilenameLike(user, "report\\_%.tm_", PageRequest.of(0, 11)))
+                .thenReturn(List.of());
+
+        assertEquals(0, fileStorageService.deleteFiles(user, null, "report_*.tm?"));
+    }
+
+    @Test
+    void deleteFilesRequiresExactlyOneSelector() {
+        User user = createTestUser();
+
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.deleteFiles(user, null, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.deleteFiles(user, List.of("a.txt"), "*.txt"));
+    }
+
+    @Test
+    void deleteFilesRejectsPatternMatchingTooManyFiles() {
+        User user = createTestUser();
+        List<UserFile> files = new ArrayList<>();
+        for (long i = 0; i < 11; i++) {
+            files.add(storedFile(i, user, "f" + i, "user_1/f" + i, 1L, null));
+        }
+
+        when(fileRepository.findByUserAndFilenameLike(user, "%", PageRequest.of(0, 11))).thenReturn(files);
+
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.deleteFiles(user, null, "*"));
+        verify(fileRepository, never()).markDeleted(any(), any());
+    }
+
+    @Test
+    void getFilesKeepsRequestedOrderAndRejectsMissingNames() {
+        User user = createTestUser();
+        UserFile a = storedFile(1L, user, "a.txt", "user_1/a", 3L, null);
+        UserFile b = storedFile(2L, user, "b.txt", "user_1/b", 4L, null);
+
+        when(fileRepository.findByUserAndFilenameIn(user, List.of("b.txt", "a.txt"))).thenReturn(List.of(a, b));
+        when(fileRepository.findByUserAndFilenameIn(user, List.of("a.txt", "c.txt"))).thenReturn(List.of(a));
+
+        assertEquals(List.of(b, a), fileStorageService.getFiles(user, List.of("b.txt", "a.txt"), null));
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.getFiles(user, List.of("a.txt", "c.txt"), null));
+    }
+
+    @Test
+    void renameFilesUpdatesLoadedEntities() {
+        User user = createTestUser();
+        UserFile a = storedFile(1L, user, "a.txt", "user_1/a", 3L, null);
+        UserFile b = storedFile(2L, user, "b.txt", "user_1/b", 4L, null);
+        Map<String, String> renames = Map.of("a.txt", "x.txt", "b.txt", "y.txt");
+
+        when(fileRepository.findExistingFilenames(eq(user), any())).thenReturn(List.of());
+        when(fileRepository.findByUserAndFilenameIn(user, renames.keySet())).thenReturn(List.of(a, b));
+
+        assertEquals(2, fileStorageService.renameFiles(user, renames));
+
+        assertEquals("x.txt", a.getFilename());
+        assertEquals("y.txt", b.getFilename());
+        verify(fileRepository).saveAll(List.of(a, b));
+    }
+
+    @Test
+    void renameFilesRejectsExistingTarget() {
+        User user = createTestUser();
+
+        when(fileRepository.findExistingFilenames(eq(user), any())).thenReturn(List.of("b.txt"));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> fileStorageService.renameFiles(user, Map.of("a.txt", "b.txt")));
+        verify(fileRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void renameFilesRejectsMissingSource() {
+        User user = createTestUser();
+        UserFile a = storedFile(1L, user, "a.txt", "user_1/a", 3L, null);
+        Map<String, String> renames = Map.of("a.txt", "x.txt", "missing.txt", "y.txt");
+
+        when(fileRepository.findExistingFilenames(eq(user), any())).thenReturn(List.of());
+        when(fileRepository.findByUserAndFilenameIn(user, renames.keySet())).thenReturn(List.of(a));
+
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.renameFiles(user, renames));
+        verify(fileRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void moveFilesReplacesPrefixThroughTemporaryName() {
+        User user = createTestUser();
+
+        when(fileRepository.countByPrefix(user, "old\\_%")).thenReturn(3L);
+        when(fileRepository.countPrefixConflicts(user, "old\\_%", 4, "archive-")).thenReturn(0L);
+        when(fileRepository.stripFilenamePrefix(user, "old\\_%", 4)).thenReturn(3);
+
+        assertEquals(3, fileStorageService.moveFiles(user, "old_", "archive-"));
+        // Новый префикс ставится в той же транзакции, deleted_at не трогается
+        verify(fileRepository).applyFilenamePrefix(user, "archive-");
+        verify(fileRepository, never()).markDeleted(any(), any());
+    }
+
+    @Test
+    void moveFilesChecksBatchSizeBeforeUpdating() {
+        User user = createTestUser();
+
+        when(fileRepository.countByPrefix(user, "old%")).thenReturn(1_000_000L);
+
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.moveFiles(user, "old", "new"));
+        verify(fileRepository, never()).stripFilenamePrefix(any(), anyString(), anyInt());
+    }
+
+    @Test
+    void moveFilesRejectsConflicts() {
+        User user = createTestUser();
+
+        when(fileRepository.countByPrefix(user, "old%")).thenReturn(1L);
+        when(fileRepository.countPrefixConflicts(user, "old%", 3, "new")).thenReturn(1L);
+
+        assertThrows(IllegalArgumentException.class, () -> fileStorageService.moveFiles(user, "old", "new"));
+        verify(fileRepository, never()).stripFilenamePrefix(any(), anyString(), anyInt());
+    }
+
+    private UserFile storedFile(Long id, User user, String filename, String path, Long size, String hash) {
+        UserFile file = new UserFile(user, filename, path, size);
+        file.setId(id);
+        file.setContentHash(hash);
+        return file;
     }
 
     private User createTestUser() {
@@ -116,9 +680,23 @@ class FileStorageServiceTests {
         return user;
     }
 
-    private UserFile createUserFile(User user, String filename, Long size) {
-        UserFile file = new UserFile(user, filename, "/path/" + filename, size);
-        file.setId(1L);
-        return file;
+    private UserFileSummary summary(Long id, String filename, Long size, LocalDateTime uploadDate) {
+        return new UserFileSummary() {
+            public Long getId() {
+                return id;
+            }
+
+            public String getFilename() {
+                return filename;
+            }
+
+            public Long getSize() {
+                return size;
+            }
+
+            public LocalDateTime getUploadDate() {
+                return uploadDate;
+            }
+        };
     }
 }
\ No newline at end of file
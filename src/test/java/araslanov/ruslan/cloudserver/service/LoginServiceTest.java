@@ -0,0 +1,119 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import araslanov.ruslan.cloudserver.security.JwtUtil;
+import araslanov.ruslan.cloudserver.security.PasswordHashingExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class LoginServiceTest {
+
+    @Mock
+    private UserDetailsService userDetailsService;
+
+    @Mock
+    private UserService userService;
+
+    @Mock
+    private PasswordEncoder passwordEncoder;
+
+    @Mock
+    private JwtUtil jwtUtil;
+
+    private PasswordHashingExecutor hashingExecutor;
+    private LoginService loginService;
+
+    @BeforeEach
+    void setUp() {
+        hashingExecutor = new PasswordHashingExecutor(1, 10, Duration.ofSeconds(5));
+        loginService = new LoginService(userDetailsService, userService, passwordEncoder, hashingExecutor, jwtUtil);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    void loginReturnsTokenAndLoadsUserOnce() {
+        when(userDetailsService.loadUserByUsername("testuser"))
+                .thenReturn(new AuthenticatedUser(1L, "testuser", "hash", true));
+        when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("hash")).thenReturn(false);
+        when(jwtUtil.generateToken("testuser")).thenReturn("token");
+
+        assertEquals("token", loginService.login("testuser", "password"));
+
+        verify(userDetailsService, times(1)).loadUserByUsername("testuser");
+        verify(userService, never()).updatePasswordHash(anyString(), anyString());
+    }
+
+    @Test
+    void loginThrowsForWrongPassword() {
+        when(userDetailsService.loadUserByUsername("testuser"))
+                .thenReturn(new AuthenticatedUser(1L, "testuser", "hash", true));
+        when(passwordEncoder.matches("wrong", "hash")).thenReturn(false);
+
+        assertThrows(BadCredentialsException.class, () -> loginService.login("testuser", "wrong"));
+        verifyNoInteractions(jwtUtil);
+    }
+
+    @Test
+    void loginThrowsForUnknownUserAfterDummyCheck() {
+        when(userDetailsService.loadUserByUsername("ghost")).thenThrow(new UsernameNotFoundException("ghost"));
+        when(passwordEncoder.encode("dummy-password")).thenReturn("dummy-hash");
+
+        assertThrows(BadCredentialsException.class, () -> loginService.login("ghost", "password"));
+        verify(passwordEncoder).matches("password", "dummy-hash");
+    }
+
+    @Test
+    void loginThrowsForDisabledUser() {
+        when(userDetailsService.loadUserByUsername("testuser"))
+                .thenReturn(new AuthenticatedUser(1L, "testuser", "hash", false));
+        when(passwordEncoder.matches("password", "hash")).thenReturn(true);
+
+        assertThrows(BadCredentialsException.class, () -> loginService.login("testuser", "password"));
+    }
+
+    @Test
+    void loginUpgradesOutdatedHash() {
+        when(userDetailsService.loadUserByUsername("testuser"))
+                .thenReturn(new AuthenticatedUser(1L, "testuser", "weak-hash", true));
+        when(passwordEncoder.matches("password", "weak-hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("weak-hash")).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn("strong-hash");
+        when(jwtUtil.generateToken("testuser")).thenReturn("token");
+
+        assertEquals("token", loginService.login("testuser", "password"));
+
+        verify(userService).updatePasswordHash("testuser", "strong-hash");
+    }
+
+    @Test
+    void loginSucceedsWhenHashUpgradeFails() {
+        when(userDetailsService.loadUserByUsername("testuser"))
+                .thenReturn(new AuthenticatedUser(1L, "testuser", "weak-hash", true));
+        when(passwordEncoder.matches("password", "weak-hash")).thenReturn(true);
+        when(passwordEncoder.upgradeEncoding("weak-hash")).thenReturn(true);
+        when(passwordEncoder.encode("password")).thenReturn("strong-hash");
+        doThrow(new IllegalStateException("db down")).when(userService).updatePasswordHash("testuser", "strong-hash");
+        when(jwtUtil.generateToken("testuser")).thenReturn("token");
+
+        assertEquals("token", loginService.login("testuser", "password"));
+    }
+}
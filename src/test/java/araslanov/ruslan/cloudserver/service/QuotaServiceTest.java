@@ -0,0 +1,186 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.QuotaReservation;
+import araslanov.ruslan.cloudserver.exception.QuotaExceededException;
+import araslanov.ruslan.cloudserver.repository.QuotaReservationRepository;
+import araslanov.ruslan.cloudserver.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class QuotaServiceTest {
+
+    private static final long DEFAULT_QUOTA = DataSize.ofMegabytes(1).toBytes();
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private QuotaReservationRepository reservationRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private QuotaService quotaService;
+
+    @BeforeEach
+    void setUp() {
+        quotaService = new QuotaService(userRepository, reservationRepository, transactionManager,
+                true, DataSize.ofMegabytes(1), Duration.ofHours(1), DataSize.ofMegabytes(1));
+    }
+
+    @Test
+    void reserveStoresReservationWhenQuotaAllows() {
+        when(userRepository.reserveBytes(1L, 100, DEFAULT_QUOTA)).thenReturn(1);
+
+        QuotaService.Reservation reservation = quotaService.reserve(1L, 100);
+
+        ArgumentCaptor<QuotaReservation> captor = ArgumentCaptor.forClass(QuotaReservation.class);
+        verify(reservationRepository).save(captor.capture());
+        assertEquals(reservation.id(), captor.getValue().getId());
+        assertEquals(100, captor.getValue().getBytes());
+        assertTrue(captor.getValue().getExpiresAt().isAfter(LocalDateTime.now()));
+        assertEquals(100, reservation.bytes());
+    }
+
+    @Test
+    void reserveThrowsWhenConditionalUpdateMatchesNothing() {
+        when(userRepository.reserveBytes(1L, 100, DEFAULT_QUOTA)).thenReturn(0);
+
+        assertThrows(QuotaExceededException.class, () -> quotaService.reserve(1L, 100));
+
+        verify(reservationRepository, never()).save(any());
+    }
+
+    @Test
+    void reserveRemainingIsCappedByAvailableBytes() {
+        when(userRepository.findAvailableBytes(1L, DEFAULT_QUOTA)).thenReturn(Optional.of(300L));
+        when(userRepository.reserveBytes(1L, 300, DEFAULT_QUOTA)).thenReturn(1);
+
+        QuotaService.Reservation reservation = quotaService.reserveRemaining(1L, 1000);
+
+        assertEquals(300, reservation.bytes());
+    }
+
+    @Test
+    void reserveRemainingThrowsWhenNothingLeft() {
+        when(userRepository.findAvailableBytes(1L, DEFAULT_QUOTA)).thenReturn(Optional.of(0L));
+
+        assertThrows(QuotaExceededException.class, () -> quotaService.reserveRemaining(1L, 1000));
+
+        verify(userRepository, never()).reserveBytes(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void reserveRemainingTakesOneChunkOfLargeQuota() {
+        when(userRepository.findAvailableBytes(1L, DEFAULT_QUOTA)).thenReturn(Optional.of(DEFAULT_QUOTA * 5));
+        when(userRepository.reserveBytes(1L, DEFAULT_QUOTA, DEFAULT_QUOTA)).thenReturn(1);
+
+        QuotaService.Reservation reservation = quotaService.reserveRemaining(1L, DEFAULT_QUOTA * 10);
+
+        assertEquals(DEFAULT_QUOTA, reservation.bytes());
+    }
+
+    @Test
+    void extendGrowsReservationByAvailableBytes() {
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, 100);
+        when(userRepository.findAvailableBytes(1L, DEFAULT_QUOTA)).thenReturn(Optional.of(50L));
+        when(userRepository.reserveBytes(1L, 50, DEFAULT_QUOTA)).thenReturn(1);
+
+        QuotaService.Reservation grown = quotaService.extend(reservation, 1000);
+
+        assertEquals("r1", grown.id());
+        assertEquals(150, grown.bytes());
+        verify(reservationRepository).addBytes(eq("r1"), eq(50L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void extendThrowsWhenQuotaIsUsedUp() {
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, 100);
+        when(userRepository.findAvailableBytes(1L, DEFAULT_QUOTA)).thenReturn(Optional.of(0L));
+
+        assertThrows(QuotaExceededException.class, () -> quotaService.extend(reservation, 1000));
+
+        verify(userRepository, never()).reserveBytes(anyLong(), anyLong(), anyLong());
+    }
+
+    @Test
+    void reservePartAddsBytesToSessionReservation() {
+        when(userRepository.reserveBytes(1L, 100, DEFAULT_QUOTA)).thenReturn(1);
+
+        QuotaService.Reservation share = quotaService.reservePart("session-1", 1L, 100);
+
+        assertEquals("session-1", share.id());
+        assertEquals(100, share.bytes());
+        verify(reservationRepository).addBytes(eq("session-1"), eq(100L), any(LocalDateTime.class));
+    }
+
+    @Test
+    void reservePartFailsWhenQuotaIsExceeded() {
+        when(userRepository.reserveBytes(1L, 100, DEFAULT_QUOTA)).thenReturn(0);
+
+        assertThrows(QuotaExceededException.class, () -> quotaService.reservePart("session-1", 1L, 100));
+
+        verify(reservationRepository, never()).addBytes(any(), anyLong(), any());
+    }
+
+    @Test
+    void commitMovesReservedBytesToUsed() {
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, 100);
+
+        quotaService.commit(reservation, 80);
+
+        verify(userRepository).applyUsage(1L, 100, 80);
+        verify(reservationRepository).deleteById("r1");
+    }
+
+    @Test
+    void releaseReturnsReservedBytes() {
+        QuotaService.Reservation reservation = new QuotaService.Reservation("r1", 1L, 100);
+
+        quotaService.release(reservation);
+
+        verify(userRepository).applyUsage(1L, 100, 0);
+        verify(reservationRepository).deleteById("r1");
+    }
+
+    @Test
+    void reconcileBatchReturnsLastIdAndCountsCorrections() {
+        when(userRepository.lockIdsAfter(0, 2)).thenReturn(List.of(1L, 5L));
+        when(userRepository.reconcileUsage(eq(1L), eq(5L), any())).thenReturn(1);
+        when(userRepository.lockIdsAfter(5, 2)).thenReturn(List.of());
+
+        QuotaService.ReconcileStats stats = new QuotaService.ReconcileStats();
+
+        assertEquals(5, quotaService.reconcileBatch(0, 2, stats));
+        assertEquals(-1, quotaService.reconcileBatch(5, 2, stats));
+        assertEquals(2, stats.getChecked());
+        assertEquals(1, stats.getCorrected());
+    }
+
+    @Test
+    void disabledServiceDoesNotTouchDatabase() {
+        QuotaService disabled = new QuotaService(userRepository, reservationRepository, transactionManager,
+                false, DataSize.ofMegabytes(1), Duration.ofHours(1), DataSize.ofMegabytes(1));
+
+        QuotaService.Reservation reservation = disabled.reserve(1L, DataSize.ofGigabytes(5).toBytes());
+        disabled.commit(reservation, reservation.bytes());
+        disabled.releaseUsage(1L, 100);
+
+        assertEquals(Long.MAX_VALUE, disabled.getAvailable(1L));
+        verifyNoInteractions(userRepository, reservationRepository, transactionManager);
+    }
+}
@@ -0,0 +1,122 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageLayoutMigratorTest {
+
+    private static final String STORED_NAME = "abcdef12-0000-0000-0000-000000000000";
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    @TempDir
+    Path storageDir;
+
+    private LocalStorageBackend storageBackend;
+    private StorageLayoutMigrator migrator;
+    private UserFile legacyFile;
+    private Path legacyPath;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageBackend = new LocalStorageBackend(storageDir);
+        migrator = new StorageLayoutMigrator(fileRepository, new StorageLayout(2, 2), storageBackend,
+                new DeferredFileDeleter(storageBackend, event -> { }, 1), true, 100, Duration.ZERO);
+
+        User user = new User("testuser", "password");
+        user.setId(7L);
+
+        legacyPath = storageDir.resolve("user_7").resolve(STORED_NAME);
+        Files.createDirectories(legacyPath.getParent());
+        Files.writeString(legacyPath, "legacy");
+
+        legacyFile = new UserFile(user, "old.txt", legacyPath.toString(), 6L);
+        legacyFile.setId(1L);
+    }
+
+    @Test
+    void migrateMovesFileAndRewritesPath() throws Exception {
+        // Старые записи хранят абсолютный путь, новые - ключ относительно корня хранилища
+        String expectedKey = "user_7/ab/cd/" + STORED_NAME;
+        Path expected = storageDir.resolve(expectedKey);
+        when(fileRepository.updateFilePath(1L, legacyPath.toString(), expectedKey)).thenReturn(1);
+
+        assertTrue(migrator.migrate(legacyFile));
+
+        assertEquals("legacy", Files.readString(expected));
+        assertFalse(Files.exists(legacyPath));
+    }
+
+    @Test
+    void migrateKeepsOldFileForDeleteDelay() throws Exception {
+        DeferredFileDeleter deleter = new DeferredFileDeleter(storageBackend, event -> { }, 1);
+        StorageLayoutMigrator delayed = new StorageLayoutMigrator(fileRepository, new StorageLayout(2, 2),
+                storageBackend, deleter, true, 100, Duration.ofMinutes(10));
+        String expectedKey = "user_7/ab/cd/" + STORED_NAME;
+        when(fileRepository.updateFilePath(1L, legacyPath.toString(), expectedKey)).thenReturn(1);
+
+        assertTrue(delayed.migrate(legacyFile));
+
+        // Скачивание, начатое по старому пути, ещё может его дочитать
+        assertTrue(Files.exists(legacyPath));
+        assertEquals("legacy", Files.readString(storageDir.resolve(expectedKey)));
+        deleter.shutdown();
+    }
+
+    @Test
+    void migrateKeepsOriginalWhenRowChangedConcurrently() throws Exception {
+        when(fileRepository.updateFilePath(eq(1L), anyString(), anyString())).thenReturn(0);
+
+        assertFalse(migrator.migrate(legacyFile));
+
+        assertTrue(Files.exists(legacyPath));
+        assertFalse(Files.exists(storageDir.resolve("user_7").resolve("ab")
+                .resolve("cd").resolve(STORED_NAME)));
+    }
+
+    @Test
+    void migrateSkipsLegacyPathAlreadyInFanOutLayout() throws Exception {
+        Path fanned = storageDir.resolve("user_7/ab/cd/" + STORED_NAME);
+        Files.createDirectories(fanned.getParent());
+        Files.move(legacyPath, fanned);
+        legacyFile.setFilePath(fanned.toString());
+
+        assertFalse(migrator.migrate(legacyFile));
+
+        assertEquals("legacy", Files.readString(fanned));
+        verify(fileRepository, never()).updateFilePath(anyLong(), anyString(), anyString());
+    }
+
+    @Test
+    void migrateNextBatchFinishesWhenNothingLeft() throws Exception {
+        when(fileRepository.findByIdGreaterThanAndContentHashIsNullOrderById(eq(0L), any(Pageable.class)))
+                .thenReturn(List.of(legacyFile));
+        when(fileRepository.findByIdGreaterThanAndContentHashIsNullOrderById(eq(1L), any(Pageable.class)))
+                .thenReturn(List.of());
+        when(fileRepository.updateFilePath(eq(1L), anyString(), anyString())).thenReturn(1);
+
+        migrator.migrateNextBatch();
+        migrator.migrateNextBatch();
+
+        assertTrue(migrator.isFinished());
+        assertEquals(1, migrator.getMovedFiles());
+    }
+}
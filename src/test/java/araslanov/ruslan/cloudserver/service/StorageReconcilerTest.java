@@ -0,0 +1,159 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.Blob;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.repository.FileLocation;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StorageReconcilerTest {
+
+    private static final String HASH = "ab" + "cd" + "0".repeat(60);
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @TempDir
+    Path storageDir;
+
+    private LocalStorageBackend storageBackend;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storageBackend = new LocalStorageBackend(storageDir);
+        write("user_7/ab/cd/kept");
+        write("user_7/legacy");
+        write("blobs/ab/cd/" + HASH);
+        write("user_7/ab/cd/orphan");
+        write(".uploads/session/1");
+    }
+
+    @Test
+    void orphanIsQuarantinedAndDanglingRowIsReported() throws Exception {
+        stubDatabase();
+        when(fileRepository.findExistingFilePaths(any())).thenReturn(List.of());
+        when(blobRepository.findExistingFilePaths(any())).thenReturn(List.of());
+
+        StorageReconciler.Report report = reconciler(Duration.ZERO).run(storageDir);
+
+        Path quarantined = storageDir.resolve(StorageReconciler.QUARANTINE_DIRECTORY)
+                .resolve(LocalDate.now(ZoneOffset.UTC).toString()).resolve("user_7/ab/cd/orphan");
+        assertTrue(Files.exists(quarantined));
+        assertFalse(Files.exists(storageDir.resolve("user_7/ab/cd/orphan")));
+        assertTrue(Files.exists(storageDir.resolve("user_7/ab/cd/kept")));
+        assertTrue(Files.exists(storageDir.resolve("user_7/legacy")));
+        assertTrue(Files.exists(storageDir.resolve("blobs/ab/cd/" + HASH)));
+        // Части upload-сессий не трогаются
+        assertTrue(Files.exists(storageDir.resolve(".uploads/session/1")));
+
+        assertEquals(4, report.getScannedFiles());
+        assertEquals(1, report.getOrphans());
+        assertEquals(1, report.getQuarantined());
+        assertEquals(1, report.getDanglingRows());
+        assertEquals(List.of("user_files#3"), report.getDanglingSample());
+    }
+
+    @Test
+    void recentlyWrittenFileIsNotQuarantined() throws Exception {
+        stubDatabase();
+        // Байты записываются раньше строки в БД: свежий файл может принадлежать идущей загрузке
+        StorageReconciler.Report report = reconciler(Duration.ofHours(1)).run(storageDir);
+
+        assertTrue(Files.exists(storageDir.resolve("user_7/ab/cd/orphan")));
+        assertEquals(0, report.getOrphans());
+        verify(fileRepository, never()).findExistingFilePaths(any());
+    }
+
+    @Test
+    void fileReferencedAfterFilterWasBuiltIsKept() throws Exception {
+        stubDatabase();
+        when(fileRepository.findExistingFilePaths(any())).thenReturn(List.of("user_7/ab/cd/orphan"));
+        when(blobRepository.findExistingFilePaths(any())).thenReturn(List.of());
+
+        StorageReconciler.Report report = reconciler(Duration.ZERO).run(storageDir);
+
+        assertTrue(Files.exists(storageDir.resolve("user_7/ab/cd/orphan")));
+        assertEquals(1, report.getOrphans());
+        assertEquals(0, report.getQuarantined());
+    }
+
+    @Test
+    void expiredQuarantineIsPurged() throws Exception {
+        stubDatabase();
+        write(StorageReconciler.QUARANTINE_DIRECTORY + "/2000-01-01/user_1/old");
+        when(fileRepository.findExistingFilePaths(any())).thenReturn(List.of());
+        when(blobRepository.findExistingFilePaths(any())).thenReturn(List.of());
+
+        StorageReconciler.Report report = reconciler(Duration.ZERO).run(storageDir);
+
+        assertEquals(1, report.getPurged());
+        assertFalse(Files.exists(storageDir.resolve(StorageReconciler.QUARANTINE_DIRECTORY).resolve("2000-01-01")));
+        // Только что перенесённый сирота остаётся в карантине
+        assertEquals(1, report.getQuarantined());
+    }
+
+    @Test
+    void toKeyNormalizesLegacyAbsolutePaths() {
+        Path root = storageDir.toAbsolutePath().normalize();
+        assertEquals("user_7/legacy",
+                StorageReconciler.toKey(storageDir, root, storageDir.resolve("user_7/legacy").toString()));
+        assertEquals("user_7/ab/cd/kept", StorageReconciler.toKey(storageDir, root, "user_7/ab/cd/kept"));
+    }
+
+    private void stubDatabase() {
+        when(fileRepository.count()).thenReturn(3L);
+        when(blobRepository.count()).thenReturn(1L);
+        // Старая запись хранит абсолютный путь, у третьей записи файла нет
+        when(fileRepository.findLocationsAfter(eq(0L), any())).thenReturn(List.of(
+                location(1L, "user_7/ab/cd/kept"),
+                location(2L, storageDir.resolve("user_7/legacy").toString()),
+                location(3L, "user_7/ab/cd/missing")));
+        when(blobRepository.findByHashGreaterThanOrderByHash(eq(""), any()))
+                .thenReturn(List.of(new Blob(HASH, "blobs/ab/cd/" + HASH, 7L, 1L)));
+    }
+
+    private StorageReconciler reconciler(Duration gracePeriod) {
+        return new StorageReconciler(fileRepository, blobRepository, storageBackend, true,
+                gracePeriod, Duration.ofDays(7), 2, 100, 0, 0.01, 100);
+    }
+
+    private void write(String key) throws Exception {
+        Path path = storageDir.resolve(key);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, key);
+    }
+
+    private FileLocation location(Long id, String filePath) {
+        return new FileLocation() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getFilePath() {
+                return filePath;
+            }
+        };
+    }
+}
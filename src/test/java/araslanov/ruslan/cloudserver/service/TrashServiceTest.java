@@ -0,0 +1,194 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.dto.TrashItemResponse;
+import araslanov.ruslan.cloudserver.entity.Blob;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.LocalStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.PageRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TrashServiceTest {
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private QuotaService quotaService;
+
+    @TempDir
+    Path storageDir;
+
+    private TrashService trashService;
+    private final List<Object> publishedEvents = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        LocalStorageBackend storageBackend = new LocalStorageBackend(storageDir);
+        trashService = new TrashService(fileRepository, new BlobService(storageBackend, blobRepository, event -> { }),
+                quotaService, new DeferredFileDeleter(storageBackend, event -> { }, 1), publishedEvents::add,
+                Duration.ofDays(30), 100);
+    }
+
+    @Test
+    void getTrashReportsExpiryTime() {
+        User user = createTestUser();
+        LocalDateTime deletedAt = LocalDateTime.now().minusDays(1);
+        UserFile file = trashedFile(1L, user, "old.txt", "user_1/old", null, deletedAt);
+
+        when(fileRepository.findTrash(eq(user), any(LocalDateTime.class), eq(PageRequest.of(0, 100))))
+                .thenReturn(List.of(file));
+
+        List<TrashItemResponse> trash = trashService.getTrash(user);
+
+        assertEquals(1, trash.size());
+        assertEquals("old.txt", trash.get(0).getFilename());
+        assertEquals(deletedAt.plusDays(30), trash.get(0).getExpiresAt());
+    }
+
+    @Test
+    void restoreFileClearsDeletionMark() {
+        User user = createTestUser();
+        UserFile file = trashedFile(1L, user, "doc.txt", "user_1/doc", null, LocalDateTime.now());
+
+        when(fileRepository.findTrashedByFilename(eq(user), eq("doc.txt"), any(LocalDateTime.class),
+                eq(PageRequest.of(0, 1)))).thenReturn(List.of(file));
+        when(fileRepository.existsByUserAndFilename(user, "doc.txt")).thenReturn(false);
+
+        trashService.restoreFile(user, "doc.txt");
+
+        assertNull(file.getDeletedAt());
+        verify(fileRepository).save(file);
+        assertEquals(List.of(new FileListChangedEvent(1L,
+                List.of(new FileListChangedEvent.AddedFile(1L, "doc.txt", 3L)), List.of())), publishedEvents);
+    }
+
+    @Test
+    void restoreFileRejectsNameTakenByLiveFile() {
+        User user = createTestUser();
+        UserFile file = trashedFile(1L, user, "doc.txt", "user_1/doc", null, LocalDateTime.now());
+
+        when(fileRepository.findTrashedByFilename(eq(user), eq("doc.txt"), any(LocalDateTime.class),
+                eq(PageRequest.of(0, 1)))).thenReturn(List.of(file));
+        when(fileRepository.existsByUserAndFilename(user, "doc.txt")).thenReturn(true);
+
+        assertThrows(IllegalArgumentException.class, () -> trashService.restoreFile(user, "doc.txt"));
+        assertNotNull(file.getDeletedAt());
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void restoreFileRejectsMissingOrExpiredFile() {
+        User user = createTestUser();
+
+        when(fileRepository.findTrashedByFilename(eq(user), eq("doc.txt"), any(LocalDateTime.class),
+                eq(PageRequest.of(0, 1)))).thenReturn(List.of());
+
+        assertThrows(IllegalArgumentException.class, () -> trashService.restoreFile(user, "doc.txt"));
+    }
+
+    @Test
+    void purgeExpiredDeletesRowsContentAndReleasesQuotaPerUser() throws Exception {
+        User first = createTestUser();
+        User second = new User("other", "password");
+        second.setId(2L);
+        Files.createDirectories(storageDir.resolve("user_1"));
+        Files.writeString(storageDir.resolve("user_1/a"), "aaa");
+        LocalDateTime deletedAt = LocalDateTime.now().minusDays(31);
+
+        UserFile a = trashedFile(1L, first, "a.txt", "user_1/a", null, deletedAt);
+        UserFile b = trashedFile(2L, first, "b.txt", "blobs/ha/sh/hash", "hash", deletedAt);
+        UserFile c = trashedFile(3L, second, "c.txt", "blobs/ha/sh/hash", "hash", deletedAt);
+        Blob blob = new Blob("hash", "blobs/ha/sh/hash", 5L, 3L);
+
+        when(fileRepository.findTrashedBefore(any(LocalDateTime.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of(a, b, c));
+        when(blobRepository.findByHashForUpdate("hash")).thenReturn(Optional.of(blob));
+
+        assertEquals(3, trashService.purgeExpired(10));
+
+        verify(fileRepository).deleteByIdIn(List.of(1L, 2L, 3L));
+        verify(blobRepository, times(1)).findByHashForUpdate("hash");
+        assertEquals(1L, blob.getRefCount());
+        verify(quotaService).releaseUsage(1L, 8L);
+        verify(quotaService).releaseUsage(2L, 5L);
+        // Вне транзакции файлы удаляются сразу
+        assertFalse(Files.exists(storageDir.resolve("user_1/a")));
+    }
+
+    @Test
+    void purgeExpiredDoesNothingWhenTrashIsEmpty() throws Exception {
+        when(fileRepository.findTrashedBefore(any(LocalDateTime.class), eq(PageRequest.of(0, 10))))
+                .thenReturn(List.of());
+
+        assertEquals(0, trashService.purgeExpired(10));
+        verify(fileRepository, never()).deleteByIdIn(any());
+        verifyNoInteractions(quotaService);
+    }
+
+    @Test
+    void purgeTrashDeletesOnlyTheUsersFilesWithTheName() throws Exception {
+        User user = createTestUser();
+        UserFile recent = trashedFile(1L, user, "doc.txt", "blobs/ha/sh/hash", "hash", LocalDateTime.now());
+        UserFile older = trashedFile(2L, user, "doc.txt", "blobs/ha/sh/hash", "hash",
+                LocalDateTime.now().minusDays(40));
+        Blob blob = new Blob("hash", "blobs/ha/sh/hash", 5L, 3L);
+
+        when(fileRepository.findTrashedByUser(user, "doc.txt", PageRequest.of(0, 10)))
+                .thenReturn(List.of(older, recent));
+        when(blobRepository.findByHashForUpdate("hash")).thenReturn(Optional.of(blob));
+
+        assertEquals(2, trashService.purgeTrash(user, "doc.txt", 10));
+
+        verify(fileRepository).deleteByIdIn(List.of(2L, 1L));
+        assertEquals(1L, blob.getRefCount());
+        verify(quotaService).releaseUsage(1L, 10L);
+    }
+
+    @Test
+    void purgeTrashDoesNothingWhenUsersTrashIsEmpty() throws Exception {
+        User user = createTestUser();
+
+        when(fileRepository.findTrashedByUser(user, null, PageRequest.of(0, 10))).thenReturn(List.of());
+
+        assertEquals(0, trashService.purgeTrash(user, null, 10));
+        verify(fileRepository, never()).deleteByIdIn(any());
+        verifyNoInteractions(quotaService);
+    }
+
+    private UserFile trashedFile(Long id, User user, String filename, String path, String hash,
+                                 LocalDateTime deletedAt) {
+        UserFile file = new UserFile(user, filename, path, hash == null ? 3L : 5L);
+        file.setId(id);
+        file.setContentHash(hash);
+        file.setDeletedAt(deletedAt);
+        return file;
+    }
+
+    private User createTestUser() {
+        User user = new User("testuser", "password");
+        user.setId(1L);
+        return user;
+    }
+}
@@ -0,0 +1,168 @@
+package araslanov.ruslan.cloudserver.service;
+
+import araslanov.ruslan.cloudserver.entity.UploadSession;
+import araslanov.ruslan.cloudserver.entity.UploadSessionPart;
+import araslanov.ruslan.cloudserver.entity.User;
+import araslanov.ruslan.cloudserver.entity.UserFile;
+import araslanov.ruslan.cloudserver.metrics.TransferMetrics;
+import araslanov.ruslan.cloudserver.repository.BlobRepository;
+import araslanov.ruslan.cloudserver.repository.UploadSessionPartRepository;
+import araslanov.ruslan.cloudserver.repository.UploadSessionRepository;
+import araslanov.ruslan.cloudserver.repository.UserFileRepository;
+import araslanov.ruslan.cloudserver.storage.InMemoryStorageBackend;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UploadSessionServiceTest {
+
+    @Mock
+    private UploadSessionRepository sessionRepository;
+
+    @Mock
+    private UploadSessionPartRepository partRepository;
+
+    @Mock
+    private UserFileRepository fileRepository;
+
+    @Mock
+    private BlobRepository blobRepository;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private QuotaService quotaService;
+
+    private InMemoryStorageBackend storageBackend;
+    private UploadSessionService uploadSessionService;
+    private User user;
+    private UploadSession session;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new InMemoryStorageBackend();
+        uploadSessionService = createService(new QuotaService(null, null, null, false, DataSize.ofGigabytes(1),
+                Duration.ofHours(1), DataSize.ofMegabytes(64)));
+
+        user = new User("testuser", "password");
+        user.setId(1L);
+        session = new UploadSession("session-1", user, "big.bin", LocalDateTime.now().plusHours(1));
+    }
+
+    private UploadSessionService createService(QuotaService quotaService) {
+        FileStorageService fileStorageService = new FileStorageService(
+                DataSize.ofMegabytes(1), false, 1000, 1000, fileRepository,
+                new BlobService(storageBackend, blobRepository, event -> { }),
+                new StorageLayout(2, 2), storageBackend, disabledCompression(), new TransferMetrics(),
+                quotaService, transactionManager, event -> { });
+        return new UploadSessionService(sessionRepository, partRepository,
+                fileStorageService, storageBackend, quotaService, DataSize.ofKilobytes(64), 100, Duration.ofHours(1));
+    }
+
+    private CompressionPolicy disabledCompression() {
+        return new CompressionPolicy(false, DataSize.ofKilobytes(64), DataSize.ofKilobytes(1), 0.9, 6);
+    }
+
+    @Test
+    void uploadPartStoresPartAndRecordsIt() throws Exception {
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+
+        uploadSessionService.uploadPart(user, "session-1", 2, new ByteArrayInputStream("world".getBytes()), 5);
+
+        assertArrayEquals("world".getBytes(), storageBackend.get(".uploads/session-1/2").readAllBytes());
+
+        ArgumentCaptor<UploadSessionPart> captor = ArgumentCaptor.forClass(UploadSessionPart.class);
+        verify(partRepository).save(captor.capture());
+        assertEquals(2, captor.getValue().getPartNumber());
+        assertEquals(5L, captor.getValue().getSize());
+    }
+
+    @Test
+    void uploadPartCountsAgainstSessionReservationAndReturnsReplacedPart() throws Exception {
+        UploadSessionService service = createService(quotaService);
+        QuotaService.Reservation share = new QuotaService.Reservation("session-1", 1L, 5);
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+        when(quotaService.reservePart("session-1", 1L, 5)).thenReturn(share);
+        when(partRepository.findById(new UploadSessionPart.PartId("session-1", 2)))
+                .thenReturn(Optional.of(new UploadSessionPart("session-1", 2, 7L)));
+
+        service.uploadPart(user, "session-1", 2, new ByteArrayInputStream("world".getBytes()), 5);
+
+        verify(quotaService).releaseBytes(share, 7L);
+    }
+
+    @Test
+    void uploadPartReleasesItsShareWhenWriteFails() {
+        UploadSessionService service = createService(quotaService);
+        QuotaService.Reservation share = new QuotaService.Reservation("session-1", 1L, 0);
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+        when(quotaService.reservePart("session-1", 1L, -1)).thenReturn(share);
+
+        assertThrows(IllegalArgumentException.class, () -> service.uploadPart(
+                user, "session-1", 1, new ByteArrayInputStream(new byte[0]), -1));
+
+        verify(quotaService).releaseBytes(share, 0L);
+        verify(partRepository, never()).save(any());
+    }
+
+    @Test
+    void commitAssemblesPartsInOrder() throws Exception {
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+        when(fileRepository.existsByUserAndFilename(user, "big.bin")).thenReturn(false);
+
+        uploadSessionService.uploadPart(user, "session-1", 2, new ByteArrayInputStream(" world".getBytes()), 6);
+        uploadSessionService.uploadPart(user, "session-1", 1, new ByteArrayInputStream("hello".getBytes()), 5);
+
+        when(partRepository.findBySessionIdOrderByPartNumber("session-1")).thenReturn(List.of(
+                new UploadSessionPart("session-1", 1, 5L),
+                new UploadSessionPart("session-1", 2, 6L)));
+
+        uploadSessionService.commit(user, "session-1");
+
+        ArgumentCaptor<UserFile> captor = ArgumentCaptor.forClass(UserFile.class);
+        verify(fileRepository).save(captor.capture());
+        assertEquals(11L, captor.getValue().getSize());
+        assertArrayEquals("hello world".getBytes(), storageBackend.get(captor.getValue().getFilePath()).readAllBytes());
+
+        verify(sessionRepository).delete(session);
+        assertTrue(storageBackend.stat(".uploads/session-1/1").isEmpty());
+        assertTrue(storageBackend.stat(".uploads/session-1/2").isEmpty());
+    }
+
+    @Test
+    void commitFailsWhenPartIsMissing() {
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+        when(partRepository.findBySessionIdOrderByPartNumber("session-1")).thenReturn(List.of(
+                new UploadSessionPart("session-1", 1, 5L),
+                new UploadSessionPart("session-1", 3, 5L)));
+
+        IllegalArgumentException exception = assertThrows(IllegalArgumentException.class,
+                () -> uploadSessionService.commit(user, "session-1"));
+
+        assertTrue(exception.getMessage().contains("Missing part: 2"));
+        verify(fileRepository, never()).save(any());
+    }
+
+    @Test
+    void getSessionRejectsExpiredSession() {
+        session.setExpiresAt(LocalDateTime.now().minusMinutes(1));
+        when(sessionRepository.findByIdAndUser("session-1", user)).thenReturn(Optional.of(session));
+
+        assertThrows(IllegalArgumentException.class, () -> uploadSessionService.getSession(user, "session-1"));
+    }
+}
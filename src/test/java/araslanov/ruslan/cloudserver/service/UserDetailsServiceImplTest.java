@@ -2,13 +2,15 @@ package araslanov.ruslan.cloudserver.service;
 
 import araslanov.ruslan.cloudserver.entity.User;
 import araslanov.ruslan.cloudserver.repository.UserRepository;
+import araslanov.ruslan.cloudserver.security.AuthenticatedUser;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import java.time.Duration;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,9 +21,13 @@ class UserDetailsServiceImplTest {
     @Mock
     private UserRepository userRepository;
 
-    @InjectMocks
     private UserDetailsServiceImpl userDetailsService;
 
+    @BeforeEach
+    void setUp() {
+        userDetailsService = new UserDetailsServiceImpl(userRepository, 100, Duration.ofMinutes(5));
+    }
+
     @Test
     void loadUserByUsernameReturnsUserDetailsWhenUserExists() {
         User user = new User("testuser", "encodedPassword");
@@ -52,4 +58,47 @@ class UserDetailsServiceImplTest {
         assertTrue(exception.getMessage().contains("User not found: nonexistent"));
         verify(userRepository).findByLogin("nonexistent");
     }
-}
\ No newline at end of file
+
+    @Test
+    void loadUserByUsernameReturnsPrincipalWithIdAndEnabledFlag() {
+        User user = new User("testuser", "encodedPassword");
+        user.setId(5L);
+        user.setEnabled(false);
+
+        when(userRepository.findByLogin("testuser")).thenReturn(Optional.of(user));
+
+        AuthenticatedUser principal = (AuthenticatedUser) userDetailsService.loadUserByUsername("testuser");
+
+        assertEquals(5L, principal.getId());
+        assertFalse(principal.isEnabled());
+    }
+
+    @Test
+    void loadUserByUsernameServesRepeatedLookupsFromCache() {
+        User user = new User("testuser", "encodedPassword");
+        user.setId(1L);
+
+        when(userRepository.findByLogin("testuser")).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(1)).findByLogin("testuser");
+        assertEquals(1, userDetailsService.getCacheStats().hitCount());
+        assertEquals(1, userDetailsService.getCacheStats().missCount());
+    }
+
+    @Test
+    void userChangedEventInvalidatesCachedPrincipal() {
+        User user = new User("testuser", "encodedPassword");
+        user.setId(1L);
+
+        when(userRepository.findByLogin("testuser")).thenReturn(Optional.of(user));
+
+        userDetailsService.loadUserByUsername("testuser");
+        userDetailsService.onUserChanged(new UserChangedEvent("testuser"));
+        userDetailsService.loadUserByUsername("testuser");
+
+        verify(userRepository, times(2)).findByLogin("testuser");
+    }
+}
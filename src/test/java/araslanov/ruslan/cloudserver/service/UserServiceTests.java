@@ -8,6 +8,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import java.util.Optional;
 import static org.junit.jupiter.api.Assertions.*;
@@ -23,6 +24,9 @@ class UserServiceTest {
     @Mock
     private PasswordEncoder passwordEncoder;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private UserService userService;
 
@@ -48,6 +52,7 @@ class UserServiceTest {
 
         verify(userRepository).existsByLogin("newuser");
         verify(passwordEncoder).encode("password123");
+        verify(eventPublisher).publishEvent(new UserChangedEvent("newuser"));
         verify(userRepository).save(any(User.class));
     }
 
@@ -94,4 +99,16 @@ class UserServiceTest {
 
         assertTrue(exception.getMessage().contains("User not found"));
     }
-}
\ No newline at end of file
+
+    @Test
+    void updatePasswordHashSavesHashAndPublishesEvent() {
+        User user = new User("testuser", "oldHash");
+        when(userRepository.findByLogin("testuser")).thenReturn(Optional.of(user));
+
+        userService.updatePasswordHash("testuser", "newHash");
+
+        assertEquals("newHash", user.getPassword());
+        verify(userRepository).save(user);
+        verify(eventPublisher).publishEvent(new UserChangedEvent("testuser"));
+    }
+}
@@ -0,0 +1,152 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalStorageBackendTest {
+
+    @TempDir
+    Path storageDir;
+
+    private LocalStorageBackend storageBackend;
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new LocalStorageBackend(storageDir);
+    }
+
+    @Test
+    void putCreatesParentDirectoriesAndStatReportsSize() throws Exception {
+        long written = storageBackend.put("user_1/ab/cd/file", stream("content"));
+
+        assertEquals(7, written);
+        assertEquals("content", Files.readString(storageDir.resolve("user_1/ab/cd/file")));
+        assertEquals(7, storageBackend.stat("user_1/ab/cd/file").orElseThrow().size());
+        assertTrue(storageBackend.stat("user_1/missing").isEmpty());
+    }
+
+    @Test
+    void deleteRemovesEmptyParentDirectoriesButKeepsRoot() throws Exception {
+        storageBackend.put("user_1/ab/cd/file", stream("content"));
+
+        assertTrue(storageBackend.delete("user_1/ab/cd/file"));
+
+        assertFalse(Files.exists(storageDir.resolve("user_1")));
+        assertTrue(Files.exists(storageDir));
+        assertFalse(storageBackend.delete("user_1/ab/cd/file"));
+    }
+
+    @Test
+    void getRangeAndTransferToReturnRequestedBytes() throws Exception {
+        storageBackend.put("digits", stream("0123456789"));
+
+        try (InputStream in = storageBackend.getRange("digits", 3, 4)) {
+            assertEquals("3456", new String(in.readAllBytes()));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        storageBackend.transferTo("digits", 8, 2, Channels.newChannel(out));
+        assertEquals("89", out.toString());
+    }
+
+    @Test
+    void concatJoinsObjectsInOrder() throws Exception {
+        storageBackend.put(".uploads/s/1", stream("hello"));
+        storageBackend.put(".uploads/s/2", stream(" world"));
+
+        storageBackend.concat(List.of(".uploads/s/1", ".uploads/s/2"), ".staging/joined");
+
+        assertEquals("hello world", Files.readString(storageDir.resolve(".staging/joined")));
+    }
+
+    @Test
+    void copyKeepsBothObjectsIndependent() throws Exception {
+        storageBackend.put("source", stream("content"));
+
+        storageBackend.copy("source", "user_1/ab/cd/target");
+        storageBackend.delete("source");
+
+        assertEquals("content", Files.readString(storageDir.resolve("user_1/ab/cd/target")));
+    }
+
+    @Test
+    void resolvesLegacyAbsolutePaths() throws Exception {
+        Path legacy = Files.writeString(storageDir.resolve("legacy"), "old");
+
+        assertEquals(legacy, storageBackend.localPath(legacy.toString()).orElseThrow());
+        assertEquals(3, storageBackend.stat(legacy.toString()).orElseThrow().size());
+    }
+
+    @Test
+    void failedPutKeepsPreviousContentAndRemovesStagedFile() throws Exception {
+        storageBackend.put("user_1/file", stream("previous"));
+        InputStream failing = new SequenceInputStream(stream("partial"), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+
+        assertThrows(IOException.class, () -> storageBackend.put("user_1/file", failing));
+
+        // Недописанный файл не подменяет старый и не остаётся в staging
+        assertEquals("previous", Files.readString(storageDir.resolve("user_1/file")));
+        try (Stream<Path> staged = Files.list(storageDir.resolve(".staging"))) {
+            assertEquals(0, staged.count());
+        }
+    }
+
+    @Test
+    void fsyncDurabilityHandlesConcurrentWritesToOneDirectory() throws Exception {
+        LocalStorageBackend durable = new LocalStorageBackend(storageDir, StorageDurability.FSYNC);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Long>> writes = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String key = "user_1/ab/cd/file-" + i;
+                writes.add(executor.submit(() -> durable.put(key, stream(key))));
+            }
+            for (Future<Long> write : writes) {
+                write.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        for (int i = 0; i < 32; i++) {
+            assertEquals("user_1/ab/cd/file-" + i,
+                    Files.readString(storageDir.resolve("user_1/ab/cd/file-" + i)));
+        }
+    }
+
+    @Test
+    void fsyncDurabilityWritesAndMovesObjects() throws Exception {
+        LocalStorageBackend durable = new LocalStorageBackend(storageDir, StorageDurability.FSYNC);
+
+        durable.put(".staging/upload", stream("content"));
+        durable.move(".staging/upload", "user_1/ab/cd/file");
+
+        assertEquals("content", Files.readString(storageDir.resolve("user_1/ab/cd/file")));
+        assertFalse(Files.exists(storageDir.resolve(".staging/upload")));
+    }
+
+    private InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes());
+    }
+}
@@ -0,0 +1,239 @@
+package araslanov.ruslan.cloudserver.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CopyPartResult;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
+import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartCopyResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class S3StorageBackendTest {
+
+    private static final int PART_SIZE = (int) S3StorageBackend.MIN_PART_SIZE;
+
+    @Mock
+    private S3Client client;
+
+    private S3StorageBackend storageBackend;
+
+    private final Map<String, Long> sizes = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        storageBackend = new S3StorageBackend(client, "bucket", PART_SIZE);
+    }
+
+    @Test
+    void smallObjectIsWrittenWithSinglePut() throws Exception {
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+
+        assertEquals(5, storageBackend.put("small", new ByteArrayInputStream("hello".getBytes())));
+
+        verify(client).putObject(any(PutObjectRequest.class), body.capture());
+        assertEquals("hello", read(body.getValue()));
+        verify(client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void largeObjectIsUploadedInNumberedParts() throws Exception {
+        stubMultipartUpload();
+        when(client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenAnswer(invocation -> UploadPartResponse.builder()
+                        .eTag("etag-" + invocation.<UploadPartRequest>getArgument(0).partNumber()).build());
+
+        assertEquals(2L * PART_SIZE + 100, storageBackend.put("large", content(2 * PART_SIZE + 100)));
+
+        ArgumentCaptor<UploadPartRequest> parts = ArgumentCaptor.forClass(UploadPartRequest.class);
+        verify(client, times(3)).uploadPart(parts.capture(), any(RequestBody.class));
+        assertEquals(List.of(1, 2, 3), parts.getAllValues().stream().map(UploadPartRequest::partNumber).toList());
+        assertEquals(List.of((long) PART_SIZE, (long) PART_SIZE, 100L),
+                parts.getAllValues().stream().map(UploadPartRequest::contentLength).toList());
+
+        ArgumentCaptor<CompleteMultipartUploadRequest> complete =
+                ArgumentCaptor.forClass(CompleteMultipartUploadRequest.class);
+        verify(client).completeMultipartUpload(complete.capture());
+        assertEquals(List.of("etag-1", "etag-2", "etag-3"),
+                complete.getValue().multipartUpload().parts().stream().map(CompletedPart::eTag).toList());
+        verify(client, never()).abortMultipartUpload(any(AbortMultipartUploadRequest.class));
+    }
+
+    @Test
+    void failedPartAbortsUpload() {
+        stubMultipartUpload();
+        when(client.uploadPart(any(UploadPartRequest.class), any(RequestBody.class)))
+                .thenReturn(UploadPartResponse.builder().eTag("etag-1").build())
+                .thenThrow(S3Exception.builder().statusCode(500).message("boom").build());
+
+        assertThrows(S3Exception.class, () -> storageBackend.put("large", content(2 * PART_SIZE)));
+
+        verifyAborted("large");
+    }
+
+    @Test
+    void concatOfSmallSourcesFallsBackToStreaming() throws Exception {
+        stubSizes(Map.of("first", 5L, "second", 6L));
+        when(client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation ->
+                object(invocation.<GetObjectRequest>getArgument(0).key().equals("first") ? "hello" : " world"));
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+
+        storageBackend.concat(List.of("first", "second"), "joined");
+
+        verify(client).putObject(any(PutObjectRequest.class), body.capture());
+        assertEquals("hello world", read(body.getValue()));
+        verify(client, never()).uploadPartCopy(any(UploadPartCopyRequest.class));
+    }
+
+    @Test
+    void concatCopiesSourcesUpTo5GbAsWholeParts() throws Exception {
+        stubSizes(Map.of("first", S3StorageBackend.MIN_PART_SIZE, "second", S3StorageBackend.MAX_COPY_SIZE));
+        stubMultipartUpload();
+        stubPartCopy();
+
+        storageBackend.concat(List.of("first", "second"), "joined");
+
+        List<UploadPartCopyRequest> copies = capturePartCopies(2);
+        assertEquals(List.of(1, 2), copies.stream().map(UploadPartCopyRequest::partNumber).toList());
+        assertEquals(List.of("first", "second"), copies.stream().map(UploadPartCopyRequest::sourceKey).toList());
+        assertNull(copies.get(0).copySourceRange());
+        assertNull(copies.get(1).copySourceRange());
+        verify(client).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    @Test
+    void copyOfObjectOver5GbSplitsItIntoEqualRanges() throws Exception {
+        long size = S3StorageBackend.MAX_COPY_SIZE + 1;
+        stubSizes(Map.of("huge", size));
+        stubMultipartUpload();
+        stubPartCopy();
+
+        storageBackend.copy("huge", "copy");
+
+        // Две части по ceil(size / 2): обе не больше 5GB
+        long pieceSize = (size + 1) / 2;
+        List<UploadPartCopyRequest> copies = capturePartCopies(2);
+        assertEquals(List.of(1, 2), copies.stream().map(UploadPartCopyRequest::partNumber).toList());
+        assertEquals("bytes=0-" + (pieceSize - 1), copies.get(0).copySourceRange());
+        assertEquals("bytes=" + pieceSize + "-" + (size - 1), copies.get(1).copySourceRange());
+    }
+
+    @Test
+    void concatSkipsEmptyTrailingSources() throws Exception {
+        stubSizes(Map.of("first", S3StorageBackend.MIN_PART_SIZE, "empty", 0L));
+        stubMultipartUpload();
+        stubPartCopy();
+
+        storageBackend.concat(List.of("first", "empty"), "joined");
+
+        List<UploadPartCopyRequest> copies = capturePartCopies(1);
+        assertEquals("first", copies.get(0).sourceKey());
+    }
+
+    @Test
+    void concatOfEmptySourceWritesEmptyObject() throws Exception {
+        stubSizes(Map.of("empty", 0L));
+        ArgumentCaptor<RequestBody> body = ArgumentCaptor.forClass(RequestBody.class);
+
+        storageBackend.concat(List.of("empty"), "joined");
+
+        verify(client).putObject(any(PutObjectRequest.class), body.capture());
+        assertEquals("", read(body.getValue()));
+        verify(client, never()).createMultipartUpload(any(CreateMultipartUploadRequest.class));
+    }
+
+    @Test
+    void failedPartCopyAbortsUpload() {
+        stubSizes(Map.of("first", S3StorageBackend.MIN_PART_SIZE, "second", 1L));
+        stubMultipartUpload();
+        when(client.uploadPartCopy(any(UploadPartCopyRequest.class)))
+                .thenThrow(S3Exception.builder().statusCode(500).message("boom").build());
+
+        assertThrows(S3Exception.class, () -> storageBackend.concat(List.of("first", "second"), "joined"));
+
+        verifyAborted("joined");
+    }
+
+    private void stubSizes(Map<String, Long> objects) {
+        sizes.putAll(objects);
+        when(client.headObject(any(HeadObjectRequest.class))).thenAnswer(invocation ->
+                HeadObjectResponse.builder()
+                        .contentLength(sizes.get(invocation.<HeadObjectRequest>getArgument(0).key()))
+                        .lastModified(Instant.now())
+                        .build());
+    }
+
+    private void stubMultipartUpload() {
+        when(client.createMultipartUpload(any(CreateMultipartUploadRequest.class)))
+                .thenReturn(CreateMultipartUploadResponse.builder().uploadId("upload-1").build());
+    }
+
+    private void stubPartCopy() {
+        when(client.uploadPartCopy(any(UploadPartCopyRequest.class))).thenAnswer(invocation ->
+                UploadPartCopyResponse.builder()
+                        .copyPartResult(CopyPartResult.builder()
+                                .eTag("copy-" + invocation.<UploadPartCopyRequest>getArgument(0).partNumber())
+                                .build())
+                        .build());
+    }
+
+    private List<UploadPartCopyRequest> capturePartCopies(int count) {
+        ArgumentCaptor<UploadPartCopyRequest> copies = ArgumentCaptor.forClass(UploadPartCopyRequest.class);
+        verify(client, times(count)).uploadPartCopy(copies.capture());
+        return copies.getAllValues();
+    }
+
+    private void verifyAborted(String key) {
+        ArgumentCaptor<AbortMultipartUploadRequest> abort = ArgumentCaptor.forClass(AbortMultipartUploadRequest.class);
+        verify(client).abortMultipartUpload(abort.capture());
+        assertEquals(key, abort.getValue().key());
+        assertEquals("upload-1", abort.getValue().uploadId());
+        verify(client, never()).completeMultipartUpload(any(CompleteMultipartUploadRequest.class));
+    }
+
+    private static InputStream content(int size) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, (byte) 'x');
+        return new ByteArrayInputStream(bytes);
+    }
+
+    private static ResponseInputStream<GetObjectResponse> object(String content) {
+        return new ResponseInputStream<>(GetObjectResponse.builder().build(),
+                AbortableInputStream.create(new ByteArrayInputStream(content.getBytes())));
+    }
+
+    private static String read(RequestBody body) throws Exception {
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            return new String(in.readAllBytes());
+        }
+    }
+}
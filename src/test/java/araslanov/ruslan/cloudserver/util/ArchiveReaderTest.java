@@ -0,0 +1,114 @@
+package araslanov.ruslan.cloudserver.util;
+
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ArchiveReaderTest {
+
+    @Test
+    void readsZipEntriesSequentially() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(bytes)) {
+            zip.putNextEntry(new ZipEntry("docs/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("docs/a.txt"));
+            zip.write("first".getBytes());
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("b.txt"));
+            zip.write("second".getBytes());
+            zip.closeEntry();
+        }
+
+        ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(bytes.toByteArray()));
+
+        assertTrue(reader.next().directory());
+        assertEquals("docs/a.txt", reader.next().name());
+        // Запись можно не дочитывать: следующий next() пропустит остаток
+        assertEquals('f', reader.content().read());
+        assertEquals("b.txt", reader.next().name());
+        assertEquals("second", new String(reader.content().readAllBytes()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsTarWithLongNames() throws Exception {
+        String longName = "dir/" + "x".repeat(150) + ".txt";
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "././@LongLink", 'L', (longName + "\0").getBytes(StandardCharsets.UTF_8));
+        writeTarEntry(tar, longName.substring(0, 99), '0', "long".getBytes());
+        writeTarEntry(tar, "short.txt", '0', "short content".getBytes());
+        tar.write(new byte[1024]);
+
+        ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(tar.toByteArray()));
+
+        assertEquals(longName, reader.next().name());
+        assertEquals("short.txt", reader.next().name());
+        assertEquals("short content", new String(reader.content().readAllBytes()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void readsGzippedTar() throws Exception {
+        ByteArrayOutputStream tar = new ByteArrayOutputStream();
+        writeTarEntry(tar, "a.txt", '0', "gzipped".getBytes());
+        tar.write(new byte[1024]);
+
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(tar.toByteArray());
+        }
+
+        ArchiveReader reader = ArchiveReader.open(new ByteArrayInputStream(gzipped.toByteArray()));
+
+        assertEquals("a.txt", reader.next().name());
+        assertEquals("gzipped", new String(reader.content().readAllBytes()));
+        assertNull(reader.next());
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThrows(IllegalArgumentException.class,
+                () -> ArchiveReader.open(new ByteArrayInputStream("plain text".getBytes())));
+    }
+
+    static void writeTarEntry(ByteArrayOutputStream out, String name, char type, byte[] content) throws IOException {
+        byte[] header = new byte[512];
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        System.arraycopy(nameBytes, 0, header, 0, Math.min(nameBytes.length, 100));
+        putOctal(header, 100, 8, 0644);
+        putOctal(header, 108, 8, 0);
+        putOctal(header, 116, 8, 0);
+        putOctal(header, 124, 12, content.length);
+        putOctal(header, 136, 12, 0);
+        header[156] = (byte) type;
+        System.arraycopy("ustar\0".getBytes(StandardCharsets.US_ASCII), 0, header, 257, 6);
+        header[263] = '0';
+        header[264] = '0';
+
+        for (int i = 148; i < 156; i++) {
+            header[i] = ' ';
+        }
+        long sum = 0;
+        for (byte b : header) {
+            sum += b & 0xff;
+        }
+        putOctal(header, 148, 7, sum);
+
+        out.write(header);
+        out.write(content);
+        out.write(new byte[(512 - content.length % 512) % 512]);
+    }
+
+    private static void putOctal(byte[] header, int offset, int length, long value) {
+        String octal = String.format("%0" + (length - 1) + "o", value);
+        System.arraycopy(octal.getBytes(StandardCharsets.US_ASCII), 0, header, offset, length - 1);
+        header[offset + length - 1] = 0;
+    }
+}
@@ -0,0 +1,32 @@
+package araslanov.ruslan.cloudserver.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RateLimiterTest {
+
+    @Test
+    void acquireSpreadsPermitsOverTime() {
+        RateLimiter limiter = new RateLimiter(1000);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            limiter.acquire(1);
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis >= 150, "elapsed " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void zeroRateMeansUnlimited() {
+        RateLimiter limiter = new RateLimiter(0);
+
+        long start = System.nanoTime();
+        limiter.acquire(1_000_000);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 100, "elapsed " + elapsedMillis + " ms");
+    }
+}